@@ -0,0 +1,81 @@
+package com.example.projet.cache;
+
+import com.example.projet.entity.Categorie;
+import com.example.projet.event.CategorieChangeEvent;
+import com.example.projet.event.ProduitChangeEvent;
+import com.example.projet.repository.CategorieRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Instantané immuable de la liste des catégories (avec leurs compteurs), lu par presque toutes
+ * les pages. Il est remplacé d'un bloc : une écriture après commit l'invalide et le prochain
+ * lecteur le recharge. Une génération écarte un rechargement commencé avant l'invalidation.
+ */
+@Component
+public class CategorieCache {
+    
+    @Autowired
+    private CategorieRepository categorieRepository;
+    
+    private volatile List<Categorie> instantane;
+    private long generation;
+    
+    public List<Categorie> getToutes() {
+        List<Categorie> courant = instantane;
+        if (courant != null) {
+            return courant;
+        }
+        long generationLue;
+        synchronized (this) {
+            generationLue = generation;
+        }
+        
+        List<Categorie> copies = new ArrayList<>();
+        for (Categorie categorie : categorieRepository.findBySupprimeeFalse(Sort.by("id"))) {
+            copies.add(copier(categorie));
+        }
+        List<Categorie> nouveau = List.copyOf(copies);
+        
+        synchronized (this) {
+            if (generation == generationLue) {
+                instantane = nouveau;
+            }
+        }
+        return nouveau;
+    }
+    
+    public synchronized void invalider() {
+        generation++;
+        instantane = null;
+    }
+    
+    // ============ INVALIDATION APRÈS COMMIT ============
+    
+    // Les compteurs bougent avec chaque écriture de produit
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProduitChange(ProduitChangeEvent event) {
+        if (!event.isChargementInitial()) {
+            invalider();
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategorieChange(CategorieChangeEvent event) {
+        invalider();
+    }
+    
+    // Copie détachée sans la collection paresseuse des produits
+    private static Categorie copier(Categorie source) {
+        Categorie copie = new Categorie(source.getId(), source.getNom(), source.getDescription());
+        copie.setNombreProduits(source.getNombreProduits());
+        copie.setNombreEnStock(source.getNombreEnStock());
+        copie.setChangeSeq(source.getChangeSeq());
+        return copie;
+    }
+}
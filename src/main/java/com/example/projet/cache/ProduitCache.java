@@ -0,0 +1,123 @@
+package com.example.projet.cache;
+
+import com.example.projet.entity.Categorie;
+import com.example.projet.entity.Produit;
+import com.example.projet.event.CategorieChangeEvent;
+import com.example.projet.event.ProduitChangeEvent;
+import com.example.projet.repository.ProduitRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Cache en lecture des produits par id, borné en taille (éviction W-TinyLFU de Caffeine).
+ * Le cache garde des copies détachées et renvoie une nouvelle copie à chaque lecture :
+ * un appelant qui modifie son produit (catégorie comprise) ne peut pas altérer l'entrée partagée.
+ * Les écritures invalident l'entrée tout de suite, puis une seconde fois après le commit
+ * pour écarter une relecture concurrente de l'ancienne ligne.
+ */
+@Component
+public class ProduitCache {
+    
+    @Autowired
+    private ProduitRepository produitRepository;
+    
+    private final Cache<Long, Produit> cache;
+    
+    public ProduitCache(@Value("${app.cache.produits.max-size:10000}") long tailleMax) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tailleMax)
+                .recordStats()
+                .build();
+    }
+    
+    public Optional<Produit> findById(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        Produit produit = cache.get(id, cle -> produitRepository.findById(cle).map(ProduitCache::copier).orElse(null));
+        return Optional.ofNullable(produit).map(ProduitCache::copier);
+    }
+    
+    // Lecture groupée : les ids absents du cache sont chargés ensemble en une requête IN (...)
+    public Map<Long, Produit> findAllById(Collection<Long> ids) {
+        Map<Long, Produit> trouves = cache.getAll(ids, manquants -> {
+            Map<Long, Produit> charges = new HashMap<>();
+            for (Produit produit : produitRepository.findAvecCategorieByIdIn(List.copyOf(manquants))) {
+                charges.put(produit.getId(), copier(produit));
+            }
+            return charges;
+        });
+        Map<Long, Produit> copies = new HashMap<>();
+        trouves.forEach((id, produit) -> copies.put(id, copier(produit)));
+        return copies;
+    }
+    
+    public void invalider(Long id) {
+        if (id != null) {
+            cache.invalidate(id);
+        }
+    }
+    
+    public void invaliderTout() {
+        cache.invalidateAll();
+    }
+    
+    // ============ INVALIDATION APRÈS COMMIT ============
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProduitChange(ProduitChangeEvent event) {
+        if (!event.isChargementInitial()) {
+            invalider(event.getProduitId());
+        }
+    }
+    
+    // Les produits en cache embarquent leur catégorie (nom compris)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategorieChange(CategorieChangeEvent event) {
+        invaliderTout();
+    }
+    
+    // ============ STATISTIQUES ============
+    
+    public Map<String, Object> getStatistiques() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> response = new HashMap<>();
+        response.put("taille", cache.estimatedSize());
+        response.put("hits", stats.hitCount());
+        response.put("misses", stats.missCount());
+        response.put("hitRate", stats.hitRate());
+        response.put("evictions", stats.evictionCount());
+        response.put("chargementMoyenMs", stats.averageLoadPenalty() / 1_000_000.0);
+        return response;
+    }
+    
+    private static Produit copier(Produit source) {
+        Produit copie = new Produit(source.getNom(), source.getDescription(), source.getPrix(), source.getQuantite(),
+                source.getImageName(), source.getImageUrl(), copier(source.getCategorie()));
+        copie.setId(source.getId());
+        copie.setChangeSeq(source.getChangeSeq());
+        return copie;
+    }
+    
+    // Catégorie chargée avec le produit (EAGER) : copie de ses champs, sans la liste des produits
+    private static Categorie copier(Categorie source) {
+        if (source == null) {
+            return null;
+        }
+        Categorie copie = new Categorie(source.getId(), source.getNom(), source.getDescription());
+        copie.setChangeSeq(source.getChangeSeq());
+        copie.setSupprimee(source.isSupprimee());
+        return copie;
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.projet.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Table de hachage primitive id produit -> (stock, réservé), en adressage ouvert (sondage linéaire).
+ * Chaque valeur tient dans un long : stock sur les 32 bits hauts, quantité réservée sur les 32 bits bas,
+ * si bien qu'une réservation ou une mise à jour de stock est un simple compareAndSet, sans verrou ni
+ * allocation. Seules l'insertion d'un nouvel id et l'agrandissement passent par un verrou ; pendant
+ * un agrandissement les cases copiées sont marquées DEPLACE et les lecteurs attendent la nouvelle table.
+ * Les ids doivent être strictement positifs (0 marque une case vide) et le stock différent de
+ * Integer.MIN_VALUE (réservé aux marqueurs DEPLACE et SUPPRIME).
+ */
+public final class TableInventaire {
+    
+    // Renvoyé pour un id absent de la table
+    public static final int INCONNU = Integer.MIN_VALUE;
+    
+    private static final long VIDE = 0L;
+    private static final long DEPLACE = Long.MIN_VALUE;
+    private static final long SUPPRIME = Long.MIN_VALUE + 1;
+    private static final int CAPACITE_INITIALE = 1024;
+    
+    private final Object verrouInsertion = new Object();
+    private volatile Table table = new Table(CAPACITE_INITIALE);
+    
+    // ============ LECTURE ============
+    
+    // Stock moins les réservations, ou INCONNU
+    public int disponible(long id) {
+        while (true) {
+            Table t = table;
+            int i = t.indice(id);
+            if (i < 0) {
+                return INCONNU;
+            }
+            long valeur = t.valeurs.get(i);
+            if (valeur == DEPLACE) {
+                attendre(t);
+                continue;
+            }
+            return valeur == SUPPRIME ? INCONNU : stockDe(valeur) - reserveDe(valeur);
+        }
+    }
+    
+    public int stock(long id) {
+        while (true) {
+            Table t = table;
+            int i = t.indice(id);
+            if (i < 0) {
+                return INCONNU;
+            }
+            long valeur = t.valeurs.get(i);
+            if (valeur == DEPLACE) {
+                attendre(t);
+                continue;
+            }
+            return valeur == SUPPRIME ? INCONNU : stockDe(valeur);
+        }
+    }
+    
+    // ============ RÉSERVATIONS ============
+    
+    // Réserve la quantité si le disponible suffit ; false sinon (ou id inconnu)
+    public boolean reserver(long id, int quantite) {
+        while (true) {
+            Table t = table;
+            int i = t.indice(id);
+            if (i < 0) {
+                return false;
+            }
+            long valeur = t.valeurs.get(i);
+            if (valeur == DEPLACE) {
+                attendre(t);
+                continue;
+            }
+            if (valeur == SUPPRIME || stockDe(valeur) - reserveDe(valeur) < quantite) {
+                return false;
+            }
+            if (t.valeurs.compareAndSet(i, valeur, paquet(stockDe(valeur), reserveDe(valeur) + quantite))) {
+                return true;
+            }
+        }
+    }
+    
+    public void liberer(long id, int quantite) {
+        while (true) {
+            Table t = table;
+            int i = t.indice(id);
+            if (i < 0) {
+                return;
+            }
+            long valeur = t.valeurs.get(i);
+            if (valeur == DEPLACE) {
+                attendre(t);
+                continue;
+            }
+            if (valeur == SUPPRIME) {
+                return;
+            }
+            if (t.valeurs.compareAndSet(i, valeur, paquet(stockDe(valeur), Math.max(0, reserveDe(valeur) - quantite)))) {
+                return;
+            }
+        }
+    }
+    
+    // ============ MISE À JOUR ============
+    
+    // Fixe le stock en conservant les réservations en cours
+    public void definirStock(long id, int stock) {
+        ecrire(id, stock, true);
+    }
+    
+    // Insère le stock lu en base seulement si aucune valeur plus récente n'est arrivée entre-temps
+    public void chargerSiAbsent(long id, int stock) {
+        ecrire(id, stock, false);
+    }
+    
+    public void supprimer(long id) {
+        while (true) {
+            Table t = table;
+            int i = t.indice(id);
+            if (i < 0) {
+                return;
+            }
+            long valeur = t.valeurs.get(i);
+            if (valeur == DEPLACE) {
+                attendre(t);
+                continue;
+            }
+            if (valeur == SUPPRIME || t.valeurs.compareAndSet(i, valeur, SUPPRIME)) {
+                return;
+            }
+        }
+    }
+    
+    private void ecrire(long id, int stock, boolean remplacer) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Id produit invalide: " + id);
+        }
+        if (stock == Integer.MIN_VALUE) {
+            throw new IllegalArgumentException("Stock invalide: " + stock);
+        }
+        while (true) {
+            Table t = table;
+            int i = t.indice(id);
+            if (i < 0) {
+                if (inserer(id, stock)) {
+                    return;
+                }
+                continue;
+            }
+            long valeur = t.valeurs.get(i);
+            if (valeur == DEPLACE) {
+                attendre(t);
+                continue;
+            }
+            if (!remplacer && valeur != SUPPRIME) {
+                return;
+            }
+            long nouvelle = paquet(stock, valeur == SUPPRIME ? 0 : reserveDe(valeur));
+            if (t.valeurs.compareAndSet(i, valeur, nouvelle)) {
+                return;
+            }
+        }
+    }
+    
+    // false si l'id a été inséré entre-temps par un autre thread (l'appelant repasse par le CAS)
+    private boolean inserer(long id, int stock) {
+        synchronized (verrouInsertion) {
+            Table t = table;
+            if (t.indice(id) >= 0) {
+                return false;
+            }
+            if ((t.occupees + 1) * 2 > t.cles.length()) {
+                t = agrandir(t);
+            }
+            t.placer(id, paquet(stock, 0));
+            return true;
+        }
+    }
+    
+    // Appelé sous verrou d'insertion : copie les cases vivantes puis publie la nouvelle table
+    private Table agrandir(Table ancienne) {
+        int vivantes = 0;
+        for (int i = 0; i < ancienne.cles.length(); i++) {
+            long valeur = ancienne.valeurs.get(i);
+            if (ancienne.cles.get(i) != VIDE && valeur != SUPPRIME) {
+                vivantes++;
+            }
+        }
+        int capacite = CAPACITE_INITIALE;
+        while (capacite < (vivantes + 1) * 4) {
+            capacite <<= 1;
+        }
+        
+        Table nouvelle = new Table(capacite);
+        for (int i = 0; i < ancienne.cles.length(); i++) {
+            long cle = ancienne.cles.get(i);
+            if (cle == VIDE) {
+                continue;
+            }
+            long valeur;
+            do {
+                valeur = ancienne.valeurs.get(i);
+            } while (!ancienne.valeurs.compareAndSet(i, valeur, DEPLACE));
+            if (valeur != SUPPRIME) {
+                nouvelle.placer(cle, valeur);
+            }
+        }
+        table = nouvelle;
+        return nouvelle;
+    }
+    
+    private void attendre(Table t) {
+        while (table == t) {
+            Thread.onSpinWait();
+        }
+    }
+    
+    // ============ ENCODAGE ============
+    
+    private static long paquet(int stock, int reserve) {
+        return ((long) stock << 32) | (reserve & 0xFFFFFFFFL);
+    }
+    
+    private static int stockDe(long valeur) {
+        return (int) (valeur >> 32);
+    }
+    
+    private static int reserveDe(long valeur) {
+        return (int) valeur;
+    }
+    
+    private static final class Table {
+        private final AtomicLongArray cles;
+        private final AtomicLongArray valeurs;
+        private final int masque;
+        private int occupees;
+        
+        private Table(int capacite) {
+            this.cles = new AtomicLongArray(capacite);
+            this.valeurs = new AtomicLongArray(capacite);
+            this.masque = capacite - 1;
+        }
+        
+        private static int hache(long id) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+        
+        // Case de l'id, ou -1 s'il est absent
+        private int indice(long id) {
+            int i = hache(id) & masque;
+            while (true) {
+                long cle = cles.get(i);
+                if (cle == id) {
+                    return i;
+                }
+                if (cle == VIDE) {
+                    return -1;
+                }
+                i = (i + 1) & masque;
+            }
+        }
+        
+        // Valeur écrite avant la clé : un lecteur qui voit la clé voit aussi la valeur
+        private void placer(long id, long valeur) {
+            int i = hache(id) & masque;
+            while (cles.get(i) != VIDE) {
+                i = (i + 1) & masque;
+            }
+            valeurs.set(i, valeur);
+            cles.set(i, id);
+            occupees++;
+        }
+    }
+}
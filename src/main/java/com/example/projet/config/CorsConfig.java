@@ -29,6 +29,7 @@ public class CorsConfig {
                         )
                         .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH")
                         .allowedHeaders("*")
+                        .exposedHeaders("ETag") // lu par l'app pour If-None-Match
                         .allowCredentials(true)
                         .maxAge(3600);
                 
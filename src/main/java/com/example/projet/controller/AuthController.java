@@ -1,6 +1,7 @@
 package com.example.projet.controller;
 
 import com.example.projet.entity.User;
+import com.example.projet.service.PanierService;
 import com.example.projet.service.UserService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
@@ -21,6 +22,9 @@ public class AuthController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private PanierService panierService;
+    
     // ==================== INSCRIPTION ====================
     
     // 1. INSCRIPTION PUBLIQUE (pour les clients frontend)
@@ -189,6 +193,7 @@ public class AuthController {
             
             // Stocker dans la session HTTP
             session.setAttribute("currentUser", sessionUser);
+            fusionnerPanierInvite(session.getId(), user.getId());
             
             System.out.println("✅ [LOGIN] Connexion réussie: " + user.getUsername() + 
                               " (Role: " + user.getRole() + ")");
@@ -242,6 +247,7 @@ public class AuthController {
             
             // Stocker dans la nouvelle session
             newSession.setAttribute("currentUser", sessionUser);
+            fusionnerPanierInvite(newSession.getId(), user.getId());
             
             System.out.println("✅ [FRONTEND LOGIN] Connexion réussie: " + user.getUsername());
             
@@ -259,6 +265,15 @@ public class AuthController {
         }
     }
     
+    // Le panier constitué avant connexion (en mémoire, par session) rejoint celui de l'utilisateur
+    private void fusionnerPanierInvite(String sessionId, Long userId) {
+        try {
+            panierService.synchronizeGuestPanier(sessionId, userId);
+        } catch (Exception e) {
+            System.err.println("⚠️ Fusion du panier invité impossible: " + e.getMessage());
+        }
+    }
+    
     // ==================== ADMIN SESSION ====================
     
     // Vérifier si un admin est connecté
@@ -1,12 +1,17 @@
 package com.example.projet.controller;
 
 import com.example.projet.entity.Categorie;
+import com.example.projet.service.CatalogVersionService;
 import com.example.projet.service.CategorieService;
+import com.example.projet.service.SuppressionCategorieWorker;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -18,6 +23,12 @@ public class CategorieController {
     @Autowired
     private CategorieService categorieService;
     
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+    
+    @Autowired
+    private SuppressionCategorieWorker suppressionCategorieWorker;
+    
     @PostMapping
     public ResponseEntity<Categorie> createCategorie(@RequestBody Categorie categorie) {
         Categorie savedCategorie = categorieService.saveCategorie(categorie);
@@ -25,9 +36,13 @@ public class CategorieController {
     }
     
     @GetMapping
-    public ResponseEntity<List<Categorie>> getAllCategories() {
+    public ResponseEntity<List<Categorie>> getAllCategories(WebRequest request) {
+        String etag = catalogVersionService.etagCategories();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         List<Categorie> categories = categorieService.getAllCategories();
-        return ResponseEntity.ok(categories);
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(categories);
     }
     
     @GetMapping("/{id}")
@@ -62,17 +77,21 @@ public class CategorieController {
         }
     }
     
+    // Suppression asynchrone : 202 puis suivi sur /api/categories/{id}/suppression
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteCategorie(@PathVariable Long id) {
-        Optional<Categorie> categorie = categorieService.getCategorieById(id);
-        if (categorie.isPresent()) {
-            categorieService.deleteCategorie(id);
-            return ResponseEntity.noContent().build();
+    public ResponseEntity<?> deleteCategorie(@PathVariable Long id) {
+        if (categorieService.deleteCategorie(id)) {
+            return ResponseEntity.accepted().body(suppressionCategorieWorker.getProgression(id));
         } else {
             return ResponseEntity.notFound().build();
         }
     }
     
+    @GetMapping("/{id}/suppression")
+    public ResponseEntity<Map<String, Object>> getSuppression(@PathVariable Long id) {
+        return ResponseEntity.ok(suppressionCategorieWorker.getProgression(id));
+    }
+    
     @GetMapping("/search")
     public ResponseEntity<List<Categorie>> searchCategories(@RequestParam String keyword) {
         List<Categorie> categories = categorieService.searchCategories(keyword);
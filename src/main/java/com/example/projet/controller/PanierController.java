@@ -1,11 +1,14 @@
 package com.example.projet.controller;
 
+import com.example.projet.dto.OperationPanier;
 import com.example.projet.entity.Panier;
 import com.example.projet.service.PanierService;
+import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -13,6 +16,8 @@ import java.util.Map;
 @CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
 public class PanierController {
     
+    private static final int MAX_OPERATIONS = 200;
+    
     @Autowired
     private PanierService panierService;
     
@@ -102,4 +107,72 @@ public class PanierController {
             return ResponseEntity.badRequest().body(response);
         }
     }
-}
\ No newline at end of file
+    
+    // Lot de modifications : [{ "type": "add" | "update" | "remove", "produitId": 1, "quantite": 2 }, ...]
+    @PostMapping("/batch")
+    public ResponseEntity<?> appliquerLot(@RequestParam Long userId, @RequestBody List<OperationPanier> operations) {
+        if (operations.size() > MAX_OPERATIONS) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Maximum " + MAX_OPERATIONS + " opérations par requête");
+            return ResponseEntity.badRequest().body(error);
+        }
+        try {
+            return ResponseEntity.ok(panierService.appliquerOperations(userId, operations));
+        } catch (Exception e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    // ============ PANIER INVITÉ (visiteur non connecté, gardé en mémoire par session) ============
+    
+    @GetMapping("/invite")
+    public ResponseEntity<?> getPanierInvite(HttpSession session) {
+        return ResponseEntity.ok(panierService.getOrCreateGuestPanier(session.getId()));
+    }
+    
+    @PostMapping("/invite/ajouter")
+    public ResponseEntity<?> ajouterAuPanierInvite(
+            HttpSession session,
+            @RequestParam Long produitId,
+            @RequestParam(defaultValue = "1") Integer quantite) {
+        try {
+            panierService.ajouterAuPanierInvite(session.getId(), produitId, quantite);
+            return ResponseEntity.ok(panierService.getOrCreateGuestPanier(session.getId()));
+        } catch (Exception e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    @PutMapping("/invite/update")
+    public ResponseEntity<?> updateQuantiteInvite(
+            HttpSession session,
+            @RequestParam Long produitId,
+            @RequestParam Integer quantite) {
+        try {
+            panierService.updatePanierInvite(session.getId(), produitId, quantite);
+            return ResponseEntity.ok(panierService.getOrCreateGuestPanier(session.getId()));
+        } catch (Exception e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    @DeleteMapping("/invite/retirer")
+    public ResponseEntity<?> retirerDuPanierInvite(HttpSession session, @RequestParam Long produitId) {
+        panierService.removeFromPanierInvite(session.getId(), produitId);
+        return ResponseEntity.ok(panierService.getOrCreateGuestPanier(session.getId()));
+    }
+    
+    @DeleteMapping("/invite/vider")
+    public ResponseEntity<?> viderPanierInvite(HttpSession session) {
+        panierService.clearPanierInvite(session.getId());
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Panier vidé avec succès");
+        return ResponseEntity.ok(response);
+    }
+}
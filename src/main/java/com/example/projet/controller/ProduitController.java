@@ -1,11 +1,29 @@
 package com.example.projet.controller;
 
+import com.example.projet.dto.ChangementsCatalogue;
+import com.example.projet.dto.PageCurseur;
+import com.example.projet.dto.ProduitMiseAJour;
+import com.example.projet.dto.ProduitResume;
+import com.example.projet.dto.ResultatMiseAJour;
 import com.example.projet.entity.Produit;
+import com.example.projet.search.ProduitFacetIndex;
+import com.example.projet.search.ProduitSuggestions;
+import com.example.projet.service.CatalogVersionService;
+import com.example.projet.service.CatalogueStreamService;
 import com.example.projet.service.ProduitService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.web.multipart.MultipartFile;
@@ -22,28 +40,113 @@ public class ProduitController {
     private ProduitService produitService;
     @Autowired
     private FileStorageService fileStorageService;
+    @Autowired
+    private ProduitSuggestions produitSuggestions;
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+    @Autowired
+    private CatalogueStreamService catalogueStreamService;
     
     @PostMapping
-    public ResponseEntity<Produit> createProduit(@RequestBody Produit produit) {
-        Produit savedProduit = produitService.save(produit);
-        return new ResponseEntity<>(savedProduit, HttpStatus.CREATED);
+    public ResponseEntity<?> createProduit(@RequestBody Produit produit) {
+        try {
+            Produit savedProduit = produitService.save(produit);
+            return new ResponseEntity<>(savedProduit, HttpStatus.CREATED);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
     }
     
     @GetMapping
-    public ResponseEntity<List<Produit>> getAllProduits() {
-        List<Produit> produits = produitService.findAll();
-        return ResponseEntity.ok(produits);
+    public ResponseEntity<?> getAllProduits(
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            WebRequest request) {
+        // Catalogue inchangé depuis la copie du client : 304 sans toucher la base
+        String etag = catalogVersionService.etagCatalogue();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        try {
+            PageCurseur<ProduitResume> page = produitService.findPage(sort, cursor, Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+            return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(page);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    // Synchronisation incrémentale : ce qui a changé après la séquence "since" (0 = tout le catalogue)
+    @GetMapping("/changes")
+    public ResponseEntity<ChangementsCatalogue> getChanges(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "500") int limit) {
+        int taille = Math.min(Math.max(limit, 1), MAX_CHANGES);
+        return ResponseEntity.ok(produitService.changementsDepuis(Math.max(since, 0), taille));
+    }
+    
+    // Flux SSE des modifications de produits (événements "produit", commentaire "ping" périodique)
+    @GetMapping(value = "/stream", produces = "text/event-stream")
+    public ResponseEntity<SseEmitter> stream() {
+        SseEmitter emitter = catalogueStreamService.abonner();
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Produit> getProduitById(@PathVariable Long id) {
+    public ResponseEntity<Produit> getProduitById(@PathVariable Long id, WebRequest request) {
+        String etag = catalogVersionService.etagProduit(id);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         Optional<Produit> produit = produitService.findById(id);
         if (produit.isPresent()) {
-            return ResponseEntity.ok(produit.get());
+            return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(produit.get());
         } else {
             return ResponseEntity.notFound().build();
         }
     }
+    // Lecture groupée : GET /api/produits/batch?ids=3,1,7 (ou POST avec [3, 1, 7] pour les longues listes)
+    @GetMapping("/batch")
+    public ResponseEntity<?> getProduitsBatch(@RequestParam List<Long> ids) {
+        return batchResponse(ids);
+    }
+    
+    @PostMapping("/batch")
+    public ResponseEntity<?> postProduitsBatch(@RequestBody List<Long> ids) {
+        return batchResponse(ids);
+    }
+    
+    // "produits" suit l'ordre des ids demandés, avec null pour chaque id introuvable (listé dans "manquants")
+    private ResponseEntity<?> batchResponse(List<Long> ids) {
+        if (ids.size() > MAX_BATCH) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Maximum " + MAX_BATCH + " ids par requête");
+            return ResponseEntity.badRequest().body(error);
+        }
+        
+        List<Produit> produits = produitService.findAllByIdDansLOrdre(ids);
+        List<Long> manquants = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (produits.get(i) == null) {
+                manquants.add(ids.get(i));
+            }
+        }
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("produits", produits);
+        response.put("manquants", manquants);
+        response.put("demandes", ids.size());
+        response.put("trouves", ids.size() - manquants.size());
+        return ResponseEntity.ok(response);
+    }
+    
     // AJOUTE CETTE MÉTHODE
     @PostMapping("/upload-image")
     public ResponseEntity<Map<String, String>> uploadImageForProduct(
@@ -125,6 +228,28 @@ public class ProduitController {
         }
     }
     
+    // Mise à jour partielle en masse : [{ "id": 1, "prix": 9.9, "quantite": 3, "categorieId": 2 }, ...]
+    @PatchMapping("/bulk")
+    public ResponseEntity<?> bulkUpdate(@RequestBody List<ProduitMiseAJour> miseAJours) {
+        if (miseAJours.size() > MAX_BULK) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Maximum " + MAX_BULK + " mises à jour par requête");
+            return ResponseEntity.badRequest().body(error);
+        }
+        
+        long debut = System.currentTimeMillis();
+        List<ResultatMiseAJour> resultats = produitService.mettreAJourEnMasse(miseAJours);
+        long misAJour = resultats.stream().filter(r -> ResultatMiseAJour.OK.equals(r.getStatut())).count();
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("total", resultats.size());
+        response.put("misAJour", misAJour);
+        response.put("echecs", resultats.size() - misAJour);
+        response.put("dureeMs", System.currentTimeMillis() - debut);
+        response.put("resultats", resultats);
+        return ResponseEntity.ok(response);
+    }
+    
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteProduit(@PathVariable Long id) {
         Optional<Produit> produit = produitService.findById(id);
@@ -137,30 +262,113 @@ public class ProduitController {
     }
     
     @GetMapping("/search")
-    public ResponseEntity<List<Produit>> searchProduits(@RequestParam String keyword) {
-        List<Produit> produits = produitService.findByNomContaining(keyword);
+    public ResponseEntity<List<ProduitResume>> searchProduits(
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = "texte") String mode,
+            @RequestParam(defaultValue = "50") int limit) {
+        int taille = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        List<ProduitResume> produits = "fuzzy".equalsIgnoreCase(mode)
+                ? produitService.rechercherApproximatif(keyword, taille)
+                : produitService.rechercher(keyword, taille);
         return ResponseEntity.ok(produits);
     }
     
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProduitSuggestions.Suggestion>> suggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(produitSuggestions.suggerer(prefix, Math.min(Math.max(limit, 1), 50)));
+    }
+    
+    // Filtres combinables (catégories, tranches de prix, stock) + compteurs par facette
+    @GetMapping("/browse")
+    public ResponseEntity<Map<String, Object>> browse(
+            @RequestParam(required = false) List<Long> categorieId,
+            @RequestParam(required = false) List<Integer> tranchePrix,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        
+        int taille = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        int numero = Math.max(page, 0);
+        ProduitFacetIndex.Resultat resultat = produitService.parcourir(categorieId, tranchePrix, inStock, numero, taille);
+        
+        List<Map<String, Object>> categories = new ArrayList<>();
+        resultat.getCategories().forEach((id, nombre) -> {
+            Map<String, Object> facette = new HashMap<>();
+            facette.put("id", id);
+            facette.put("nom", resultat.getNomsCategories().get(id));
+            facette.put("count", nombre);
+            categories.add(facette);
+        });
+        
+        List<Map<String, Object>> prix = new ArrayList<>();
+        double[] bornes = ProduitFacetIndex.BORNES_PRIX;
+        for (int i = 0; i < bornes.length; i++) {
+            Map<String, Object> facette = new HashMap<>();
+            facette.put("tranche", i);
+            facette.put("min", bornes[i]);
+            facette.put("max", i + 1 < bornes.length ? bornes[i + 1] : null);
+            facette.put("count", resultat.getTranchesPrix()[i]);
+            prix.add(facette);
+        }
+        
+        Map<String, Object> stock = new HashMap<>();
+        stock.put("inStock", resultat.getEnStock());
+        stock.put("outOfStock", resultat.getRupture());
+        
+        Map<String, Object> facettes = new HashMap<>();
+        facettes.put("categories", categories);
+        facettes.put("prix", prix);
+        facettes.put("stock", stock);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("content", produitService.findResumesDansLOrdre(resultat.getIds()));
+        response.put("page", numero);
+        response.put("size", taille);
+        response.put("totalElements", resultat.getTotal());
+        response.put("totalPages", (resultat.getTotal() + taille - 1) / taille);
+        response.put("facettes", facettes);
+        return ResponseEntity.ok(response);
+    }
+    
     @GetMapping("/categorie/{categorieId}")
-    public ResponseEntity<List<Produit>> getProduitsByCategorie(@PathVariable Long categorieId) {
-        List<Produit> produits = produitService.findByCategorieId(categorieId);
-        return ResponseEntity.ok(produits);
+    public ResponseEntity<Map<String, Object>> getProduitsByCategorie(
+            @PathVariable Long categorieId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        
+        Page<ProduitResume> produits = produitService.findByCategorieId(categorieId, pageRequest(page, size));
+        return ResponseEntity.ok(pageResponse(produits));
     }
     
     @GetMapping("/price-range")
-    public ResponseEntity<List<Produit>> getProduitsByPriceRange(
+    public ResponseEntity<Map<String, Object>> getProduitsByPriceRange(
             @RequestParam(required = false) Double min,
-            @RequestParam(required = false) Double max) {
+            @RequestParam(required = false) Double max,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
         
-        List<Produit> produits = produitService.findByPrixBetween(min, max);
-        return ResponseEntity.ok(produits);
+        Page<ProduitResume> produits = produitService.findByPrixBetween(min, max,
+                pageRequest(page, size, Sort.by("prix", "id")));
+        return ResponseEntity.ok(pageResponse(produits));
+    }
+    
+    @GetMapping("/price-histogram")
+    public ResponseEntity<Map<String, Object>> getPriceHistogram(
+            @RequestParam(required = false) Double min,
+            @RequestParam(required = false) Double max,
+            @RequestParam(defaultValue = "20") int buckets) {
+        return ResponseEntity.ok(produitService.histogrammePrix(min, max, Math.min(Math.max(buckets, 1), 100)));
     }
     
     @GetMapping("/in-stock")
-    public ResponseEntity<List<Produit>> getProduitsInStock() {
-        List<Produit> produits = produitService.findProduitsEnStock();
-        return ResponseEntity.ok(produits);
+    public ResponseEntity<Map<String, Object>> getProduitsInStock(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        
+        Slice<ProduitResume> produits = produitService.findProduitsEnStock(pageRequest(page, size));
+        return ResponseEntity.ok(sliceResponse(produits));
     }
     
     @PostMapping("/{id}/augmenter-quantite")
@@ -174,15 +382,31 @@ public class ProduitController {
     }
     
     @PostMapping("/{id}/diminuer-quantite")
-    public ResponseEntity<Produit> diminuerQuantite(@PathVariable Long id, @RequestParam Integer quantite) {
-        Produit produit = produitService.diminuerQuantite(id, quantite);
-        if (produit != null) {
-            return ResponseEntity.ok(produit);
-        } else {
-            return ResponseEntity.notFound().build();
+    public ResponseEntity<?> diminuerQuantite(@PathVariable Long id, @RequestParam Integer quantite) {
+        try {
+            Produit produit = produitService.diminuerQuantite(id, quantite);
+            if (produit != null) {
+                return ResponseEntity.ok(produit);
+            } else {
+                return ResponseEntity.notFound().build();
+            }
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (IllegalStateException e) {
+            // Stock insuffisant : rien n'a été retiré
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
         }
     }
     
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(produitService.getStatistiquesCache());
+    }
+    
     @GetMapping("/count")
     public ResponseEntity<Long> countProduits() {
         long count = produitService.count();
@@ -195,4 +419,36 @@ public class ProduitController {
         return ResponseEntity.ok(count);
     }
     
-}
\ No newline at end of file
+    // ============ PAGINATION ============
+    
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_CHANGES = 1000;
+    private static final int MAX_BULK = 10000;
+    private static final int MAX_BATCH = 500;
+    
+    private Pageable pageRequest(int page, int size) {
+        return pageRequest(page, size, Sort.by("id"));
+    }
+    
+    private Pageable pageRequest(int page, int size, Sort sort) {
+        int taille = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        return PageRequest.of(Math.max(page, 0), taille, sort);
+    }
+    
+    private Map<String, Object> sliceResponse(Slice<ProduitResume> slice) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("content", slice.getContent());
+        response.put("page", slice.getNumber());
+        response.put("size", slice.getSize());
+        response.put("numberOfElements", slice.getNumberOfElements());
+        response.put("hasNext", slice.hasNext());
+        return response;
+    }
+    
+    private Map<String, Object> pageResponse(Page<ProduitResume> page) {
+        Map<String, Object> response = sliceResponse(page);
+        response.put("totalElements", page.getTotalElements());
+        response.put("totalPages", page.getTotalPages());
+        return response;
+    }
+}
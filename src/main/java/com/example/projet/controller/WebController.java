@@ -1,5 +1,8 @@
 package com.example.projet.controller;
 
+import com.example.projet.dto.PageCurseur;
+import com.example.projet.dto.ProduitResume;
+import com.example.projet.dto.TableauDeBord;
 import com.example.projet.entity.*;
 import com.example.projet.service.*;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -52,6 +55,9 @@ public class WebController {
     @Autowired
     private FavoriService favoriService;
     
+    @Autowired
+    private TableauDeBordService tableauDeBordService;
+    
     // ==================== PAGES D'AUTHENTIFICATION ====================
     
     @GetMapping("/login")
@@ -76,28 +82,15 @@ public class WebController {
     public String homePage(Model model, HttpSession session) {
         User currentUser = (User) session.getAttribute("currentUser");
         
-        long totalProduits = produitService.count();
-        List<Categorie> categories = categorieService.getAllCategories();
-        long totalCategories = categories.size();
-        List<Produit> produitsEnStock = produitService.findProduitsEnStock();
-        long stockCount = produitsEnStock.size();
-        
-        List<Produit> tousProduits = produitService.findAll();
-        long produitsFaibleStock = tousProduits.stream()
-            .filter(p -> p.getQuantite() <= 5)
-            .count();
+        TableauDeBord tableau = tableauDeBordService.getTableauDeBord();
         
-        List<Produit> derniersProduits = produitService.findAll();
-        if (derniersProduits.size() > 5) {
-            derniersProduits = derniersProduits.subList(0, Math.min(5, derniersProduits.size()));
-        }
-        
-        model.addAttribute("totalProduits", totalProduits);
-        model.addAttribute("totalCategories", totalCategories);
-        model.addAttribute("produitsEnStock", stockCount);
-        model.addAttribute("produitsFaibleStock", produitsFaibleStock);
-        model.addAttribute("produits", derniersProduits);
-        model.addAttribute("categories", categories);
+        model.addAttribute("totalProduits", tableau.getTotalProduits());
+        model.addAttribute("totalCategories", tableau.getTotalCategories());
+        model.addAttribute("produitsEnStock", tableau.getProduitsEnStock());
+        model.addAttribute("produitsFaibleStock", tableau.getProduitsFaibleStock());
+        model.addAttribute("seuilStockFaible", tableau.getSeuilStockFaible());
+        model.addAttribute("produits", tableau.getDerniersProduits());
+        model.addAttribute("categories", tableau.getCategories());
         model.addAttribute("currentUser", currentUser);
         
         return "index";
@@ -119,11 +112,8 @@ public class WebController {
             // Récupérer les items du panier
             List<PanierItem> panierItems = panierService.getPanierItems(currentUser.getId());
             
-            // Calculer le total
-            double total = 0;
-            for (PanierItem item : panierItems) {
-                total += item.getProduit().getPrix() * item.getQuantite();
-            }
+            // Sous-total maintenu sur le panier
+            double total = panier.getSubtotal();
             
             // Calculer les taxes (TVA 20%)
             double tva = total * 0.20;
@@ -155,23 +145,8 @@ public class WebController {
         }
         
         try {
-            // Vérifier si le produit existe
-            Optional<Produit> produitOpt = produitService.findById(produitId);
-            if (produitOpt.isEmpty()) {
-                redirectAttributes.addFlashAttribute("error", "Produit non trouvé");
-                return "redirect:/produits";
-            }
-            
-            Produit produit = produitOpt.get();
-            
-            // Vérifier le stock
-            if (produit.getQuantite() < quantite) {
-                redirectAttributes.addFlashAttribute("error", "Stock insuffisant. Disponible: " + produit.getQuantite());
-                return "redirect:/produits";
-            }
-            
-            // Ajouter au panier
-            panierService.addToPanier(currentUser.getId(), produitId, quantite);
+            // Existence du produit et stock vérifiés par la requête d'ajout elle-même
+            panierService.ajouterAuPanier(currentUser.getId(), produitId, quantite);
             
             redirectAttributes.addFlashAttribute("success", "Produit ajouté au panier");
         } catch (Exception e) {
@@ -257,30 +232,13 @@ public class WebController {
                 return "redirect:/panier";
             }
             
-            // Vérifier la disponibilité des produits
-            boolean stockOK = true;
-            StringBuilder stockErrors = new StringBuilder();
-            for (PanierItem item : panier.getItems()) {
-                Produit produit = item.getProduit();
-                if (produit.getQuantite() < item.getQuantite()) {
-                    stockOK = false;
-                    stockErrors.append("Stock insuffisant pour: ").append(produit.getNom())
-                              .append(" (demandé: ").append(item.getQuantite())
-                              .append(", disponible: ").append(produit.getQuantite()).append(")\n");
-                }
-            }
-            
-            if (!stockOK) {
-                redirectAttributes.addFlashAttribute("error", stockErrors.toString());
-                return "redirect:/panier";
-            }
-            
-            // Créer la commande
+            // Réservation du stock, décrément en base et vidage du panier dans OrderService
             Order order = orderService.createOrderFromPanier(currentUser.getId(), shippingAddress, paymentMethod);
             
             redirectAttributes.addFlashAttribute("success", "Commande passée avec succès! Numéro: " + order.getId());
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", "Erreur lors de la commande: " + e.getMessage());
+            return "redirect:/panier";
         }
         
         return "redirect:/commandes";
@@ -333,10 +291,10 @@ public class WebController {
             
             List<OrderItem> items = orderItemService.getOrderItemsByOrderId(id);
             
-            // Calculer le total
+            // Calculer le total sur les prix copiés dans la commande (le produit peut avoir été purgé)
             double total = 0;
             for (OrderItem item : items) {
-                total += item.getProduit().getPrix() * item.getQuantite();
+                total += item.getUnitPrice() * item.getQuantite();
             }
             
             model.addAttribute("order", order);
@@ -606,14 +564,24 @@ public class WebController {
     
     // ==================== GESTION DES PRODUITS ====================
     
+    private static final int TAILLE_PAGE_PRODUITS = 50;
+    
     @GetMapping("/produits")
-    public String listProduits(Model model, HttpSession session) {
+    public String listProduits(@RequestParam(value = "sort", defaultValue = "recents") String sort,
+                              @RequestParam(value = "cursor", required = false) String cursor,
+                              Model model, HttpSession session) {
         User currentUser = (User) session.getAttribute("currentUser");
         if (currentUser == null) {
             return "redirect:/login";
         }
         
-        List<Produit> produits = produitService.findAll();
+        PageCurseur<ProduitResume> page;
+        try {
+            page = produitService.findPage(sort, cursor, TAILLE_PAGE_PRODUITS);
+        } catch (IllegalArgumentException e) {
+            return "redirect:/produits";
+        }
+        List<ProduitResume> produits = page.getContent();
         List<Categorie> categories = categorieService.getAllCategories();
         
         // Récupérer les favoris de l'utilisateur
@@ -629,6 +597,8 @@ public class WebController {
         model.addAttribute("categories", categories);
         model.addAttribute("currentUser", currentUser);
         model.addAttribute("favorisIds", favorisIds);
+        model.addAttribute("sort", page.getSort());
+        model.addAttribute("nextCursor", page.getNextCursor());
         return "produit/list";
     }
     
@@ -936,6 +906,7 @@ public class WebController {
     
     @GetMapping("/produits/search")
     public String searchProduits(@RequestParam("keyword") String keyword, 
+                                @RequestParam(value = "mode", defaultValue = "texte") String mode,
                                 Model model, 
                                 HttpSession session) {
         User currentUser = (User) session.getAttribute("currentUser");
@@ -943,9 +914,18 @@ public class WebController {
             return "redirect:/login";
         }
         
-        List<Produit> produits = produitService.findByNomContaining(keyword);
+        List<ProduitResume> produits = "fuzzy".equalsIgnoreCase(mode)
+                ? produitService.rechercherApproximatif(keyword, TAILLE_PAGE_PRODUITS)
+                : produitService.rechercher(keyword, TAILLE_PAGE_PRODUITS);
+        
+        // Aucun résultat exact : on retente en mode approximatif (faute de frappe probable)
+        if (produits.isEmpty() && !"fuzzy".equalsIgnoreCase(mode)) {
+            produits = produitService.rechercherApproximatif(keyword, TAILLE_PAGE_PRODUITS);
+            mode = "fuzzy";
+        }
         model.addAttribute("produits", produits);
         model.addAttribute("keyword", keyword);
+        model.addAttribute("mode", mode);
         model.addAttribute("currentUser", currentUser);
         return "produit/list";
     }
@@ -993,20 +973,29 @@ public class WebController {
             return "redirect:/login";
         }
         
-        long totalProduits = produitService.count();
-        long totalCategories = categorieService.getAllCategories().size();
-        List<Produit> produitsEnStockList = produitService.findProduitsEnStock();
-        long stockCount = produitsEnStockList.size();
-        List<Produit> produitsFaibleStock = produitService.findProduitsFaibleStock(10);
-        
-        // Calcul de la valeur totale du stock
-        double valeurTotale = 0;
-        List<Produit> tousProduits = produitService.findAll();
-        for (Produit p : tousProduits) {
-            if (p.getQuantite() > 0) {
-                valeurTotale += p.getPrix() * p.getQuantite();
+        TableauDeBord tableau = tableauDeBordService.getTableauDeBord();
+        long totalProduits = tableau.getTotalProduits();
+        List<Categorie> categories = tableau.getCategories();
+        long totalCategories = categories.size();
+        long stockCount = tableau.getProduitsEnStock();
+        int seuilStockFaible = produitService.getSeuilListeStockFaible();
+        List<ProduitResume> produitsFaibleStock = produitService.produitsStockFaible(seuilStockFaible);
+        
+        // Valeur du stock tenue à jour en mémoire, ventilée par catégorie
+        double valeurTotale = produitService.getValeurStock();
+        Map<Long, Double> valeurs = produitService.getValeurStockParCategorie();
+        List<Map<String, Object>> valeurParCategorie = new ArrayList<>();
+        for (Categorie categorie : categories) {
+            Double valeur = valeurs.remove(categorie.getId());
+            if (valeur != null) {
+                valeurParCategorie.add(Map.of("nom", categorie.getNom(), "valeur", valeur));
             }
         }
+        Double valeurSansCategorie = valeurs.get(ValeurStockTracker.SANS_CATEGORIE);
+        if (valeurSansCategorie != null) {
+            valeurParCategorie.add(Map.of("nom", "Sans catégorie", "valeur", valeurSansCategorie));
+        }
+        valeurParCategorie.sort((a, b) -> Double.compare((Double) b.get("valeur"), (Double) a.get("valeur")));
         
         // Statistiques des commandes (ajouter ces méthodes à OrderService si nécessaire)
         long totalCommandes = 0;
@@ -1027,7 +1016,9 @@ public class WebController {
         model.addAttribute("produitsEnStock", stockCount);
         model.addAttribute("produitsFaibleStock", produitsFaibleStock.size());
         model.addAttribute("produitsList", produitsFaibleStock);
+        model.addAttribute("seuilStockFaible", seuilStockFaible);
         model.addAttribute("valeurTotale", valeurTotale);
+        model.addAttribute("valeurParCategorie", valeurParCategorie);
         model.addAttribute("totalCommandes", totalCommandes);
         model.addAttribute("commandesEnAttente", commandesEnAttente);
         model.addAttribute("commandesLivrees", commandesLivrees);
@@ -1194,7 +1185,8 @@ public class WebController {
             int importes = 0;
             int erreurs = 0;
             
-            List<Categorie> toutesCategories = categorieService.getAllCategories();
+            // Copie modifiable : la liste partagée des catégories est immuable
+            List<Categorie> toutesCategories = new ArrayList<>(categorieService.getAllCategories());
             
             for (int i = 1; i < lignes.length; i++) {
                 String ligne = lignes[i].trim();
@@ -0,0 +1,36 @@
+package com.example.projet.dto;
+
+import com.example.projet.entity.CatalogTombstone;
+import com.example.projet.entity.Categorie;
+import com.example.projet.entity.Produit;
+
+import java.util.List;
+
+// Lot de modifications du catalogue après une séquence donnée ; "next" sert de "since" à l'appel suivant
+public class ChangementsCatalogue {
+    
+    private final long since;
+    private final long next;
+    private final boolean hasMore;
+    private final List<Produit> produits;
+    private final List<Categorie> categories;
+    private final List<CatalogTombstone> suppressions;
+    
+    public ChangementsCatalogue(long since, long next, boolean hasMore, List<Produit> produits,
+                                List<Categorie> categories, List<CatalogTombstone> suppressions) {
+        this.since = since;
+        this.next = next;
+        this.hasMore = hasMore;
+        this.produits = produits;
+        this.categories = categories;
+        this.suppressions = suppressions;
+    }
+    
+    // Getters
+    public long getSince() { return since; }
+    public long getNext() { return next; }
+    public boolean isHasMore() { return hasMore; }
+    public List<Produit> getProduits() { return produits; }
+    public List<Categorie> getCategories() { return categories; }
+    public List<CatalogTombstone> getSuppressions() { return suppressions; }
+}
@@ -0,0 +1,32 @@
+package com.example.projet.dto;
+
+// Opération d'un lot de modifications du panier : { "type": "add" | "update" | "remove", "produitId": 1, "quantite": 2 }
+public class OperationPanier {
+    
+    public static final String AJOUT = "add";
+    public static final String MODIFICATION = "update";
+    public static final String SUPPRESSION = "remove";
+    
+    private String type;
+    private Long produitId;
+    private Integer quantite;
+    
+    public OperationPanier() {
+    }
+    
+    public OperationPanier(String type, Long produitId, Integer quantite) {
+        this.type = type;
+        this.produitId = produitId;
+        this.quantite = quantite;
+    }
+    
+    // Getters & Setters
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    
+    public Long getProduitId() { return produitId; }
+    public void setProduitId(Long produitId) { this.produitId = produitId; }
+    
+    public Integer getQuantite() { return quantite; }
+    public void setQuantite(Integer quantite) { this.quantite = quantite; }
+}
@@ -0,0 +1,28 @@
+package com.example.projet.dto;
+
+import java.util.List;
+
+// Page obtenue par pagination keyset : le curseur opaque désigne la dernière ligne renvoyée
+public class PageCurseur<T> {
+    
+    private final List<T> content;
+    private final String nextCursor;
+    private final boolean hasNext;
+    private final int size;
+    private final String sort;
+    
+    public PageCurseur(List<T> content, String nextCursor, int size, String sort) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasNext = nextCursor != null;
+        this.size = size;
+        this.sort = sort;
+    }
+    
+    // Getters
+    public List<T> getContent() { return content; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean isHasNext() { return hasNext; }
+    public int getSize() { return size; }
+    public String getSort() { return sort; }
+}
@@ -0,0 +1,26 @@
+package com.example.projet.dto;
+
+// Mise à jour partielle d'un produit (PATCH en masse) : seuls les champs renseignés sont modifiés
+public class ProduitMiseAJour {
+    
+    private Long id;
+    private Double prix;
+    private Integer quantite;
+    private Long categorieId;
+    
+    public ProduitMiseAJour() {
+    }
+    
+    // Getters & Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Double getPrix() { return prix; }
+    public void setPrix(Double prix) { this.prix = prix; }
+    
+    public Integer getQuantite() { return quantite; }
+    public void setQuantite(Integer quantite) { this.quantite = quantite; }
+    
+    public Long getCategorieId() { return categorieId; }
+    public void setCategorieId(Long categorieId) { this.categorieId = categorieId; }
+}
@@ -0,0 +1,64 @@
+package com.example.projet.dto;
+
+/**
+ * Vue allégée d'un produit pour les listes, construite directement par la requête JPQL
+ * (SELECT new ...) : seules ces colonnes sont lues, catégorie comprise, en une seule jointure.
+ * Le détail et l'édition continuent de charger l'entité Produit complète.
+ * Immuable : peut être gardée en cache et partagée entre requêtes (page d'accueil).
+ */
+public class ProduitResume {
+    
+    private final Long id;
+    private final String nom;
+    private final Double prix;
+    private final Integer quantite;
+    private final String imageUrl;
+    private final CategorieResume categorie;
+    // Renseignée seulement par les requêtes qui la sélectionnent
+    private final String description;
+    
+    public ProduitResume(Long id, String nom, Double prix, Integer quantite, String imageUrl,
+                         Long categorieId, String categorieNom) {
+        this(id, nom, prix, quantite, imageUrl, categorieId, categorieNom, null);
+    }
+    
+    public ProduitResume(Long id, String nom, Double prix, Integer quantite, String imageUrl,
+                         Long categorieId, String categorieNom, String description) {
+        this.id = id;
+        this.nom = nom;
+        this.prix = prix;
+        this.quantite = quantite;
+        this.imageUrl = imageUrl;
+        this.categorie = categorieId == null ? null : new CategorieResume(categorieId, categorieNom);
+        this.description = description;
+    }
+    
+    // Getters
+    public Long getId() { return id; }
+    public String getNom() { return nom; }
+    public Double getPrix() { return prix; }
+    public Integer getQuantite() { return quantite; }
+    public String getImageUrl() { return imageUrl; }
+    public CategorieResume getCategorie() { return categorie; }
+    public String getDescription() { return description; }
+    
+    public String getFullImageUrl() {
+        if (imageUrl == null || imageUrl.isEmpty()) {
+            return null;
+        }
+        return imageUrl.startsWith("/") ? imageUrl : "/" + imageUrl;
+    }
+    
+    public static class CategorieResume {
+        private final Long id;
+        private final String nom;
+        
+        public CategorieResume(Long id, String nom) {
+            this.id = id;
+            this.nom = nom;
+        }
+        
+        public Long getId() { return id; }
+        public String getNom() { return nom; }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.projet.dto;
+
+// Résultat d'une ligne de mise à jour en masse
+public class ResultatMiseAJour {
+    
+    public static final String OK = "OK";
+    public static final String INTROUVABLE = "NOT_FOUND";
+    public static final String INVALIDE = "INVALID";
+    
+    private final Long id;
+    private final String statut;
+    private final String message;
+    
+    public ResultatMiseAJour(Long id, String statut, String message) {
+        this.id = id;
+        this.statut = statut;
+        this.message = message;
+    }
+    
+    // Getters
+    public Long getId() { return id; }
+    public String getStatut() { return statut; }
+    public String getMessage() { return message; }
+}
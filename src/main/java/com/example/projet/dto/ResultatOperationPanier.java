@@ -0,0 +1,41 @@
+package com.example.projet.dto;
+
+// Résultat d'une opération d'un lot de modifications du panier ; quantite = quantité de la ligne après l'opération
+public class ResultatOperationPanier {
+    
+    public static final String OK = "OK";
+    public static final String INTROUVABLE = "NOT_FOUND";
+    public static final String INVALIDE = "INVALID";
+    public static final String STOCK_INSUFFISANT = "INSUFFICIENT_STOCK";
+    
+    private final String type;
+    private final Long produitId;
+    private final String statut;
+    private final Integer quantite;
+    private final String message;
+    
+    public ResultatOperationPanier(OperationPanier operation, String statut, Integer quantite, String message) {
+        this.type = operation.getType();
+        this.produitId = operation.getProduitId();
+        this.statut = statut;
+        this.quantite = quantite;
+        this.message = message;
+    }
+    
+    public static ResultatOperationPanier ok(OperationPanier operation, int quantite) {
+        return new ResultatOperationPanier(operation, OK, quantite, null);
+    }
+    
+    public static ResultatOperationPanier echec(OperationPanier operation, String statut, String message) {
+        return new ResultatOperationPanier(operation, statut, null, message);
+    }
+    
+    public boolean isOk() { return OK.equals(statut); }
+    
+    // Getters
+    public String getType() { return type; }
+    public Long getProduitId() { return produitId; }
+    public String getStatut() { return statut; }
+    public Integer getQuantite() { return quantite; }
+    public String getMessage() { return message; }
+}
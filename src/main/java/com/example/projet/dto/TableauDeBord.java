@@ -0,0 +1,37 @@
+package com.example.projet.dto;
+
+import com.example.projet.entity.Categorie;
+
+import java.util.List;
+
+// Modèle de la page d'accueil, calculé en une fois puis partagé entre requêtes (produits projetés, jamais d'entité gérée)
+public class TableauDeBord {
+    
+    private final long totalProduits;
+    private final long totalCategories;
+    private final long produitsEnStock;
+    private final long produitsFaibleStock;
+    private final int seuilStockFaible;
+    private final List<ProduitResume> derniersProduits;
+    private final List<Categorie> categories;
+    
+    public TableauDeBord(long totalProduits, long totalCategories, long produitsEnStock, long produitsFaibleStock,
+                         int seuilStockFaible, List<ProduitResume> derniersProduits, List<Categorie> categories) {
+        this.totalProduits = totalProduits;
+        this.totalCategories = totalCategories;
+        this.produitsEnStock = produitsEnStock;
+        this.produitsFaibleStock = produitsFaibleStock;
+        this.seuilStockFaible = seuilStockFaible;
+        this.derniersProduits = derniersProduits;
+        this.categories = categories;
+    }
+    
+    // Getters
+    public long getTotalProduits() { return totalProduits; }
+    public long getTotalCategories() { return totalCategories; }
+    public long getProduitsEnStock() { return produitsEnStock; }
+    public long getProduitsFaibleStock() { return produitsFaibleStock; }
+    public int getSeuilStockFaible() { return seuilStockFaible; }
+    public List<ProduitResume> getDerniersProduits() { return derniersProduits; }
+    public List<Categorie> getCategories() { return categories; }
+}
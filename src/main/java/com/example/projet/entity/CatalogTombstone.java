@@ -0,0 +1,59 @@
+package com.example.projet.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Trace d'une suppression du catalogue, pour que la synchronisation incrémentale la propage
+@Entity
+@Table(name = "catalog_tombstones", indexes = {
+    @Index(name = "idx_catalog_tombstones_change_seq", columnList = "change_seq")
+})
+public class CatalogTombstone {
+    
+    public static final String TYPE_PRODUIT = "PRODUIT";
+    public static final String TYPE_CATEGORIE = "CATEGORIE";
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false, length = 20)
+    private String type;
+    
+    @Column(name = "entite_id", nullable = false)
+    private Long entiteId;
+    
+    @Column(name = "change_seq", nullable = false)
+    private Long changeSeq;
+    
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+    
+    // Constructeurs
+    public CatalogTombstone() {
+        this.deletedAt = LocalDateTime.now();
+    }
+    
+    public CatalogTombstone(String type, Long entiteId, Long changeSeq) {
+        this();
+        this.type = type;
+        this.entiteId = entiteId;
+        this.changeSeq = changeSeq;
+    }
+    
+    // Getters & Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    
+    public Long getEntiteId() { return entiteId; }
+    public void setEntiteId(Long entiteId) { this.entiteId = entiteId; }
+    
+    public Long getChangeSeq() { return changeSeq; }
+    public void setChangeSeq(Long changeSeq) { this.changeSeq = changeSeq; }
+    
+    public LocalDateTime getDeletedAt() { return deletedAt; }
+    public void setDeletedAt(LocalDateTime deletedAt) { this.deletedAt = deletedAt; }
+}
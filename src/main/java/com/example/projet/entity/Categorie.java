@@ -1,12 +1,14 @@
 package com.example.projet.entity;
 
 import jakarta.persistence.*;
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "categories")
+@Table(name = "categories", indexes = {
+    @Index(name = "idx_categories_change_seq", columnList = "change_seq")
+})
 public class Categorie {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -17,10 +19,30 @@ public class Categorie {
     
     private String description;
     
-    @OneToMany(mappedBy = "categorie", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
-    @JsonIgnoreProperties({"categorie", "hibernateLazyInitializer", "handler"})
+    // Jamais sérialisée : les compteurs ci-dessous la remplacent pour l'affichage.
+    // Pas de cascade de suppression : les produits sont purgés par lots (SuppressionCategorieWorker)
+    @OneToMany(mappedBy = "categorie", cascade = { CascadeType.PERSIST, CascadeType.MERGE }, fetch = FetchType.LAZY)
+    @JsonIgnore
     private List<Produit> produits = new ArrayList<>();
     
+    // Compteurs dénormalisés, maintenus en SQL par les écritures de produits (jamais écrits par Hibernate)
+    @Column(name = "nombre_produits", insertable = false, updatable = false,
+            columnDefinition = "integer not null default 0")
+    private int nombreProduits;
+    
+    @Column(name = "nombre_en_stock", insertable = false, updatable = false,
+            columnDefinition = "integer not null default 0")
+    private int nombreEnStock;
+    
+    // Numéro de la dernière modification (séquence catalog_change_seq)
+    @Column(name = "change_seq")
+    private Long changeSeq;
+    
+    // Suppression demandée : la catégorie est masquée et ses produits sont en cours de purge
+    @Column(name = "supprimee", columnDefinition = "boolean not null default false")
+    @JsonIgnore
+    private boolean supprimee;
+    
     // ============ CONSTRUCTEURS ============
     
     public Categorie() {
@@ -78,6 +100,38 @@ public class Categorie {
         this.produits = produits;
     }
     
+    public int getNombreProduits() {
+        return nombreProduits;
+    }
+    
+    public void setNombreProduits(int nombreProduits) {
+        this.nombreProduits = nombreProduits;
+    }
+    
+    public int getNombreEnStock() {
+        return nombreEnStock;
+    }
+    
+    public void setNombreEnStock(int nombreEnStock) {
+        this.nombreEnStock = nombreEnStock;
+    }
+    
+    public Long getChangeSeq() {
+        return changeSeq;
+    }
+    
+    public void setChangeSeq(Long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+    
+    public boolean isSupprimee() {
+        return supprimee;
+    }
+    
+    public void setSupprimee(boolean supprimee) {
+        this.supprimee = supprimee;
+    }
+    
     // ============ MÉTHODES UTILITAIRES ============
     
     public void addProduit(Produit produit) {
@@ -26,6 +26,20 @@ public class Panier {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // Totaux maintenus en base dans la transaction de chaque écriture des lignes (PanierRepository.recalculerTotaux,
+    // incrément dans l'ajout en une requête) et à chaque changement de prix ; jamais écrits par JPA
+    @Column(name = "subtotal", insertable = false, updatable = false,
+            columnDefinition = "double precision not null default 0")
+    private double subtotal;
+    
+    @Column(name = "line_count", insertable = false, updatable = false,
+            columnDefinition = "integer not null default 0")
+    private int lineCount;
+    
+    @Column(name = "unit_count", insertable = false, updatable = false,
+            columnDefinition = "integer not null default 0")
+    private int unitCount;
+    
     // Constructeurs
     public Panier() {
         this.createdAt = LocalDateTime.now();
@@ -53,6 +67,17 @@ public class Panier {
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
     
+    public double getSubtotal() { return subtotal; }
+    public int getLineCount() { return lineCount; }
+    public int getUnitCount() { return unitCount; }
+    
+    // Panier non persisté (invité) : totaux calculés par l'appelant
+    public void setTotaux(double subtotal, int lineCount, int unitCount) {
+        this.subtotal = subtotal;
+        this.lineCount = lineCount;
+        this.unitCount = unitCount;
+    }
+    
     // Méthodes utilitaires
     public void addItem(PanierItem item) {
         items.add(item);
@@ -67,14 +92,10 @@ public class Panier {
     }
     
     public Double getTotal() {
-        return items.stream()
-            .mapToDouble(item -> item.getProduit().getPrix() * item.getQuantite())
-            .sum();
+        return subtotal;
     }
     
     public Integer getTotalItems() {
-        return items.stream()
-            .mapToInt(PanierItem::getQuantite)
-            .sum();
+        return unitCount;
     }
 }
\ No newline at end of file
@@ -7,7 +7,10 @@ import java.time.LocalDateTime;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 @Entity
-@Table(name = "panier_items")
+@Table(name = "panier_items", indexes = {
+    // Une seule ligne par produit et par panier (cible de l'INSERT ... ON CONFLICT de l'ajout au panier)
+    @Index(name = "uk_panier_items_panier_produit", columnList = "panier_id, produit_id", unique = true)
+})
 public class PanierItem {
     
     @Id
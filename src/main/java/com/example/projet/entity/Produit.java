@@ -4,7 +4,13 @@ import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 @Entity
-@Table(name = "produits")
+@Table(name = "produits", indexes = {
+    @Index(name = "idx_produits_categorie", columnList = "categorie_id, id"),
+    @Index(name = "idx_produits_prix", columnList = "prix, id"),
+    @Index(name = "idx_produits_nom", columnList = "nom, id"),
+    @Index(name = "idx_produits_quantite", columnList = "quantite, id"),
+    @Index(name = "idx_produits_change_seq", columnList = "change_seq")
+})
 public class Produit {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -28,6 +34,10 @@ public class Produit {
     @JsonIgnoreProperties({"produits", "hibernateLazyInitializer", "handler"})
     private Categorie categorie;
     
+    // Numéro de la dernière modification (séquence catalog_change_seq), pour la synchronisation incrémentale
+    @Column(name = "change_seq")
+    private Long changeSeq;
+    
     // ============ CONSTRUCTEURS ============
     
     public Produit() {
@@ -118,6 +128,14 @@ public class Produit {
         this.categorie = categorie;
     }
     
+    public Long getChangeSeq() {
+        return changeSeq;
+    }
+    
+    public void setChangeSeq(Long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+    
     // ============ MÉTHODES UTILES ============
     
     public String getFullImageUrl() {
@@ -0,0 +1,20 @@
+package com.example.projet.event;
+
+// Publié après l'enregistrement ou la suppression d'une catégorie
+public class CategorieChangeEvent {
+    
+    private final Long categorieId;
+    private final String nom;
+    private final boolean suppression;
+    
+    public CategorieChangeEvent(Long categorieId, String nom, boolean suppression) {
+        this.categorieId = categorieId;
+        this.nom = nom;
+        this.suppression = suppression;
+    }
+    
+    // Getters
+    public Long getCategorieId() { return categorieId; }
+    public String getNom() { return nom; }
+    public boolean isSuppression() { return suppression; }
+}
@@ -0,0 +1,124 @@
+package com.example.projet.event;
+
+import com.example.projet.entity.Produit;
+import com.example.projet.repository.ProduitRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rejoue tout le catalogue sous forme d'événements au démarrage pour alimenter les index mémoire.
+ * Lancé comme composant du cycle de vie, avant le serveur web : aucune requête ne voit un index
+ * incomplet (stock inconnu, produit introuvable).
+ * Une écriture validée pendant le chargement peut devancer la page qui contient son produit : le
+ * numéro de modification de chaque événement en direct est retenu, et l'événement rejoué qui n'est
+ * pas plus récent est écarté au lieu d'écraser l'état courant dans les index.
+ */
+@Component
+public class ChargementCatalogue implements SmartLifecycle {
+    
+    private static final int TAILLE_LOT = 1000;
+    
+    @Autowired
+    private ProduitRepository produitRepository;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    // Sérialise la publication d'un produit rejoué et l'enregistrement d'un événement en direct
+    private final Object porte = new Object();
+    // produitId -> plus grand numéro de modification reçu en direct pendant le chargement ; sous porte
+    private final Map<Long, Long> enDirect = new HashMap<>();
+    private volatile boolean enCours;
+    private volatile boolean demarre;
+    
+    @Override
+    public void start() {
+        chargerCatalogue();
+        demarre = true;
+    }
+    
+    @Override
+    public void stop() {
+        demarre = false;
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return demarre;
+    }
+    
+    // Phase basse : démarré avant le serveur web (phase Integer.MAX_VALUE - 2048)
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+    
+    public void chargerCatalogue() {
+        long debut = System.currentTimeMillis();
+        long dernierId = 0L;
+        int total = 0;
+        int ecartes = 0;
+        
+        enCours = true;
+        try {
+            List<Produit> lot;
+            do {
+                lot = produitRepository.findPageApresId(dernierId, Limit.of(TAILLE_LOT));
+                for (Produit produit : lot) {
+                    if (!publier(produit)) {
+                        ecartes++;
+                    }
+                    dernierId = produit.getId();
+                }
+                total += lot.size();
+            } while (lot.size() == TAILLE_LOT);
+        } finally {
+            synchronized (porte) {
+                enCours = false;
+                enDirect.clear();
+            }
+        }
+        
+        System.out.println("✅ Catalogue chargé en mémoire: " + total + " produits en "
+                + (System.currentTimeMillis() - debut) + " ms"
+                + (ecartes > 0 ? " (" + ecartes + " déjà à jour en direct)" : ""));
+    }
+    
+    // Renvoie false si un événement en direct au moins aussi récent a déjà été appliqué
+    private boolean publier(Produit produit) {
+        synchronized (porte) {
+            Long direct = enDirect.get(produit.getId());
+            if (direct != null && (produit.getChangeSeq() == null || direct >= produit.getChangeSeq())) {
+                return false;
+            }
+            eventPublisher.publishEvent(ProduitChangeEvent.chargementInitial(produit));
+            return true;
+        }
+    }
+    
+    // Avant les index : ils n'appliquent l'événement en direct qu'une fois son numéro retenu ici
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProduitChange(ProduitChangeEvent event) {
+        if (!enCours || event.isChargementInitial()) {
+            return;
+        }
+        // Sans numéro, l'événement est considéré comme le plus récent
+        long numero = event.getChangeSeq() == null ? Long.MAX_VALUE : event.getChangeSeq();
+        synchronized (porte) {
+            if (enCours) {
+                enDirect.merge(event.getProduitId(), numero, Math::max);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.projet.event;
+
+import com.example.projet.entity.Produit;
+
+// Instantané d'un produit publié après chaque écriture (ou au chargement initial du catalogue)
+public class ProduitChangeEvent {
+    
+    public enum Type { UPSERT, DELETE }
+    
+    private final Type type;
+    private final Long produitId;
+    private final String nom;
+    private final String description;
+    private final Double prix;
+    private final Integer quantite;
+    private final String imageUrl;
+    private final Long categorieId;
+    private final String categorieNom;
+    private final Long changeSeq;
+    private final boolean chargementInitial;
+    
+    private ProduitChangeEvent(Type type, Long produitId, Produit produit, String categorieNom,
+                               Long changeSeq, boolean chargementInitial) {
+        this.type = type;
+        this.produitId = produitId;
+        this.nom = produit != null ? produit.getNom() : null;
+        this.description = produit != null ? produit.getDescription() : null;
+        this.prix = produit != null ? produit.getPrix() : null;
+        this.quantite = produit != null ? produit.getQuantite() : null;
+        this.imageUrl = produit != null ? produit.getImageUrl() : null;
+        this.categorieId = produit != null && produit.getCategorie() != null ? produit.getCategorie().getId() : null;
+        this.categorieNom = categorieNom;
+        this.changeSeq = changeSeq;
+        this.chargementInitial = chargementInitial;
+    }
+    
+    public static ProduitChangeEvent upsert(Produit produit, String categorieNom) {
+        return new ProduitChangeEvent(Type.UPSERT, produit.getId(), produit, categorieNom, produit.getChangeSeq(), false);
+    }
+    
+    public static ProduitChangeEvent chargementInitial(Produit produit) {
+        String categorieNom = produit.getCategorie() != null ? produit.getCategorie().getNom() : null;
+        return new ProduitChangeEvent(Type.UPSERT, produit.getId(), produit, categorieNom, produit.getChangeSeq(), true);
+    }
+    
+    // changeSeq : numéro du tombstone de la suppression
+    public static ProduitChangeEvent suppression(Long produitId, Long changeSeq) {
+        return new ProduitChangeEvent(Type.DELETE, produitId, null, null, changeSeq, false);
+    }
+    
+    public boolean isSuppression() {
+        return type == Type.DELETE;
+    }
+    
+    // Getters
+    public Type getType() { return type; }
+    public Long getProduitId() { return produitId; }
+    public String getNom() { return nom; }
+    public String getDescription() { return description; }
+    public Double getPrix() { return prix; }
+    public Integer getQuantite() { return quantite; }
+    public String getImageUrl() { return imageUrl; }
+    public Long getCategorieId() { return categorieId; }
+    public String getCategorieNom() { return categorieNom; }
+    public Long getChangeSeq() { return changeSeq; }
+    public boolean isChargementInitial() { return chargementInitial; }
+}
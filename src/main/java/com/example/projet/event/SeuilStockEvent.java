@@ -0,0 +1,31 @@
+package com.example.projet.event;
+
+// Publié quand le stock d'un produit passe sous un seuil d'alerte (ou repasse au-dessus)
+public class SeuilStockEvent {
+    
+    private final Long produitId;
+    private final String nom;
+    private final int seuil;
+    private final int ancienneQuantite;
+    private final int nouvelleQuantite;
+    
+    public SeuilStockEvent(Long produitId, String nom, int seuil, int ancienneQuantite, int nouvelleQuantite) {
+        this.produitId = produitId;
+        this.nom = nom;
+        this.seuil = seuil;
+        this.ancienneQuantite = ancienneQuantite;
+        this.nouvelleQuantite = nouvelleQuantite;
+    }
+    
+    // Vrai si le produit vient de passer sous le seuil, faux s'il vient d'être réapprovisionné
+    public boolean isSousSeuil() {
+        return nouvelleQuantite <= seuil;
+    }
+    
+    // Getters
+    public Long getProduitId() { return produitId; }
+    public String getNom() { return nom; }
+    public int getSeuil() { return seuil; }
+    public int getAncienneQuantite() { return ancienneQuantite; }
+    public int getNouvelleQuantite() { return nouvelleQuantite; }
+}
@@ -0,0 +1,18 @@
+package com.example.projet.panier;
+
+import java.util.Map;
+
+// Copie du panier gardé en mémoire par le moteur : id du panier et lignes (produitId -> quantité, ordre d'ajout)
+public final class ContenuPanier {
+    
+    private final Long panierId;
+    private final Map<Long, Integer> lignes;
+    
+    ContenuPanier(Long panierId, Map<Long, Integer> lignes) {
+        this.panierId = panierId;
+        this.lignes = lignes;
+    }
+    
+    public Long getPanierId() { return panierId; }
+    public Map<Long, Integer> getLignes() { return lignes; }
+}
@@ -0,0 +1,317 @@
+package com.example.projet.panier;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Journal d'écriture anticipée du moteur de panier write-behind, en segments texte numérotés
+ * (panier-<n>.wal). Chaque enregistrement porte l'état absolu d'une ligne ("L user produit quantité ;"),
+ * un vidage ("V user ;") ou l'oubli d'un panier rendu au moteur direct ("O user ;") : rejouer un segment
+ * déjà appliqué est sans effet. Le ";" final écarte une ligne tronquée par un arrêt brutal.
+ * <p>
+ * Écriture groupée : ajouter() place les enregistrements dans un tampon et renvoie un ticket ; un thread
+ * écrivain vide le tampon dans le segment courant avec un seul force() par lot, et attendre(ticket)
+ * rend la main une fois le lot sur disque.
+ */
+final class JournalPanier implements Closeable {
+    
+    private static final String PREFIXE = "panier-";
+    private static final String SUFFIXE = ".wal";
+    
+    private final Path repertoire;
+    private final boolean fsync;
+    // Accès au canal : vidage du tampon, rotation, fermeture
+    private final ReentrantLock verrouCanal = new ReentrantLock();
+    private final Thread ecrivain;
+    private FileChannel canal;
+    private volatile long segment;
+    
+    // Champs protégés par le moniteur du journal
+    private StringBuilder tampon = new StringBuilder();
+    private long dernierTicket;
+    private long ticketEcrit;
+    private IOException erreur;
+    private boolean ferme;
+    
+    interface Lecteur {
+        // produitId null : vidage du panier ; quantité <= 0 : ligne retirée
+        void appliquer(long userId, Long produitId, int quantite);
+        
+        // Panier rendu au moteur direct : les enregistrements précédents de l'utilisateur ne valent plus
+        void oublier(long userId);
+    }
+    
+    JournalPanier(Path repertoire, boolean fsync) throws IOException {
+        this.repertoire = repertoire;
+        this.fsync = fsync;
+        Files.createDirectories(repertoire);
+        long dernier = 0;
+        for (long numero : numeros()) {
+            dernier = Math.max(dernier, numero);
+        }
+        ouvrir(dernier + 1);
+        this.ecrivain = new Thread(this::boucleEcriture, "journal-panier");
+        this.ecrivain.setDaemon(true);
+        this.ecrivain.start();
+    }
+    
+    // ============ ENREGISTREMENTS ============
+    
+    static String ligne(long userId, long produitId, int quantite) {
+        return "L " + userId + " " + produitId + " " + quantite + " ;\n";
+    }
+    
+    static String vidage(long userId) {
+        return "V " + userId + " ;\n";
+    }
+    
+    static String oubli(long userId) {
+        return "O " + userId + " ;\n";
+    }
+    
+    // ============ ÉCRITURE GROUPÉE ============
+    
+    // Ne touche pas au disque : appelable sous le verrou de l'utilisateur, l'ordre du tampon est l'ordre du journal
+    synchronized long ajouter(CharSequence enregistrements) {
+        if (erreur != null) {
+            throw new UncheckedIOException("Journal du panier indisponible", erreur);
+        }
+        if (ferme) {
+            throw new IllegalStateException("Journal du panier fermé");
+        }
+        tampon.append(enregistrements);
+        dernierTicket++;
+        notifyAll();
+        return dernierTicket;
+    }
+    
+    // Attend l'écriture (et le force() si fsync) du lot contenant le ticket ; à appeler hors du verrou de l'utilisateur
+    synchronized void attendre(long ticket) {
+        boolean interrompu = false;
+        while (ticketEcrit < ticket) {
+            if (erreur != null) {
+                throw new UncheckedIOException("Journal du panier indisponible", erreur);
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrompu = true;
+            }
+        }
+        if (interrompu) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void boucleEcriture() {
+        while (true) {
+            synchronized (this) {
+                while ((tampon.length() == 0 || erreur != null) && !ferme) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // seul close() arrête l'écrivain
+                    }
+                }
+                if (ferme && (tampon.length() == 0 || erreur != null)) {
+                    return;
+                }
+            }
+            vider();
+        }
+    }
+    
+    // Écrit tout le tampon dans le segment courant : un seul force() pour les enregistrements accumulés
+    private void vider() {
+        verrouCanal.lock();
+        try {
+            String lot;
+            long ticket;
+            synchronized (this) {
+                if (tampon.length() == 0 || erreur != null) {
+                    return;
+                }
+                lot = tampon.toString();
+                ticket = dernierTicket;
+                tampon = new StringBuilder();
+            }
+            try {
+                ByteBuffer octets = ByteBuffer.wrap(lot.getBytes(StandardCharsets.UTF_8));
+                while (octets.hasRemaining()) {
+                    canal.write(octets);
+                }
+                if (fsync) {
+                    canal.force(false);
+                }
+                synchronized (this) {
+                    ticketEcrit = ticket;
+                    notifyAll();
+                }
+            } catch (IOException e) {
+                // Un lot perdu rendrait les suivants incohérents : le journal refuse désormais toute écriture
+                synchronized (this) {
+                    erreur = e;
+                    notifyAll();
+                }
+                System.err.println("❌ Journal du panier indisponible: " + e.getMessage());
+            }
+        } finally {
+            verrouCanal.unlock();
+        }
+    }
+    
+    // Vide le tampon dans le segment courant, le ferme et en ouvre un nouveau ; renvoie le numéro du segment fermé
+    long rotation() {
+        verrouCanal.lock();
+        try {
+            vider();
+            synchronized (this) {
+                if (erreur != null) {
+                    throw new UncheckedIOException("Journal du panier indisponible", erreur);
+                }
+            }
+            canal.close();
+            ouvrir(segment + 1);
+            return segment - 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Rotation du journal du panier impossible", e);
+        } finally {
+            verrouCanal.unlock();
+        }
+    }
+    
+    private void ouvrir(long numero) throws IOException {
+        canal = FileChannel.open(fichier(numero), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        segment = numero;
+    }
+    
+    // Segments entièrement écrits en base
+    void supprimerJusqua(long numero) {
+        for (long existant : numeros()) {
+            if (existant <= numero) {
+                try {
+                    Files.deleteIfExists(fichier(existant));
+                } catch (IOException e) {
+                    System.err.println("⚠️ Segment de journal non supprimé: " + fichier(existant));
+                }
+            }
+        }
+    }
+    
+    // ============ RELECTURE ============
+    
+    // Rejoue, dans l'ordre, les segments antérieurs au segment courant ; renvoie le nombre d'enregistrements
+    int rejouer(Lecteur lecteur) throws IOException {
+        int enregistrements = 0;
+        for (long numero : numeros()) {
+            if (numero >= segment) {
+                continue;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(fichier(numero), StandardCharsets.UTF_8)) {
+                String ligne;
+                while ((ligne = reader.readLine()) != null) {
+                    if (appliquer(ligne, lecteur)) {
+                        enregistrements++;
+                    }
+                }
+            }
+        }
+        return enregistrements;
+    }
+    
+    private static boolean appliquer(String ligne, Lecteur lecteur) {
+        String[] champs = ligne.split(" ");
+        try {
+            if (champs.length == 5 && champs[0].equals("L") && champs[4].equals(";")) {
+                lecteur.appliquer(Long.parseLong(champs[1]), Long.parseLong(champs[2]), Integer.parseInt(champs[3]));
+                return true;
+            }
+            if (champs.length == 3 && champs[0].equals("V") && champs[2].equals(";")) {
+                lecteur.appliquer(Long.parseLong(champs[1]), null, 0);
+                return true;
+            }
+            if (champs.length == 3 && champs[0].equals("O") && champs[2].equals(";")) {
+                lecteur.oublier(Long.parseLong(champs[1]));
+                return true;
+            }
+        } catch (NumberFormatException e) {
+            // enregistrement corrompu : ignoré
+        }
+        return false;
+    }
+    
+    long getSegment() {
+        return segment;
+    }
+    
+    // Segments non vides laissés par le moteur write-behind (le segment courant vide est supprimé à la fermeture)
+    static boolean contientDesEnregistrements(Path repertoire) throws IOException {
+        if (!Files.isDirectory(repertoire)) {
+            return false;
+        }
+        try (Stream<Path> fichiers = Files.list(repertoire)) {
+            return fichiers.anyMatch(f -> f.getFileName().toString().startsWith(PREFIXE)
+                    && f.getFileName().toString().endsWith(SUFFIXE) && f.toFile().length() > 0);
+        }
+    }
+    
+    private List<Long> numeros() {
+        List<Long> numeros = new ArrayList<>();
+        try (Stream<Path> fichiers = Files.list(repertoire)) {
+            fichiers.map(f -> f.getFileName().toString())
+                    .filter(nom -> nom.startsWith(PREFIXE) && nom.endsWith(SUFFIXE))
+                    .forEach(nom -> {
+                        try {
+                            numeros.add(Long.parseLong(nom.substring(PREFIXE.length(), nom.length() - SUFFIXE.length())));
+                        } catch (NumberFormatException e) {
+                            // fichier étranger au journal
+                        }
+                    });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        numeros.sort(null);
+        return numeros;
+    }
+    
+    private Path fichier(long numero) {
+        return repertoire.resolve(PREFIXE + numero + SUFFIXE);
+    }
+    
+    // Termine les écritures en attente ; un segment courant resté vide est supprimé
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            ferme = true;
+            notifyAll();
+        }
+        try {
+            ecrivain.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        verrouCanal.lock();
+        try {
+            vider();
+            canal.close();
+            if (Files.size(fichier(segment)) == 0) {
+                Files.deleteIfExists(fichier(segment));
+            }
+        } finally {
+            verrouCanal.unlock();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.projet.panier;
+
+import com.example.projet.dto.OperationPanier;
+import com.example.projet.dto.ResultatOperationPanier;
+
+import java.util.List;
+
+/**
+ * Écritures sur le panier d'un utilisateur. Deux implémentations, choisies par app.panier.engine :
+ * "direct" (une transaction par modification, comportement historique) et "write-behind"
+ * (état en mémoire, journal sur disque et écriture groupée en base).
+ * Les erreurs métier (produit inconnu, stock insuffisant...) sont levées en RuntimeException.
+ */
+public interface MoteurPanier {
+    
+    // Ajoute la quantité à la ligne du produit ; renvoie la nouvelle quantité de la ligne
+    int ajouter(Long userId, Long produitId, int quantite);
+    
+    // Fixe la quantité d'une ligne existante (<= 0 retire la ligne)
+    void modifier(Long userId, Long produitId, int quantite);
+    
+    void retirer(Long userId, Long produitId);
+    
+    void vider(Long userId);
+    
+    // Applique un lot d'opérations sur un seul chargement du panier ; un résultat par opération, dans l'ordre
+    List<ResultatOperationPanier> appliquer(Long userId, List<OperationPanier> operations);
+    
+    // Écrit en base les modifications en attente de l'utilisateur (avant lecture du panier ou commande)
+    void synchroniser(Long userId);
+    
+    // Panier tel que le moteur le garde en mémoire, sans écriture en base ; null si la base fait foi (moteur direct)
+    ContenuPanier contenu(Long userId);
+    
+    // Écrit puis oublie l'état gardé pour ce panier : à appeler avant toute écriture SQL directe
+    void liberer(Long panierId);
+}
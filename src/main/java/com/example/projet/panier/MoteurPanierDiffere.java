@@ -0,0 +1,443 @@
+package com.example.projet.panier;
+
+import com.example.projet.dto.OperationPanier;
+import com.example.projet.dto.ResultatOperationPanier;
+import com.example.projet.repository.PanierEcritureRepository;
+import com.example.projet.repository.PanierRepository;
+import com.example.projet.service.InventaireStock;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moteur de panier write-behind : les paniers actifs vivent en mémoire, protégés par des verrous
+ * répartis par utilisateur. Une modification est contrôlée (stock en mémoire via InventaireStock),
+ * ajoutée au journal sous le verrou de l'utilisateur, puis acquittée une fois son lot du journal sur disque
+ * (attente hors du verrou, un force() pour toutes les modifications du lot) ; les paniers modifiés sont écrits en base par lots toutes
+ * les app.panier.write-behind.flush-ms, ou tout de suite avant une lecture complète du panier (affichage,
+ * commande) ; les réponses aux modifications et les totaux sont lus en mémoire (contenu()).
+ * Au démarrage, le journal non encore écrit en base est rejoué.
+ */
+@Component
+@ConditionalOnProperty(name = "app.panier.engine", havingValue = "write-behind")
+public class MoteurPanierDiffere implements MoteurPanier {
+    
+    private static final int NOMBRE_VERROUS = 64;
+    
+    @Autowired
+    private PanierEcritureRepository panierEcritureRepository;
+    
+    @Autowired
+    private PanierRepository panierRepository;
+    
+    @Autowired
+    private InventaireStock inventaireStock;
+    
+    private final TransactionTemplate transactionTemplate;
+    private final JournalPanier journal;
+    private final long inactiviteMs;
+    private final Object[] verrous = new Object[NOMBRE_VERROUS];
+    // Une seule écriture en base à la fois : un segment n'est supprimé qu'une fois tout son contenu écrit
+    private final ReentrantLock verrouEcriture = new ReentrantLock();
+    private final Map<Long, EtatPanier> paniers = new ConcurrentHashMap<>();
+    private final Map<Long, Long> userParPanier = new ConcurrentHashMap<>();
+    
+    public MoteurPanierDiffere(PlatformTransactionManager transactionManager,
+                               @Value("${app.panier.write-behind.wal-dir:data/panier-wal}") String repertoireJournal,
+                               @Value("${app.panier.write-behind.fsync:true}") boolean fsync,
+                               @Value("${app.panier.write-behind.idle-ms:600000}") long inactiviteMs) throws IOException {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.journal = new JournalPanier(Paths.get(repertoireJournal), fsync);
+        this.inactiviteMs = inactiviteMs;
+        for (int i = 0; i < verrous.length; i++) {
+            verrous[i] = new Object();
+        }
+    }
+    
+    // Modifications acquittées avant un arrêt brutal : rejouées puis écrites en base
+    @PostConstruct
+    public void rejouerJournal() throws IOException {
+        long dernierSegment = journal.getSegment() - 1;
+        int enregistrements = journal.rejouer(new JournalPanier.Lecteur() {
+            @Override
+            public void appliquer(long userId, Long produitId, int quantite) {
+                synchronized (verrou(userId)) {
+                    EtatPanier etat = etat(userId);
+                    if (produitId == null) {
+                        etat.lignes.clear();
+                    } else if (quantite <= 0) {
+                        etat.lignes.remove(produitId);
+                    } else {
+                        etat.lignes.put(produitId, quantite);
+                    }
+                    etat.modifie = true;
+                }
+            }
+            
+            // Le panier a été rendu au moteur direct : la base fait foi, l'état rejoué jusque-là est abandonné
+            @Override
+            public void oublier(long userId) {
+                synchronized (verrou(userId)) {
+                    EtatPanier etat = paniers.remove(userId);
+                    if (etat != null) {
+                        userParPanier.remove(etat.panierId);
+                    }
+                }
+            }
+        });
+        if (enregistrements > 0) {
+            System.out.println("🔁 Journal du panier rejoué (" + enregistrements + " modifications)");
+        }
+        verrouEcriture.lock();
+        try {
+            if (ecrire(collecter(null))) {
+                journal.supprimerJusqua(dernierSegment);
+            }
+        } finally {
+            verrouEcriture.unlock();
+        }
+    }
+    
+    // ============ MODIFICATIONS ============
+    
+    @Override
+    public int ajouter(Long userId, Long produitId, int quantite) {
+        ReglesPanier.verifierQuantite(quantite);
+        verifierProduit(produitId);
+        int nouvelle;
+        long ticket;
+        synchronized (verrou(userId)) {
+            EtatPanier etat = etat(userId);
+            nouvelle = etat.lignes.getOrDefault(produitId, 0) + quantite;
+            verifierStock(produitId, nouvelle);
+            ticket = journal.ajouter(JournalPanier.ligne(userId, produitId, nouvelle));
+            etat.lignes.put(produitId, nouvelle);
+            etat.toucher();
+        }
+        journal.attendre(ticket);
+        return nouvelle;
+    }
+    
+    @Override
+    public void modifier(Long userId, Long produitId, int quantite) {
+        verifierProduit(produitId);
+        long ticket;
+        synchronized (verrou(userId)) {
+            EtatPanier etat = etat(userId);
+            if (!etat.lignes.containsKey(produitId)) {
+                throw new RuntimeException("Produit non trouvé dans le panier");
+            }
+            if (quantite > 0) {
+                verifierStock(produitId, quantite);
+            }
+            ticket = journal.ajouter(JournalPanier.ligne(userId, produitId, Math.max(quantite, 0)));
+            if (quantite > 0) {
+                etat.lignes.put(produitId, quantite);
+            } else {
+                etat.lignes.remove(produitId);
+            }
+            etat.toucher();
+        }
+        journal.attendre(ticket);
+    }
+    
+    @Override
+    public void retirer(Long userId, Long produitId) {
+        verifierProduit(produitId);
+        long ticket;
+        synchronized (verrou(userId)) {
+            EtatPanier etat = etat(userId);
+            if (!etat.lignes.containsKey(produitId)) {
+                throw new RuntimeException("Produit non trouvé dans le panier");
+            }
+            ticket = journal.ajouter(JournalPanier.ligne(userId, produitId, 0));
+            etat.lignes.remove(produitId);
+            etat.toucher();
+        }
+        journal.attendre(ticket);
+    }
+    
+    // Dans une transaction (commande) : vidé seulement après le commit, une commande annulée laisse le panier intact
+    @Override
+    public void vider(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    viderMaintenant(userId);
+                }
+            });
+            return;
+        }
+        viderMaintenant(userId);
+    }
+    
+    private void viderMaintenant(Long userId) {
+        long ticket;
+        synchronized (verrou(userId)) {
+            EtatPanier etat = etat(userId);
+            ticket = journal.ajouter(JournalPanier.vidage(userId));
+            etat.lignes.clear();
+            etat.toucher();
+        }
+        journal.attendre(ticket);
+    }
+    
+    // Tout le lot sous le verrou de l'utilisateur ; les opérations acceptées partent au journal en un seul ajout (un force())
+    @Override
+    public List<ResultatOperationPanier> appliquer(Long userId, List<OperationPanier> operations) {
+        List<ResultatOperationPanier> resultats = new ArrayList<>(operations.size());
+        StringBuilder enregistrements = new StringBuilder();
+        long ticket = 0;
+        synchronized (verrou(userId)) {
+            EtatPanier etat = etat(userId);
+            // Copie de travail : l'état n'est modifié qu'une fois le lot accepté par le journal
+            Map<Long, Integer> lignes = new LinkedHashMap<>(etat.lignes);
+            for (OperationPanier operation : operations) {
+                ResultatOperationPanier refus = ReglesPanier.verifierOperation(operation);
+                if (refus != null) {
+                    resultats.add(refus);
+                    continue;
+                }
+                Long produitId = operation.getProduitId();
+                if (!inventaireStock.existe(produitId)) {
+                    resultats.add(ResultatOperationPanier.echec(operation, ResultatOperationPanier.INTROUVABLE, "Produit non trouvé"));
+                    continue;
+                }
+                Integer actuelle = lignes.get(produitId);
+                if (!OperationPanier.AJOUT.equals(operation.getType()) && actuelle == null) {
+                    resultats.add(ResultatOperationPanier.echec(operation, ResultatOperationPanier.INTROUVABLE,
+                            "Produit non trouvé dans le panier"));
+                    continue;
+                }
+                
+                int quantite = OperationPanier.AJOUT.equals(operation.getType())
+                        ? (actuelle != null ? actuelle : 0) + operation.getQuantite()
+                        : OperationPanier.MODIFICATION.equals(operation.getType()) ? operation.getQuantite() : 0;
+                int disponible = quantite > 0 ? inventaireStock.disponible(produitId) : 0;
+                if (quantite > 0 && disponible < quantite) {
+                    resultats.add(ResultatOperationPanier.echec(operation, ResultatOperationPanier.STOCK_INSUFFISANT,
+                            "Stock insuffisant. Disponible: " + disponible));
+                    continue;
+                }
+                enregistrements.append(JournalPanier.ligne(userId, produitId, Math.max(quantite, 0)));
+                if (quantite > 0) {
+                    lignes.put(produitId, quantite);
+                } else {
+                    lignes.remove(produitId);
+                }
+                resultats.add(ResultatOperationPanier.ok(operation, Math.max(quantite, 0)));
+            }
+            if (enregistrements.length() > 0) {
+                ticket = journal.ajouter(enregistrements);
+                etat.lignes.clear();
+                etat.lignes.putAll(lignes);
+                etat.toucher();
+            }
+        }
+        if (ticket > 0) {
+            journal.attendre(ticket);
+        }
+        return resultats;
+    }
+    
+    private void verifierProduit(Long produitId) {
+        if (!inventaireStock.existe(produitId)) {
+            throw new RuntimeException("Produit non trouvé");
+        }
+    }
+    
+    private void verifierStock(Long produitId, int quantite) {
+        int disponible = inventaireStock.disponible(produitId);
+        if (disponible < quantite) {
+            throw new RuntimeException("Stock insuffisant. Disponible: " + disponible);
+        }
+    }
+    
+    // Appelé sous le verrou de l'utilisateur : état en mémoire, chargé depuis la base au premier accès
+    private EtatPanier etat(Long userId) {
+        EtatPanier etat = paniers.get(userId);
+        if (etat == null) {
+            Long panierId = panierEcritureRepository.panierIdPourUtilisateur(userId);
+            etat = new EtatPanier(userId, panierId, panierEcritureRepository.lignes(panierId));
+            paniers.put(userId, etat);
+            userParPanier.put(panierId, userId);
+        }
+        return etat;
+    }
+    
+    private Object verrou(Long userId) {
+        return verrous[(int) (userId ^ (userId >>> 32)) & (NOMBRE_VERROUS - 1)];
+    }
+    
+    // ============ ÉCRITURE EN BASE ============
+    
+    @Scheduled(fixedDelayString = "${app.panier.write-behind.flush-ms:500}")
+    public void ecrireModifications() {
+        verrouEcriture.lock();
+        try {
+            long segment = journal.rotation();
+            if (ecrire(collecter(null))) {
+                journal.supprimerJusqua(segment);
+                // Après un échec, des segments conservés portent encore les lignes de paniers "propres" : on les garde
+                oublierInactifs();
+            }
+        } finally {
+            verrouEcriture.unlock();
+        }
+    }
+    
+    @Override
+    public void synchroniser(Long userId) {
+        EtatPanier etat = paniers.get(userId);
+        if (etat == null || !etat.modifie) {
+            return;
+        }
+        verrouEcriture.lock();
+        try {
+            if (!ecrire(collecter(userId))) {
+                throw new IllegalStateException("Panier de l'utilisateur " + userId + " non écrit en base");
+            }
+        } finally {
+            verrouEcriture.unlock();
+        }
+    }
+    
+    // Réponse d'une modification ou totaux affichés : lus en mémoire, l'écriture en base reste groupée
+    @Override
+    public ContenuPanier contenu(Long userId) {
+        synchronized (verrou(userId)) {
+            EtatPanier etat = etat(userId);
+            return new ContenuPanier(etat.panierId, new LinkedHashMap<>(etat.lignes));
+        }
+    }
+    
+    @Override
+    public void liberer(Long panierId) {
+        Long userId = userParPanier.get(panierId);
+        if (userId == null) {
+            return;
+        }
+        while (true) {
+            synchroniser(userId);
+            long ticket;
+            synchronized (verrou(userId)) {
+                EtatPanier etat = paniers.get(userId);
+                if (etat != null && etat.modifie) {
+                    continue;
+                }
+                paniers.remove(userId);
+                userParPanier.remove(panierId);
+                // Les segments non supprimés portent encore les lignes de ce panier : sans cet oubli, un
+                // rejeu après un arrêt brutal écraserait les écritures directes qui vont suivre
+                ticket = journal.ajouter(JournalPanier.oubli(userId));
+            }
+            journal.attendre(ticket);
+            return;
+        }
+    }
+    
+    // Copie des paniers modifiés (tous, ou celui d'un utilisateur) ; ils repassent "propres"
+    private List<EtatPanier> collecter(Long userId) {
+        List<EtatPanier> etats = new ArrayList<>();
+        for (EtatPanier etat : userId != null ? listeDe(paniers.get(userId)) : new ArrayList<>(paniers.values())) {
+            synchronized (verrou(etat.userId)) {
+                if (etat.modifie) {
+                    etat.copie = new LinkedHashMap<>(etat.lignes);
+                    etat.modifie = false;
+                    etats.add(etat);
+                }
+            }
+        }
+        return etats;
+    }
+    
+    private static List<EtatPanier> listeDe(EtatPanier etat) {
+        return etat != null ? List.of(etat) : List.of();
+    }
+    
+    // Un lot, une transaction (lignes et totaux) ; en cas d'échec les paniers redeviennent "modifiés" pour le passage suivant
+    private boolean ecrire(List<EtatPanier> etats) {
+        if (etats.isEmpty()) {
+            return true;
+        }
+        Map<Long, Map<Long, Integer>> contenus = new HashMap<>();
+        for (EtatPanier etat : etats) {
+            contenus.put(etat.panierId, etat.copie);
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                panierEcritureRepository.remplacer(contenus);
+                panierRepository.recalculerTotaux(contenus.keySet());
+            });
+            return true;
+        } catch (RuntimeException e) {
+            for (EtatPanier etat : etats) {
+                synchronized (verrou(etat.userId)) {
+                    etat.modifie = true;
+                }
+            }
+            System.err.println("❌ Écriture des paniers en base échouée (" + etats.size() + " paniers): " + e.getMessage());
+            return false;
+        }
+    }
+    
+    private void oublierInactifs() {
+        long limite = System.currentTimeMillis() - inactiviteMs;
+        for (EtatPanier etat : new ArrayList<>(paniers.values())) {
+            synchronized (verrou(etat.userId)) {
+                if (!etat.modifie && etat.dernierAcces < limite) {
+                    paniers.remove(etat.userId);
+                    userParPanier.remove(etat.panierId);
+                }
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void arreter() throws IOException {
+        ecrireModifications();
+        journal.close();
+    }
+    
+    // Champs modifiés sous le verrou de l'utilisateur
+    private static final class EtatPanier {
+        private final Long userId;
+        private final Long panierId;
+        private final Map<Long, Integer> lignes;
+        private Map<Long, Integer> copie;
+        private boolean modifie;
+        private long dernierAcces = System.currentTimeMillis();
+        
+        private EtatPanier(Long userId, Long panierId, Map<Long, Integer> lignes) {
+            this.userId = userId;
+            this.panierId = panierId;
+            this.lignes = lignes;
+        }
+        
+        private void toucher() {
+            modifie = true;
+            dernierAcces = System.currentTimeMillis();
+        }
+    }
+}
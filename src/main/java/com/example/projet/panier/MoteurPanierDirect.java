@@ -0,0 +1,213 @@
+package com.example.projet.panier;
+
+import com.example.projet.dto.OperationPanier;
+import com.example.projet.dto.ResultatOperationPanier;
+import com.example.projet.entity.Panier;
+import com.example.projet.entity.PanierItem;
+import com.example.projet.entity.Produit;
+import com.example.projet.repository.PanierEcritureRepository;
+import com.example.projet.repository.PanierItemRepository;
+import com.example.projet.repository.PanierItemUpsertRepository;
+import com.example.projet.repository.PanierItemUpsertRepository.ResultatAjout;
+import com.example.projet.repository.PanierRepository;
+import com.example.projet.repository.ProduitRepository;
+import com.example.projet.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Moteur par défaut : chaque modification est écrite en base dans sa propre transaction, avec les totaux du panier
+@Component
+@Transactional
+@ConditionalOnProperty(name = "app.panier.engine", havingValue = "direct", matchIfMissing = true)
+public class MoteurPanierDirect implements MoteurPanier {
+    
+    @Autowired
+    private PanierItemUpsertRepository panierItemUpsertRepository;
+    
+    @Autowired
+    private PanierEcritureRepository panierEcritureRepository;
+    
+    @Autowired
+    private PanierRepository panierRepository;
+    
+    @Autowired
+    private PanierItemRepository panierItemRepository;
+    
+    @Autowired
+    private ProduitRepository produitRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Value("${app.panier.write-behind.wal-dir:data/panier-wal}")
+    private String repertoireJournal;
+    
+    // Un journal write-behind non rejoué contient des modifications acquittées absentes de la base
+    @PostConstruct
+    public void verifierJournal() throws IOException {
+        if (JournalPanier.contientDesEnregistrements(Paths.get(repertoireJournal))) {
+            throw new IllegalStateException("Journal du panier write-behind non rejoué dans " + repertoireJournal
+                    + " : démarrer une fois avec app.panier.engine=write-behind pour l'écrire en base, puis repasser en direct");
+        }
+    }
+    
+    // Une requête : insertion ou incrément atomique, stock vérifié en base, totaux du panier incrémentés
+    @Override
+    public int ajouter(Long userId, Long produitId, int quantite) {
+        ReglesPanier.verifierQuantite(quantite);
+        ResultatAjout resultat = panierItemUpsertRepository.ajouterParUtilisateur(userId, produitId, quantite);
+        if (!resultat.isPanierTrouve()) {
+            // Premier ajout de l'utilisateur : création du panier puis nouvel essai
+            if (!userRepository.existsById(userId)) {
+                throw new RuntimeException("Utilisateur non trouvé");
+            }
+            panierEcritureRepository.panierIdPourUtilisateur(userId);
+            resultat = panierItemUpsertRepository.ajouterParUtilisateur(userId, produitId, quantite);
+        }
+        return ReglesPanier.verifierAjout(resultat);
+    }
+    
+    @Override
+    public void modifier(Long userId, Long produitId, int quantite) {
+        Produit produit = produitRepository.findById(produitId)
+            .orElseThrow(() -> new RuntimeException("Produit non trouvé"));
+        PanierItem item = ligne(userId, produitId);
+        
+        Panier panier = item.getPanier();
+        
+        if (quantite <= 0) {
+            // Supprimer l'item si quantité <= 0
+            panier.removeItem(item);
+            panierItemRepository.delete(item);
+        } else {
+            // Vérifier le stock
+            if (produit.getQuantite() < quantite) {
+                throw new RuntimeException("Stock insuffisant. Disponible: " + produit.getQuantite());
+            }
+            item.setQuantite(quantite);
+            panier.setUpdatedAt(LocalDateTime.now());
+        }
+        panierRepository.recalculerTotaux(List.of(panier.getId()));
+    }
+    
+    @Override
+    public void retirer(Long userId, Long produitId) {
+        if (!produitRepository.existsById(produitId)) {
+            throw new RuntimeException("Produit non trouvé");
+        }
+        PanierItem item = ligne(userId, produitId);
+        Panier panier = item.getPanier();
+        panier.removeItem(item);
+        panierItemRepository.delete(item);
+        panierRepository.recalculerTotaux(List.of(panier.getId()));
+    }
+    
+    @Override
+    public void vider(Long userId) {
+        panierRepository.findByUserId(userId).ifPresent(panier -> {
+            panierItemRepository.deleteByPanier(panier);
+            panier.getItems().clear();
+            panier.setUpdatedAt(LocalDateTime.now());
+            panierRepository.recalculerTotaux(List.of(panier.getId()));
+        });
+    }
+    
+    // Un chargement du panier et une requête pour les produits ; l'écriture part au commit
+    @Override
+    public List<ResultatOperationPanier> appliquer(Long userId, List<OperationPanier> operations) {
+        Panier panier = panierRepository.findByUserId(userId).orElseGet(() -> panierRepository.save(
+                new Panier(userRepository.findById(userId)
+                        .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé")))));
+        Map<Long, PanierItem> lignes = new HashMap<>();
+        for (PanierItem item : panier.getItems()) {
+            lignes.put(item.getProduit().getId(), item);
+        }
+        Set<Long> produitIds = new HashSet<>();
+        for (OperationPanier operation : operations) {
+            if (operation != null && operation.getProduitId() != null) {
+                produitIds.add(operation.getProduitId());
+            }
+        }
+        Map<Long, Produit> produits = new HashMap<>();
+        for (Produit produit : produitRepository.findAllById(produitIds)) {
+            produits.put(produit.getId(), produit);
+        }
+        
+        List<ResultatOperationPanier> resultats = new ArrayList<>(operations.size());
+        for (OperationPanier operation : operations) {
+            ResultatOperationPanier refus = ReglesPanier.verifierOperation(operation);
+            if (refus != null) {
+                resultats.add(refus);
+                continue;
+            }
+            Produit produit = produits.get(operation.getProduitId());
+            if (produit == null) {
+                resultats.add(ResultatOperationPanier.echec(operation, ResultatOperationPanier.INTROUVABLE, "Produit non trouvé"));
+                continue;
+            }
+            PanierItem item = lignes.get(produit.getId());
+            if (!OperationPanier.AJOUT.equals(operation.getType()) && item == null) {
+                resultats.add(ResultatOperationPanier.echec(operation, ResultatOperationPanier.INTROUVABLE,
+                        "Produit non trouvé dans le panier"));
+                continue;
+            }
+            
+            int quantite = OperationPanier.AJOUT.equals(operation.getType())
+                    ? (item != null ? item.getQuantite() : 0) + operation.getQuantite()
+                    : OperationPanier.MODIFICATION.equals(operation.getType()) ? operation.getQuantite() : 0;
+            if (quantite <= 0) {
+                panier.removeItem(item);
+                lignes.remove(produit.getId());
+                resultats.add(ResultatOperationPanier.ok(operation, 0));
+            } else if (produit.getQuantite() < quantite) {
+                resultats.add(ResultatOperationPanier.echec(operation, ResultatOperationPanier.STOCK_INSUFFISANT,
+                        "Stock insuffisant. Disponible: " + produit.getQuantite()));
+            } else {
+                if (item == null) {
+                    item = new PanierItem(panier, produit, quantite);
+                    panier.addItem(item);
+                    lignes.put(produit.getId(), item);
+                } else {
+                    item.setQuantite(quantite);
+                    panier.setUpdatedAt(LocalDateTime.now());
+                }
+                resultats.add(ResultatOperationPanier.ok(operation, quantite));
+            }
+        }
+        panierRepository.recalculerTotaux(List.of(panier.getId()));
+        return resultats;
+    }
+    
+    // Rien en attente : tout est déjà en base
+    @Override
+    public void synchroniser(Long userId) {
+    }
+    
+    @Override
+    public ContenuPanier contenu(Long userId) {
+        return null;
+    }
+    
+    @Override
+    public void liberer(Long panierId) {
+    }
+    
+    private PanierItem ligne(Long userId, Long produitId) {
+        return panierItemRepository.findByPanier_User_IdAndProduit_Id(userId, produitId)
+            .orElseThrow(() -> new RuntimeException("Produit non trouvé dans le panier"));
+    }
+}
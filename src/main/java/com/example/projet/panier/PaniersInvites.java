@@ -0,0 +1,121 @@
+package com.example.projet.panier;
+
+import com.example.projet.service.InventaireStock;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Paniers des visiteurs non connectés, gardés uniquement en mémoire par id de session : borné en
+ * taille et expiré après une période d'inactivité, sans ligne users ni paniers en base. Le contenu
+ * n'est écrit qu'à la connexion, fusionné dans le panier de l'utilisateur.
+ */
+@Component
+public class PaniersInvites {
+    
+    @Autowired
+    private InventaireStock inventaireStock;
+    
+    // sessionId -> produitId -> quantité ; chaque panier est modifié sous son propre verrou
+    private final Cache<String, Map<Long, Integer>> paniers;
+    
+    public PaniersInvites(@Value("${app.panier.invites.max-size:50000}") long tailleMax,
+                          @Value("${app.panier.invites.ttl-minutes:120}") long dureeMinutes) {
+        this.paniers = Caffeine.newBuilder()
+                .maximumSize(tailleMax)
+                .expireAfterAccess(Duration.ofMinutes(dureeMinutes))
+                .build();
+    }
+    
+    // Contenu du panier (copie, dans l'ordre d'ajout) ; vide si la session n'a rien ajouté
+    public Map<Long, Integer> lignes(String sessionId) {
+        Map<Long, Integer> lignes = paniers.getIfPresent(sessionId);
+        if (lignes == null) {
+            return Collections.emptyMap();
+        }
+        synchronized (lignes) {
+            return new LinkedHashMap<>(lignes);
+        }
+    }
+    
+    public int ajouter(String sessionId, Long produitId, Integer quantite) {
+        ReglesPanier.verifierQuantite(quantite);
+        verifierProduit(produitId);
+        Map<Long, Integer> lignes = paniers.get(sessionId, s -> new LinkedHashMap<>());
+        synchronized (lignes) {
+            int nouvelle = lignes.getOrDefault(produitId, 0) + quantite;
+            verifierStock(produitId, nouvelle);
+            lignes.put(produitId, nouvelle);
+            return nouvelle;
+        }
+    }
+    
+    public void modifier(String sessionId, Long produitId, Integer quantite) {
+        Map<Long, Integer> lignes = paniers.getIfPresent(sessionId);
+        if (lignes == null) {
+            throw new RuntimeException("Produit non trouvé dans le panier");
+        }
+        synchronized (lignes) {
+            if (!lignes.containsKey(produitId)) {
+                throw new RuntimeException("Produit non trouvé dans le panier");
+            }
+            if (quantite == null || quantite <= 0) {
+                lignes.remove(produitId);
+                return;
+            }
+            verifierStock(produitId, quantite);
+            lignes.put(produitId, quantite);
+        }
+    }
+    
+    public void retirer(String sessionId, Long produitId) {
+        Map<Long, Integer> lignes = paniers.getIfPresent(sessionId);
+        if (lignes != null) {
+            synchronized (lignes) {
+                lignes.remove(produitId);
+            }
+        }
+    }
+    
+    public void vider(String sessionId) {
+        paniers.invalidate(sessionId);
+    }
+    
+    // Après la fusion validée en base : retire les lignes fusionnées, sauf celles modifiées entre-temps
+    public void retirerFusionnees(String sessionId, Map<Long, Integer> fusionnees) {
+        Map<Long, Integer> lignes = paniers.getIfPresent(sessionId);
+        if (lignes == null) {
+            return;
+        }
+        synchronized (lignes) {
+            fusionnees.forEach(lignes::remove);
+            if (lignes.isEmpty()) {
+                paniers.asMap().remove(sessionId, lignes);
+            }
+        }
+    }
+    
+    public long getNombrePaniers() {
+        return paniers.estimatedSize();
+    }
+    
+    private void verifierProduit(Long produitId) {
+        if (!inventaireStock.existe(produitId)) {
+            throw new RuntimeException("Produit non trouvé");
+        }
+    }
+    
+    private void verifierStock(Long produitId, int quantite) {
+        int disponible = inventaireStock.disponible(produitId);
+        if (disponible < quantite) {
+            throw new RuntimeException("Stock insuffisant. Disponible: " + disponible);
+        }
+    }
+}
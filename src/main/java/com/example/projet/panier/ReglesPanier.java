@@ -0,0 +1,52 @@
+package com.example.projet.panier;
+
+import com.example.projet.dto.OperationPanier;
+import com.example.projet.dto.ResultatOperationPanier;
+import com.example.projet.repository.PanierItemUpsertRepository.ResultatAjout;
+
+// Contrôles communs aux moteurs de panier et aux services (mêmes messages d'erreur partout)
+public final class ReglesPanier {
+    
+    private ReglesPanier() {
+    }
+    
+    public static void verifierQuantite(Integer quantite) {
+        if (quantite == null || quantite <= 0) {
+            throw new RuntimeException("Quantité invalide: " + quantite);
+        }
+    }
+    
+    // Renvoie la nouvelle quantité de la ligne, ou lève l'erreur correspondant au refus
+    public static int verifierAjout(ResultatAjout resultat) {
+        if (!resultat.isProduitTrouve()) {
+            throw new RuntimeException("Produit non trouvé");
+        }
+        if (!resultat.isAjoute()) {
+            throw new RuntimeException("Stock insuffisant. Disponible: " + resultat.getStock());
+        }
+        return resultat.getQuantite();
+    }
+    
+    // Contrôle de forme d'une opération d'un lot : renvoie le refus, ou null si l'opération est applicable
+    public static ResultatOperationPanier verifierOperation(OperationPanier operation) {
+        if (operation == null || operation.getProduitId() == null) {
+            return ResultatOperationPanier.echec(operation != null ? operation : new OperationPanier(),
+                    ResultatOperationPanier.INVALIDE, "produitId requis");
+        }
+        String type = operation.getType();
+        if (OperationPanier.AJOUT.equals(type)) {
+            if (operation.getQuantite() == null || operation.getQuantite() <= 0) {
+                return ResultatOperationPanier.echec(operation, ResultatOperationPanier.INVALIDE,
+                        "Quantité invalide: " + operation.getQuantite());
+            }
+        } else if (OperationPanier.MODIFICATION.equals(type)) {
+            if (operation.getQuantite() == null) {
+                return ResultatOperationPanier.echec(operation, ResultatOperationPanier.INVALIDE, "Quantité requise");
+            }
+        } else if (!OperationPanier.SUPPRESSION.equals(type)) {
+            return ResultatOperationPanier.echec(operation, ResultatOperationPanier.INVALIDE,
+                    "Type d'opération inconnu: " + type);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.projet.repository;
+
+import com.example.projet.entity.CatalogTombstone;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface CatalogTombstoneRepository extends JpaRepository<CatalogTombstone, Long> {
+    
+    @Query("SELECT t FROM CatalogTombstone t WHERE t.changeSeq > :depuis AND t.changeSeq <= :jusqua ORDER BY t.changeSeq")
+    List<CatalogTombstone> findChangements(@Param("depuis") Long depuis, @Param("jusqua") Long jusqua, Limit limit);
+    
+    @Query(value = "SELECT nextval('catalog_change_seq')", nativeQuery = true)
+    Long nextChangeSeq();
+}
@@ -0,0 +1,39 @@
+package com.example.projet.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Compteurs dénormalisés des catégories (nombre de produits, nombre en stock), modifiés en SQL relatif
+@Repository
+public class CategorieCompteurRepository {
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    // deltas : categorieId -> { delta produits, delta en stock }
+    public void ajuster(Map<Long, int[]> deltas) {
+        List<Object[]> lignes = new ArrayList<>();
+        for (Map.Entry<Long, int[]> entry : deltas.entrySet()) {
+            int[] delta = entry.getValue();
+            if (delta[0] != 0 || delta[1] != 0) {
+                lignes.add(new Object[] { delta[0], delta[1], entry.getKey() });
+            }
+        }
+        if (!lignes.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE categories SET nombre_produits = nombre_produits + ?, " +
+                    "nombre_en_stock = nombre_en_stock + ? WHERE id = ?", lignes);
+        }
+    }
+    
+    // Recalcul complet depuis la table produits (démarrage / réconciliation)
+    public int recalculer() {
+        return jdbcTemplate.update("UPDATE categories c SET " +
+                "nombre_produits = (SELECT COUNT(*) FROM produits p WHERE p.categorie_id = c.id), " +
+                "nombre_en_stock = (SELECT COUNT(*) FROM produits p WHERE p.categorie_id = c.id AND p.quantite > 0)");
+    }
+}
@@ -1,14 +1,31 @@
 package com.example.projet.repository;
 
 import com.example.projet.entity.Categorie;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CategorieRepository extends JpaRepository<Categorie, Long> {
-    List<Categorie> findByNomContaining(String nom);
+    List<Categorie> findByNomContainingAndSupprimeeFalse(String nom);
     Optional<Categorie> findByNom(String nom);
+    List<Categorie> findBySupprimeeFalse(Sort sort);
+    
+    // Marque la catégorie supprimée ; 0 si elle n'existe pas ou l'est déjà
+    @Modifying
+    @Query("UPDATE Categorie c SET c.supprimee = true WHERE c.id = :id AND c.supprimee = false")
+    int marquerSupprimee(@Param("id") Long id);
+    
+    @Query("SELECT c.id FROM Categorie c WHERE c.supprimee = true ORDER BY c.id")
+    List<Long> findIdsSupprimees();
+    
+    @Query("SELECT c FROM Categorie c WHERE c.supprimee = false AND c.changeSeq > :depuis AND c.changeSeq <= :jusqua ORDER BY c.changeSeq")
+    List<Categorie> findChangements(@Param("depuis") Long depuis, @Param("jusqua") Long jusqua, Limit limit);
    
 }
\ No newline at end of file
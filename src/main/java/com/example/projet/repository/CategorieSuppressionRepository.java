@@ -0,0 +1,85 @@
+package com.example.projet.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.util.ArrayList;
+import java.util.List;
+
+// Purge par lots des produits d'une catégorie supprimée et de leurs lignes dépendantes
+@Repository
+public class CategorieSuppressionRepository {
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    // Prochain lot de produits de la catégorie, verrouillés jusqu'à la fin de la transaction
+    public List<ProduitASupprimer> verrouillerLot(Long categorieId, int taille) {
+        List<ProduitASupprimer> produits = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, quantite, image_name FROM produits WHERE categorie_id = ? " +
+                        "ORDER BY id LIMIT ? FOR UPDATE",
+                rs -> {
+                    produits.add(new ProduitASupprimer(rs.getLong("id"),
+                            rs.getObject("quantite", Integer.class), rs.getString("image_name")));
+                },
+                categorieId, taille);
+        return produits;
+    }
+    
+    /**
+     * Supprime les produits avec leurs lignes de panier (totaux des paniers touchés recalculés) et leurs
+     * favoris. Les lignes de commande sont conservées (prix unitaire et sous-total y sont copiés) mais
+     * détachées du produit.
+     */
+    public int supprimerProduits(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Object[] tableau = ids.toArray();
+        List<Long> paniers = jdbcTemplate.query("DELETE FROM panier_items WHERE produit_id = ANY(?) RETURNING panier_id",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", tableau)),
+                (rs, rang) -> rs.getLong(1));
+        if (!paniers.isEmpty()) {
+            // Verrou des paniers puis recalcul dans une requête distincte (instantané postérieur au verrou)
+            Object[] panierIds = paniers.stream().distinct().sorted().toArray();
+            jdbcTemplate.query("SELECT id FROM paniers WHERE id = ANY(?) ORDER BY id FOR UPDATE",
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", panierIds)),
+                    (rs, rang) -> rs.getLong(1));
+            executer(PanierRepository.RECALCUL_TOTAUX + "WHERE pa.id = ANY(?) " + PanierRepository.RECALCUL_TOTAUX_FIN,
+                    panierIds);
+        }
+        executer("DELETE FROM favoris WHERE produit_id = ANY(?)", tableau);
+        executer("UPDATE order_items SET produit_id = NULL WHERE produit_id = ANY(?)", tableau);
+        return executer("DELETE FROM produits WHERE id = ANY(?)", tableau);
+    }
+    
+    private int executer(String sql, Object[] ids) {
+        return jdbcTemplate.update(sql, ps -> {
+            Array tableau = ps.getConnection().createArrayOf("bigint", ids);
+            ps.setArray(1, tableau);
+        });
+    }
+    
+    public static class ProduitASupprimer {
+        private final Long id;
+        private final Integer quantite;
+        private final String imageName;
+        
+        public ProduitASupprimer(Long id, Integer quantite, String imageName) {
+            this.id = id;
+            this.quantite = quantite;
+            this.imageName = imageName;
+        }
+        
+        public boolean isEnStock() {
+            return quantite != null && quantite > 0;
+        }
+        
+        // Getters
+        public Long getId() { return id; }
+        public Integer getQuantite() { return quantite; }
+        public String getImageName() { return imageName; }
+    }
+}
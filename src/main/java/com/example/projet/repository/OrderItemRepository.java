@@ -34,4 +34,8 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
            "GROUP BY oi.produit, MONTH(o.orderDate), YEAR(o.orderDate) " +
            "ORDER BY YEAR(o.orderDate), MONTH(o.orderDate)")
     List<Object[]> findSalesByMonth(@Param("year") int year);
-}
\ No newline at end of file
+    
+    // Quantités vendues par produit (popularité)
+    @Query("SELECT oi.produit.id, SUM(oi.quantite) FROM OrderItem oi GROUP BY oi.produit.id")
+    List<Object[]> sumQuantiteParProduit();
+}
@@ -0,0 +1,74 @@
+package com.example.projet.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Lecture et écriture en bloc de l'état des paniers (moteur de panier write-behind)
+@Repository
+public class PanierEcritureRepository {
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    // Id du panier de l'utilisateur, créé au besoin
+    public Long panierIdPourUtilisateur(Long userId) {
+        jdbcTemplate.update("INSERT INTO paniers (user_id, created_at, updated_at) " +
+                "SELECT ?, LOCALTIMESTAMP, LOCALTIMESTAMP WHERE NOT EXISTS (SELECT 1 FROM paniers WHERE user_id = ?)",
+                userId, userId);
+        return jdbcTemplate.queryForObject("SELECT MIN(id) FROM paniers WHERE user_id = ?", Long.class, userId);
+    }
+    
+    public Long userIdPourPanier(Long panierId) {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT user_id FROM paniers WHERE id = ?", Long.class, panierId);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+    
+    // produitId -> quantité, dans l'ordre d'ajout
+    public Map<Long, Integer> lignes(Long panierId) {
+        Map<Long, Integer> lignes = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT produit_id, quantite FROM panier_items WHERE panier_id = ? ORDER BY id",
+                rs -> {
+                    lignes.put(rs.getLong("produit_id"), rs.getInt("quantite"));
+                },
+                panierId);
+        return lignes;
+    }
+    
+    /**
+     * Remplace le contenu des paniers donnés (panierId -> produitId -> quantité) en trois lots :
+     * suppression des lignes disparues, upsert des quantités absolues, date de modification.
+     * Les produits supprimés entre-temps sont ignorés.
+     */
+    public void remplacer(Map<Long, Map<Long, Integer>> paniers) {
+        if (paniers.isEmpty()) {
+            return;
+        }
+        List<Object[]> suppressions = new ArrayList<>();
+        List<Object[]> lignes = new ArrayList<>();
+        for (Map.Entry<Long, Map<Long, Integer>> panier : paniers.entrySet()) {
+            suppressions.add(new Object[] { panier.getKey(), panier.getValue().keySet().toArray() });
+            for (Map.Entry<Long, Integer> ligne : panier.getValue().entrySet()) {
+                lignes.add(new Object[] { panier.getKey(), ligne.getKey(), ligne.getValue(), ligne.getKey() });
+            }
+        }
+        
+        jdbcTemplate.batchUpdate("DELETE FROM panier_items WHERE panier_id = ? AND NOT (produit_id = ANY(?))",
+                suppressions, suppressions.size(), (ps, suppression) -> {
+                    ps.setLong(1, (Long) suppression[0]);
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", (Object[]) suppression[1]));
+                });
+        if (!lignes.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO panier_items (panier_id, produit_id, quantite, added_at) " +
+                    "SELECT ?, ?, ?, LOCALTIMESTAMP WHERE EXISTS (SELECT 1 FROM produits WHERE id = ?) " +
+                    "ON CONFLICT (panier_id, produit_id) DO UPDATE SET quantite = EXCLUDED.quantite", lignes);
+        }
+        jdbcTemplate.update("UPDATE paniers SET updated_at = LOCALTIMESTAMP WHERE id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", paniers.keySet().toArray())));
+    }
+}
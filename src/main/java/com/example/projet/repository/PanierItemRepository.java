@@ -19,6 +19,9 @@ public interface PanierItemRepository extends JpaRepository<PanierItem, Long> {
     // Trouver un item par panier et produit
     Optional<PanierItem> findByPanierAndProduit(Panier panier, Produit produit);
     
+    // Ligne d'un produit dans le panier d'un utilisateur
+    Optional<PanierItem> findByPanier_User_IdAndProduit_Id(Long userId, Long produitId);
+    
     // Trouver tous les items d'un panier
     List<PanierItem> findByPanier(Panier panier);
     
@@ -0,0 +1,123 @@
+package com.example.projet.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Map;
+
+// Ajout au panier en une requête : INSERT ... ON CONFLICT (panier_id, produit_id) avec contrôle du stock
+// (ajout d'un produit, fusion d'un panier invité)
+@Repository
+public class PanierItemUpsertRepository {
+    
+    // %s : colonne qui désigne le panier (id ou user_id)
+    private static final String AJOUT =
+            "WITH panier AS (SELECT id FROM paniers WHERE %s = ?), " +
+            // FOR SHARE : un changement de prix en cours est attendu, l'incrément utilise le prix validé
+            "produit AS (SELECT id, quantite, prix FROM produits WHERE id = ? FOR SHARE), " +
+            "ligne AS (" +
+            "  INSERT INTO panier_items (panier_id, produit_id, quantite, added_at) " +
+            "  SELECT panier.id, produit.id, ?, LOCALTIMESTAMP FROM panier, produit WHERE produit.quantite >= ? " +
+            "  ON CONFLICT (panier_id, produit_id) DO UPDATE SET quantite = panier_items.quantite + EXCLUDED.quantite " +
+            "  WHERE panier_items.quantite + EXCLUDED.quantite <= " +
+            "        (SELECT p.quantite FROM produits p WHERE p.id = EXCLUDED.produit_id) " +
+            "  RETURNING id, quantite, (xmax = 0) AS insere" +
+            "), " +
+            // Totaux du panier incrémentés dans la même requête (une ligne de plus si insertion)
+            "maj AS (UPDATE paniers SET updated_at = LOCALTIMESTAMP, unit_count = unit_count + ?, " +
+            "        line_count = line_count + (SELECT CASE WHEN insere THEN 1 ELSE 0 END FROM ligne), " +
+            "        subtotal = subtotal + ? * COALESCE((SELECT prix FROM produit), 0) " +
+            "        WHERE id = (SELECT id FROM panier) AND EXISTS (SELECT 1 FROM ligne)) " +
+            "SELECT (SELECT id FROM panier) AS panier_id, (SELECT quantite FROM produit) AS stock, " +
+            "(SELECT id FROM ligne) AS item_id, (SELECT quantite FROM ligne) AS quantite";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    public ResultatAjout ajouterParPanier(Long panierId, Long produitId, int quantite) {
+        return ajouter(String.format(AJOUT, "id"), panierId, produitId, quantite);
+    }
+    
+    public ResultatAjout ajouterParUtilisateur(Long userId, Long produitId, int quantite) {
+        return ajouter(String.format(AJOUT, "user_id"), userId, produitId, quantite);
+    }
+    
+    private ResultatAjout ajouter(String sql, Long cle, Long produitId, int quantite) {
+        return jdbcTemplate.queryForObject(sql, (rs, rang) -> new ResultatAjout(
+                        rs.getObject("panier_id", Long.class), rs.getObject("stock", Integer.class),
+                        rs.getObject("item_id", Long.class), rs.getObject("quantite", Integer.class)),
+                cle, produitId, quantite, quantite, quantite, quantite);
+    }
+    
+    /**
+     * Fusionne un panier invité (produitId -> quantité) dans un panier existant en une requête :
+     * les lignes sont passées en tableaux (unnest), additionnées aux lignes existantes et plafonnées
+     * au stock. Les produits supprimés ou en rupture sont ignorés. Renvoie le nombre de lignes écrites ;
+     * les totaux du panier sont recalculés ensuite par l'appelant (PanierRepository.recalculerTotaux).
+     */
+    public int fusionnerLignes(Long panierId, Map<Long, Integer> lignes) {
+        if (lignes.isEmpty()) {
+            return 0;
+        }
+        Long[] produitIds = lignes.keySet().toArray(new Long[0]);
+        Integer[] quantites = lignes.values().toArray(new Integer[0]);
+        return jdbcTemplate.update(
+                "WITH maj AS (UPDATE paniers SET updated_at = LOCALTIMESTAMP WHERE id = ?) " +
+                "INSERT INTO panier_items (panier_id, produit_id, quantite, added_at) " +
+                "SELECT ?, p.id, LEAST(g.quantite, p.quantite), LOCALTIMESTAMP " +
+                "FROM unnest(?, ?) AS g(produit_id, quantite) JOIN produits p ON p.id = g.produit_id " +
+                "WHERE g.quantite > 0 AND p.quantite > 0 " +
+                "ON CONFLICT (panier_id, produit_id) DO UPDATE SET quantite = LEAST(panier_items.quantite + EXCLUDED.quantite, " +
+                "        (SELECT p.quantite FROM produits p WHERE p.id = EXCLUDED.produit_id))",
+                ps -> {
+                    ps.setLong(1, panierId);
+                    ps.setLong(2, panierId);
+                    ps.setArray(3, ps.getConnection().createArrayOf("bigint", produitIds));
+                    ps.setArray(4, ps.getConnection().createArrayOf("integer", quantites));
+                });
+    }
+    
+    /**
+     * Fusionne les lignes en double d'un même produit dans un même panier (quantités additionnées),
+     * puis pose l'index unique sur lequel s'appuie ON CONFLICT. Sans effet si l'index existe déjà.
+     */
+    public int fusionnerDoublons() {
+        int supprimees = jdbcTemplate.update(
+                "WITH doublons AS (" +
+                "  SELECT panier_id, produit_id, MIN(id) AS garde, SUM(quantite) AS total FROM panier_items " +
+                "  GROUP BY panier_id, produit_id HAVING COUNT(*) > 1" +
+                "), maj AS (" +
+                "  UPDATE panier_items pi SET quantite = d.total FROM doublons d WHERE pi.id = d.garde" +
+                ") " +
+                "DELETE FROM panier_items pi USING doublons d " +
+                "WHERE pi.panier_id = d.panier_id AND pi.produit_id = d.produit_id AND pi.id <> d.garde");
+        jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS uk_panier_items_panier_produit " +
+                "ON panier_items (panier_id, produit_id)");
+        return supprimees;
+    }
+    
+    public static class ResultatAjout {
+        private final Long panierId;
+        private final Integer stock;
+        private final Long itemId;
+        private final Integer quantite;
+        
+        public ResultatAjout(Long panierId, Integer stock, Long itemId, Integer quantite) {
+            this.panierId = panierId;
+            this.stock = stock;
+            this.itemId = itemId;
+            this.quantite = quantite;
+        }
+        
+        public boolean isPanierTrouve() { return panierId != null; }
+        public boolean isProduitTrouve() { return stock != null; }
+        public boolean isAjoute() { return itemId != null; }
+        
+        // Getters
+        public Long getPanierId() { return panierId; }
+        public Integer getStock() { return stock; }
+        public Long getItemId() { return itemId; }
+        public Integer getQuantite() { return quantite; }
+    }
+}
@@ -3,7 +3,13 @@ package com.example.projet.repository;
 import com.example.projet.entity.Panier;
 import com.example.projet.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +17,67 @@ public interface PanierRepository extends JpaRepository<Panier, Long> {
     Optional<Panier> findByUser(User user);
     Optional<Panier> findByUserId(Long userId);
     void deleteByUser(User user);
+    
+    // Recalcul des totaux depuis les lignes : RECALCUL_TOTAUX + filtre des paniers + RECALCUL_TOTAUX_FIN.
+    // Seuls les paniers dont les totaux changent sont écrits
+    String RECALCUL_TOTAUX =
+            "UPDATE paniers p SET subtotal = t.subtotal, line_count = t.line_count, unit_count = t.unit_count " +
+            "FROM (SELECT pa.id, COALESCE(SUM(pi.quantite * pr.prix), 0) AS subtotal, " +
+            "             COUNT(pi.id) AS line_count, COALESCE(SUM(pi.quantite), 0) AS unit_count " +
+            "      FROM paniers pa LEFT JOIN panier_items pi ON pi.panier_id = pa.id " +
+            "      LEFT JOIN produits pr ON pr.id = pi.produit_id ";
+    String RECALCUL_TOTAUX_FIN =
+            "      GROUP BY pa.id) t " +
+            "WHERE p.id = t.id AND (p.subtotal <> t.subtotal OR p.line_count <> t.line_count OR p.unit_count <> t.unit_count)";
+    
+    /**
+     * Après une écriture des lignes par JPA ou SQL, dans la transaction de l'appelant. Les écritures en
+     * attente partent d'abord, puis les paniers sont verrouillés (FOR UPDATE) et le recalcul part dans
+     * une requête distincte : sous READ COMMITTED, son instantané inclut alors l'ajout concurrent qui
+     * tenait le verrou, au lieu de réécrire des totaux calculés avant lui. Le contexte est ensuite vidé
+     * pour que le panier relu porte les nouveaux totaux.
+     */
+    @Transactional
+    default int recalculerTotaux(Collection<Long> panierIds) {
+        if (panierIds.isEmpty()) {
+            return 0;
+        }
+        flush();
+        List<Long> verrouilles = verrouillerPaniers(panierIds);
+        return verrouilles.isEmpty() ? 0 : recalculerTotauxVerrouilles(verrouilles);
+    }
+    
+    // Changement de prix : paniers qui contiennent ces produits, verrouillés de la même façon
+    @Transactional
+    default int recalculerTotauxPourProduits(Collection<Long> produitIds) {
+        if (produitIds.isEmpty()) {
+            return 0;
+        }
+        flush();
+        List<Long> verrouilles = verrouillerPaniersPourProduits(produitIds);
+        return verrouilles.isEmpty() ? 0 : recalculerTotauxVerrouilles(verrouilles);
+    }
+    
+    // Ordre des ids : deux recalculs sur les mêmes paniers prennent les verrous dans le même ordre
+    @Query(value = "SELECT id FROM paniers WHERE id IN (:panierIds) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> verrouillerPaniers(@Param("panierIds") Collection<Long> panierIds);
+    
+    @Query(value = "SELECT id FROM paniers WHERE id IN " +
+            "(SELECT panier_id FROM panier_items WHERE produit_id IN (:produitIds)) ORDER BY id FOR UPDATE",
+            nativeQuery = true)
+    List<Long> verrouillerPaniersPourProduits(@Param("produitIds") Collection<Long> produitIds);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = RECALCUL_TOTAUX + "WHERE pa.id IN (:panierIds) " + RECALCUL_TOTAUX_FIN, nativeQuery = true)
+    int recalculerTotauxVerrouilles(@Param("panierIds") Collection<Long> panierIds);
+    
+    // Tous les paniers (remplissage des colonnes au démarrage, rattrapage)
+    @Transactional
+    @Modifying
+    @Query(value = RECALCUL_TOTAUX + RECALCUL_TOTAUX_FIN, nativeQuery = true)
+    int recalculerTousLesTotaux();
+    
+    // Totaux du panier en une ligne, sans charger les items : [subtotal, lineCount, unitCount]
+    @Query("SELECT p.subtotal, p.lineCount, p.unitCount FROM Panier p WHERE p.user.id = :userId")
+    List<Object[]> findTotauxByUserId(@Param("userId") Long userId);
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.example.projet.repository;
+
+import com.example.projet.dto.ProduitMiseAJour;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Écritures en masse sur les produits en JDBC batch (une seule forme de requête préparée)
+@Repository
+public class ProduitBatchRepository {
+    
+    // Taille des lots envoyés au pilote
+    private static final int TAILLE_LOT = 1000;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    /**
+     * Applique les mises à jour partielles (champ null = inchangé) et renvoie, dans l'ordre,
+     * le nombre de lignes touchées par chacune (0 si le produit n'existe pas).
+     */
+    public int[] mettreAJour(List<ProduitMiseAJour> miseAJours, List<Long> changeSeqs) {
+        List<Object[]> lignes = new ArrayList<>(miseAJours.size());
+        for (int i = 0; i < miseAJours.size(); i++) {
+            ProduitMiseAJour maj = miseAJours.get(i);
+            lignes.add(new Object[] { maj.getPrix(), maj.getQuantite(), maj.getCategorieId(), changeSeqs.get(i), maj.getId() });
+        }
+        
+        int[] resultats = new int[miseAJours.size()];
+        int[][] lots = jdbcTemplate.batchUpdate(
+                "UPDATE produits SET prix = COALESCE(?, prix), quantite = COALESCE(?, quantite), " +
+                "categorie_id = COALESCE(?, categorie_id), change_seq = ? WHERE id = ?",
+                lignes, TAILLE_LOT, (ps, ligne) -> {
+                    ps.setObject(1, ligne[0], Types.DOUBLE);
+                    ps.setObject(2, ligne[1], Types.INTEGER);
+                    ps.setObject(3, ligne[2], Types.BIGINT);
+                    ps.setLong(4, (Long) ligne[3]);
+                    ps.setLong(5, (Long) ligne[4]);
+                });
+        int rang = 0;
+        for (int[] lot : lots) {
+            for (int touchees : lot) {
+                resultats[rang++] = touchees;
+            }
+        }
+        return resultats;
+    }
+    
+    /**
+     * État courant (catégorie, quantité, prix) des produits demandés, lignes verrouillées jusqu'à la fin
+     * de la transaction : deux écritures concurrentes du même produit ajustent les compteurs de
+     * catégorie l'une après l'autre. Les ids absents de la table ne figurent pas dans le résultat.
+     */
+    public Map<Long, EtatStock> lireEtatsPourMiseAJour(Collection<Long> ids) {
+        Map<Long, EtatStock> etats = new HashMap<>();
+        if (ids.isEmpty()) {
+            return etats;
+        }
+        jdbcTemplate.query("SELECT id, categorie_id, quantite, prix FROM produits WHERE id = ANY(?) FOR UPDATE",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())),
+                rs -> {
+                    etats.put(rs.getLong("id"), new EtatStock(
+                            rs.getObject("categorie_id", Long.class), rs.getObject("quantite", Integer.class),
+                            rs.getObject("prix", Double.class)));
+                });
+        return etats;
+    }
+    
+    /**
+     * Sortie de stock conditionnelle : la ligne n'est décrémentée que si son stock couvre la quantité
+     * (verrou de ligne pris par l'UPDATE). Renvoie l'état après décrément, ou null si aucune ligne
+     * n'a été touchée (produit absent ou stock insuffisant).
+     */
+    public EtatStock retirerStock(Long id, int quantite, long changeSeq) {
+        List<EtatStock> etats = jdbcTemplate.query(
+                "UPDATE produits SET quantite = quantite - ?, change_seq = ? WHERE id = ? AND quantite >= ? " +
+                "RETURNING categorie_id, quantite, prix",
+                (rs, rang) -> new EtatStock(rs.getObject("categorie_id", Long.class),
+                        rs.getObject("quantite", Integer.class), rs.getObject("prix", Double.class)),
+                quantite, changeSeq, id, quantite);
+        return etats.isEmpty() ? null : etats.get(0);
+    }
+    
+    public static class EtatStock {
+        private final Long categorieId;
+        private final Integer quantite;
+        private final Double prix;
+        
+        public EtatStock(Long categorieId, Integer quantite, Double prix) {
+            this.categorieId = categorieId;
+            this.quantite = quantite;
+            this.prix = prix;
+        }
+        
+        public Long getCategorieId() { return categorieId; }
+        public Integer getQuantite() { return quantite; }
+        public Double getPrix() { return prix; }
+        
+        public boolean isEnStock() {
+            return quantite != null && quantite > 0;
+        }
+    }
+}
@@ -1,8 +1,16 @@
 package com.example.projet.repository;
 
+import com.example.projet.dto.ProduitResume;
 import com.example.projet.entity.Produit;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +21,75 @@ public interface ProduitRepository extends JpaRepository<Produit, Long> {
     List<Produit> findByPrixBetween(Double min, Double max);
     List<Produit> findByQuantiteGreaterThan(Integer quantite);
     Optional<Produit> findByNom(String nom);
-}
\ No newline at end of file
+    
+    List<Produit> findByQuantiteBetween(Integer min, Integer max);
+    
+    // Lecture groupée du cache produits, catégorie comprise (pas de select par catégorie)
+    @Query("SELECT p FROM Produit p LEFT JOIN FETCH p.categorie WHERE p.id IN :ids")
+    List<Produit> findAvecCategorieByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Relecture complète pour la réconciliation de la valeur du stock : id, prix, quantité, catégorie
+    @Query("SELECT p.id, p.prix, p.quantite, c.id FROM Produit p LEFT JOIN p.categorie c")
+    List<Object[]> findEtatsValorisation();
+    
+    // Tableau de bord : total, en stock et nombre de catégories en un seul aller-retour
+    @Query(value = "SELECT COUNT(*), COUNT(*) FILTER (WHERE quantite > 0), " +
+                   "(SELECT COUNT(*) FROM categories WHERE supprimee = false) FROM produits", nativeQuery = true)
+    List<Object[]> compterTableauDeBord();
+    
+    // Compteurs exécutés en COUNT côté base
+    long countByQuantiteGreaterThan(Integer quantite);
+    long countByQuantiteBetween(Integer min, Integer max);
+    long countByQuantiteLessThanEqual(Integer quantite);
+    
+    // Pagination keyset : reprise après la dernière ligne vue, sans OFFSET
+    @Query("SELECT p FROM Produit p WHERE p.id > :id ORDER BY p.id")
+    List<Produit> findPageApresId(@Param("id") Long id, Limit limit);
+    
+    // ============ PROJECTIONS POUR LES LISTES ============
+    
+    String SELECT_RESUME = "SELECT new com.example.projet.dto.ProduitResume(p.id, p.nom, p.prix, p.quantite, " +
+                           "p.imageUrl, c.id, c.nom) FROM Produit p LEFT JOIN p.categorie c ";
+    
+    // Derniers produits créés pour la page d'accueil (parcours inverse de la clé primaire), description comprise
+    @Query("SELECT new com.example.projet.dto.ProduitResume(p.id, p.nom, p.prix, p.quantite, p.imageUrl, " +
+           "c.id, c.nom, p.description) FROM Produit p LEFT JOIN p.categorie c ORDER BY p.id DESC")
+    List<ProduitResume> findDerniersResumes(Limit limit);
+    
+    // Pagination keyset (index sur (prix, id) et (nom, id))
+    @Query(SELECT_RESUME + "WHERE p.id > :id ORDER BY p.id")
+    List<ProduitResume> findResumesApresId(@Param("id") Long id, Limit limit);
+    
+    // Plus récents d'abord : parcours inverse de la clé primaire
+    @Query(SELECT_RESUME + "WHERE p.id < :id ORDER BY p.id DESC")
+    List<ProduitResume> findResumesAvantId(@Param("id") Long id, Limit limit);
+    
+    @Query(SELECT_RESUME + "WHERE p.prix > :prix OR (p.prix = :prix AND p.id > :id) " +
+           "ORDER BY p.prix, p.id")
+    List<ProduitResume> findResumesApresPrix(@Param("prix") Double prix, @Param("id") Long id, Limit limit);
+    
+    @Query(SELECT_RESUME + "WHERE p.prix IS NULL AND p.id > :id ORDER BY p.id")
+    List<ProduitResume> findResumesSansPrixApresId(@Param("id") Long id, Limit limit);
+    
+    @Query(SELECT_RESUME + "WHERE p.nom > :nom OR (p.nom = :nom AND p.id > :id) " +
+           "ORDER BY p.nom, p.id")
+    List<ProduitResume> findResumesApresNom(@Param("nom") String nom, @Param("id") Long id, Limit limit);
+    
+    // Requêtes paginées (index sur categorie_id, prix, quantite)
+    @Query(value = SELECT_RESUME + "WHERE c.id = :categorieId",
+           countQuery = "SELECT COUNT(p) FROM Produit p WHERE p.categorie.id = :categorieId")
+    Page<ProduitResume> findResumesByCategorieId(@Param("categorieId") Long categorieId, Pageable pageable);
+    
+    @Query(SELECT_RESUME + "WHERE p.quantite > 0")
+    Slice<ProduitResume> findResumesEnStock(Pageable pageable);
+    
+    @Query(SELECT_RESUME + "WHERE p.id IN :ids")
+    List<ProduitResume> findResumesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT p.id FROM Produit p WHERE p.categorie.id = :categorieId")
+    List<Long> findIdsByCategorieId(@Param("categorieId") Long categorieId);
+    
+    // Synchronisation incrémentale : produits modifiés dans l'intervalle de séquence ]depuis, jusqua]
+    @Query("SELECT p FROM Produit p WHERE p.changeSeq > :depuis AND p.changeSeq <= :jusqua ORDER BY p.changeSeq")
+    List<Produit> findChangements(@Param("depuis") Long depuis, @Param("jusqua") Long jusqua, Limit limit);
+}
@@ -0,0 +1,73 @@
+package com.example.projet.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// Découpe un texte français en termes normalisés (minuscules, sans accents, sans mots vides)
+public final class AnalyseurTexte {
+    
+    private static final Pattern DIACRITIQUES = Pattern.compile("\\p{M}+");
+    
+    private static final Set<String> MOTS_VIDES = Set.of(
+        "le", "la", "les", "l", "un", "une", "des", "de", "du", "d", "au", "aux", "a",
+        "et", "ou", "en", "pour", "par", "sur", "dans", "avec", "sans", "ce", "ces",
+        "son", "sa", "ses", "qui", "que", "est", "se", "ne", "pas", "plus", "tres"
+    );
+    
+    private AnalyseurTexte() {
+    }
+    
+    // Minuscules, ligatures développées et accents retirés ("Crème brûlée" -> "creme brulee")
+    public static String normaliser(String texte) {
+        if (texte == null || texte.isEmpty()) {
+            return "";
+        }
+        String minuscule = texte.toLowerCase(Locale.ROOT)
+                .replace("œ", "oe")
+                .replace("æ", "ae");
+        String decompose = Normalizer.normalize(minuscule, Normalizer.Form.NFD);
+        return DIACRITIQUES.matcher(decompose).replaceAll("");
+    }
+    
+    // Termes indexables : mots vides retirés, pluriels simples ramenés au singulier
+    public static List<String> termes(String texte) {
+        List<String> termes = new ArrayList<>();
+        String normalise = normaliser(texte);
+        int debut = -1;
+        for (int i = 0; i <= normalise.length(); i++) {
+            boolean alphanumerique = i < normalise.length() && Character.isLetterOrDigit(normalise.charAt(i));
+            if (alphanumerique && debut < 0) {
+                debut = i;
+            } else if (!alphanumerique && debut >= 0) {
+                ajouterTerme(termes, normalise.substring(debut, i));
+                debut = -1;
+            }
+        }
+        return termes;
+    }
+    
+    private static void ajouterTerme(List<String> termes, String mot) {
+        if (MOTS_VIDES.contains(mot)) {
+            return;
+        }
+        if (mot.length() < 2 && !Character.isDigit(mot.charAt(0))) {
+            return;
+        }
+        termes.add(raciniser(mot));
+    }
+    
+    // Racinisation légère : "chaussures" -> "chaussure", "chapeaux" -> "chapeau"
+    private static String raciniser(String mot) {
+        if (mot.length() > 3 && !Character.isDigit(mot.charAt(mot.length() - 1))) {
+            char derniere = mot.charAt(mot.length() - 1);
+            if ((derniere == 's' || derniere == 'x') && mot.charAt(mot.length() - 2) != 's') {
+                return mot.substring(0, mot.length() - 1);
+            }
+        }
+        return mot;
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.projet.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.PriorityQueue;
+
+/**
+ * Dictionnaire de préfixes immuable et compact : les clés triées sont concaténées dans un seul
+ * tableau de caractères (pas d'objet String par entrée) et un arbre de segments sur la popularité
+ * permet d'extraire les k entrées les plus populaires d'un intervalle de préfixe en O(k log n).
+ */
+public final class IndexPrefixes {
+    
+    public static final IndexPrefixes VIDE = new Constructeur().construire();
+    
+    private final char[] cles;
+    private final int[] debutCle;
+    private final int[] entree;
+    private final int[] popularite;
+    private final int[] arbre;
+    private final int taille;
+    
+    private IndexPrefixes(char[] cles, int[] debutCle, int[] entree, int[] popularite) {
+        this.cles = cles;
+        this.debutCle = debutCle;
+        this.entree = entree;
+        this.popularite = popularite;
+        this.taille = entree.length;
+        this.arbre = new int[Math.max(1, 2 * taille)];
+        for (int i = 0; i < taille; i++) {
+            arbre[taille + i] = i;
+        }
+        for (int i = taille - 1; i > 0; i--) {
+            arbre[i] = plusPopulaire(arbre[2 * i], arbre[2 * i + 1]);
+        }
+    }
+    
+    public int getTaille() {
+        return taille;
+    }
+    
+    // Les k numéros d'entrée distincts (fournis à la construction) les plus populaires parmi les clés
+    // commençant par le préfixe. Plusieurs clés d'une même entrée ne comptent qu'une fois : le parcours
+    // continue jusqu'à k entrées distinctes ou la fin de l'intervalle.
+    public List<Integer> meilleurs(String prefixe, int k) {
+        List<Integer> resultat = new ArrayList<>();
+        if (taille == 0 || k <= 0) {
+            return resultat;
+        }
+        int debut = borneInferieure(prefixe, false);
+        int fin = borneInferieure(prefixe, true);
+        if (debut >= fin) {
+            return resultat;
+        }
+        
+        // File des sous-intervalles, ordonnée par la popularité de leur meilleur élément
+        PriorityQueue<int[]> file = new PriorityQueue<>(
+                Comparator.comparingInt((int[] intervalle) -> -popularite[intervalle[2]])
+                        .thenComparingInt(intervalle -> intervalle[2]));
+        file.add(new int[] { debut, fin, maximum(debut, fin) });
+        Set<Integer> vues = new HashSet<>();
+        while (!file.isEmpty() && resultat.size() < k) {
+            int[] intervalle = file.poll();
+            int position = intervalle[2];
+            if (vues.add(entree[position])) {
+                resultat.add(entree[position]);
+            }
+            if (intervalle[0] < position) {
+                file.add(new int[] { intervalle[0], position, maximum(intervalle[0], position) });
+            }
+            if (position + 1 < intervalle[1]) {
+                file.add(new int[] { position + 1, intervalle[1], maximum(position + 1, intervalle[1]) });
+            }
+        }
+        return resultat;
+    }
+    
+    // Position de la clé la plus populaire dans [debut, fin)
+    private int maximum(int debut, int fin) {
+        int meilleur = debut;
+        for (int g = debut + taille, d = fin + taille; g < d; g >>= 1, d >>= 1) {
+            if ((g & 1) == 1) {
+                meilleur = plusPopulaire(meilleur, arbre[g++]);
+            }
+            if ((d & 1) == 1) {
+                meilleur = plusPopulaire(meilleur, arbre[--d]);
+            }
+        }
+        return meilleur;
+    }
+    
+    private int plusPopulaire(int a, int b) {
+        if (popularite[a] != popularite[b]) {
+            return popularite[a] > popularite[b] ? a : b;
+        }
+        return Math.min(a, b);
+    }
+    
+    // Première clé >= préfixe, ou première clé ne commençant plus par le préfixe si apresPrefixe
+    private int borneInferieure(String prefixe, boolean apresPrefixe) {
+        int bas = 0;
+        int haut = taille;
+        while (bas < haut) {
+            int milieu = (bas + haut) >>> 1;
+            int comparaison = comparer(milieu, prefixe);
+            boolean avant = apresPrefixe ? comparaison <= 0 : comparaison < 0;
+            if (avant) {
+                bas = milieu + 1;
+            } else {
+                haut = milieu;
+            }
+        }
+        return bas;
+    }
+    
+    // Compare la clé tronquée à la longueur du préfixe : 0 signifie "commence par"
+    private int comparer(int position, String prefixe) {
+        int debut = debutCle[position];
+        int longueur = debutCle[position + 1] - debut;
+        int n = Math.min(longueur, prefixe.length());
+        for (int i = 0; i < n; i++) {
+            int difference = cles[debut + i] - prefixe.charAt(i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return longueur < prefixe.length() ? -1 : 0;
+    }
+    
+    // ============ CONSTRUCTION ============
+    
+    public static final class Constructeur {
+        private final List<String> cles = new ArrayList<>();
+        private final List<int[]> valeurs = new ArrayList<>();
+        
+        // Ajoute une clé (déjà normalisée) pointant vers un numéro d'entrée
+        public Constructeur ajouter(String cle, int numeroEntree, int popularite) {
+            if (!cle.isEmpty()) {
+                cles.add(cle);
+                valeurs.add(new int[] { numeroEntree, popularite });
+            }
+            return this;
+        }
+        
+        public IndexPrefixes construire() {
+            Integer[] ordre = new Integer[cles.size()];
+            int longueurTotale = 0;
+            for (int i = 0; i < ordre.length; i++) {
+                ordre[i] = i;
+                longueurTotale += cles.get(i).length();
+            }
+            Arrays.sort(ordre, Comparator.comparing(cles::get));
+            
+            char[] concatenees = new char[longueurTotale];
+            int[] debuts = new int[ordre.length + 1];
+            int[] entrees = new int[ordre.length];
+            int[] popularites = new int[ordre.length];
+            int curseur = 0;
+            for (int i = 0; i < ordre.length; i++) {
+                String cle = cles.get(ordre[i]);
+                debuts[i] = curseur;
+                cle.getChars(0, cle.length(), concatenees, curseur);
+                curseur += cle.length();
+                entrees[i] = valeurs.get(ordre[i])[0];
+                popularites[i] = valeurs.get(ordre[i])[1];
+            }
+            debuts[ordre.length] = curseur;
+            return new IndexPrefixes(concatenees, debuts, entrees, popularites);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.projet.search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Liste de postings compressée : couples (ordinal, fréquence) triés par ordinal,
+ * stockés en deltas encodés en varint. Ajout uniquement en fin de liste.
+ */
+public class PostingList {
+    
+    private byte[] donnees = new byte[8];
+    private int taille;
+    private int nombre;
+    private int dernierOrdinal = -1;
+    
+    public void ajouter(int ordinal, int frequence) {
+        if (ordinal <= dernierOrdinal) {
+            throw new IllegalArgumentException("Ordinal non croissant: " + ordinal);
+        }
+        ecrireVarint(ordinal - dernierOrdinal);
+        ecrireVarint(frequence);
+        dernierOrdinal = ordinal;
+        nombre++;
+    }
+    
+    // Nombre d'entrées (documents supprimés non encore compactés inclus)
+    public int getNombre() {
+        return nombre;
+    }
+    
+    public Lecteur lecteur() {
+        return new Lecteur();
+    }
+    
+    // Réécrit la liste sans les ordinaux supprimés, en appliquant la renumérotation
+    public PostingList compacter(BitSet supprimes, int[] nouvelOrdinal) {
+        PostingList compacte = new PostingList();
+        Lecteur lecteur = lecteur();
+        while (lecteur.suivant()) {
+            if (!supprimes.get(lecteur.ordinal())) {
+                compacte.ajouter(nouvelOrdinal[lecteur.ordinal()], lecteur.frequence());
+            }
+        }
+        compacte.donnees = Arrays.copyOf(compacte.donnees, compacte.taille);
+        return compacte;
+    }
+    
+    private void ecrireVarint(int valeur) {
+        if (taille + 5 > donnees.length) {
+            donnees = Arrays.copyOf(donnees, Math.max(donnees.length * 2, taille + 5));
+        }
+        while ((valeur & ~0x7F) != 0) {
+            donnees[taille++] = (byte) ((valeur & 0x7F) | 0x80);
+            valeur >>>= 7;
+        }
+        donnees[taille++] = (byte) valeur;
+    }
+    
+    // Curseur de lecture séquentielle (non thread-safe, un par requête)
+    public class Lecteur {
+        private int position;
+        private int ordinal = -1;
+        private int frequence;
+        
+        public boolean suivant() {
+            if (position >= taille) {
+                return false;
+            }
+            ordinal += lireVarint();
+            frequence = lireVarint();
+            return true;
+        }
+        
+        public int ordinal() { return ordinal; }
+        public int frequence() { return frequence; }
+        
+        private int lireVarint() {
+            int valeur = 0;
+            int decalage = 0;
+            byte octet;
+            do {
+                octet = donnees[position++];
+                valeur |= (octet & 0x7F) << decalage;
+                decalage += 7;
+            } while ((octet & 0x80) != 0);
+            return valeur;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.projet.search;
+
+import com.example.projet.event.CategorieChangeEvent;
+import com.example.projet.event.ProduitChangeEvent;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index de facettes en bitmaps compressés (Roaring) sur les ids produits : un bitmap par catégorie,
+ * par tranche de prix et pour le stock. Un filtre est un ET/OU de bitmaps et chaque compteur de
+ * facette une cardinalité d'intersection, sans GROUP BY côté base.
+ */
+@Component
+public class ProduitFacetIndex {
+    
+    // Bornes des tranches de prix : [0, 10[, [10, 25[, ..., [500, +inf[
+    public static final double[] BORNES_PRIX = { 0, 10, 25, 50, 100, 250, 500 };
+    
+    private final ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+    private final RoaringBitmap tous = new RoaringBitmap();
+    private final RoaringBitmap enStock = new RoaringBitmap();
+    private final RoaringBitmap sansCategorie = new RoaringBitmap();
+    private final RoaringBitmap[] parTranche = new RoaringBitmap[BORNES_PRIX.length];
+    private final Map<Long, RoaringBitmap> parCategorie = new HashMap<>();
+    private final Map<Long, String> nomsCategories = new HashMap<>();
+    private final Map<Integer, Long> categorieParProduit = new HashMap<>();
+    private final Map<Integer, Integer> trancheParProduit = new HashMap<>();
+    
+    public ProduitFacetIndex() {
+        for (int i = 0; i < parTranche.length; i++) {
+            parTranche[i] = new RoaringBitmap();
+        }
+    }
+    
+    // ============ MISE À JOUR ============
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProduitChange(ProduitChangeEvent event) {
+        int id = Math.toIntExact(event.getProduitId());
+        verrou.writeLock().lock();
+        try {
+            retirer(id);
+            if (event.isSuppression()) {
+                return;
+            }
+            tous.add(id);
+            if (event.getQuantite() != null && event.getQuantite() > 0) {
+                enStock.add(id);
+            }
+            if (event.getCategorieId() != null) {
+                parCategorie.computeIfAbsent(event.getCategorieId(), c -> new RoaringBitmap()).add(id);
+                categorieParProduit.put(id, event.getCategorieId());
+                if (event.getCategorieNom() != null) {
+                    nomsCategories.put(event.getCategorieId(), event.getCategorieNom());
+                }
+            } else {
+                sansCategorie.add(id);
+            }
+            int tranche = tranche(event.getPrix());
+            if (tranche >= 0) {
+                parTranche[tranche].add(id);
+                trancheParProduit.put(id, tranche);
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategorieChange(CategorieChangeEvent event) {
+        verrou.writeLock().lock();
+        try {
+            if (event.isSuppression()) {
+                nomsCategories.remove(event.getCategorieId());
+                RoaringBitmap bitmap = parCategorie.get(event.getCategorieId());
+                if (bitmap != null && bitmap.isEmpty()) {
+                    parCategorie.remove(event.getCategorieId());
+                }
+            } else if (event.getNom() != null) {
+                nomsCategories.put(event.getCategorieId(), event.getNom());
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+    
+    // Appelé sous verrou d'écriture
+    private void retirer(int id) {
+        if (!tous.checkedRemove(id)) {
+            return;
+        }
+        enStock.remove(id);
+        Long categorieId = categorieParProduit.remove(id);
+        if (categorieId != null) {
+            parCategorie.get(categorieId).remove(id);
+        } else {
+            sansCategorie.remove(id);
+        }
+        Integer tranche = trancheParProduit.remove(id);
+        if (tranche != null) {
+            parTranche[tranche].remove(id);
+        }
+    }
+    
+    static int tranche(Double prix) {
+        if (prix == null || prix < 0) {
+            return -1;
+        }
+        int tranche = 0;
+        while (tranche + 1 < BORNES_PRIX.length && prix >= BORNES_PRIX[tranche + 1]) {
+            tranche++;
+        }
+        return tranche;
+    }
+    
+    // ============ NAVIGATION ============
+    
+    /**
+     * Filtre combiné (catégories en OU, tranches en OU, dimensions entre elles en ET) avec les
+     * compteurs de chaque facette. Le compteur d'une facette ignore le filtre de sa propre dimension,
+     * ce qui permet d'afficher les alternatives disponibles.
+     */
+    public Resultat parcourir(Collection<Long> categorieIds, Collection<Integer> tranches, Boolean stock,
+                              int page, int taille) {
+        verrou.readLock().lock();
+        try {
+            RoaringBitmap filtreCategories = categorieIds == null || categorieIds.isEmpty() ? null : unionCategories(categorieIds);
+            RoaringBitmap filtrePrix = tranches == null || tranches.isEmpty() ? null : unionTranches(tranches);
+            RoaringBitmap filtreStock = stock == null ? null : stock ? enStock : RoaringBitmap.andNot(tous, enStock);
+            
+            RoaringBitmap selection = intersection(filtreCategories, filtrePrix, filtreStock);
+            
+            // Facettes : chaque dimension est comptée sous les filtres des autres dimensions
+            RoaringBitmap horsCategories = intersection(null, filtrePrix, filtreStock);
+            Map<Long, Integer> facettesCategories = new LinkedHashMap<>();
+            for (Map.Entry<Long, RoaringBitmap> entry : parCategorie.entrySet()) {
+                int nombre = RoaringBitmap.andCardinality(entry.getValue(), horsCategories);
+                if (nombre > 0) {
+                    facettesCategories.put(entry.getKey(), nombre);
+                }
+            }
+            
+            RoaringBitmap horsPrix = intersection(filtreCategories, null, filtreStock);
+            int[] facettesPrix = new int[parTranche.length];
+            for (int i = 0; i < parTranche.length; i++) {
+                facettesPrix[i] = RoaringBitmap.andCardinality(parTranche[i], horsPrix);
+            }
+            
+            RoaringBitmap horsStock = intersection(filtreCategories, filtrePrix, null);
+            int facetteEnStock = RoaringBitmap.andCardinality(enStock, horsStock);
+            int facetteRupture = horsStock.getCardinality() - facetteEnStock;
+            
+            Map<Long, String> noms = new HashMap<>();
+            for (Long categorieId : facettesCategories.keySet()) {
+                noms.put(categorieId, nomsCategories.get(categorieId));
+            }
+            
+            return new Resultat(pageIds(selection, page, taille), selection.getCardinality(),
+                    facettesCategories, noms, facettesPrix, facetteEnStock, facetteRupture);
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+    
+    private RoaringBitmap unionCategories(Collection<Long> categorieIds) {
+        List<RoaringBitmap> bitmaps = new ArrayList<>();
+        for (Long categorieId : categorieIds) {
+            RoaringBitmap bitmap = parCategorie.get(categorieId);
+            if (bitmap != null) {
+                bitmaps.add(bitmap);
+            }
+        }
+        return RoaringBitmap.or(bitmaps.iterator());
+    }
+    
+    private RoaringBitmap unionTranches(Collection<Integer> tranches) {
+        List<RoaringBitmap> bitmaps = new ArrayList<>();
+        for (Integer tranche : tranches) {
+            if (tranche != null && tranche >= 0 && tranche < parTranche.length) {
+                bitmaps.add(parTranche[tranche]);
+            }
+        }
+        return RoaringBitmap.or(bitmaps.iterator());
+    }
+    
+    private RoaringBitmap intersection(RoaringBitmap... filtres) {
+        RoaringBitmap resultat = tous.clone();
+        for (RoaringBitmap filtre : filtres) {
+            if (filtre != null) {
+                resultat.and(filtre);
+            }
+        }
+        return resultat;
+    }
+    
+    // Page d'ids croissants : select() positionne directement sur le rang de début
+    private List<Long> pageIds(RoaringBitmap selection, int page, int taille) {
+        List<Long> ids = new ArrayList<>(taille);
+        long debut = (long) page * taille;
+        if (debut >= selection.getCardinality()) {
+            return ids;
+        }
+        PeekableIntIterator iterateur = selection.getIntIterator();
+        iterateur.advanceIfNeeded(selection.select((int) debut));
+        while (iterateur.hasNext() && ids.size() < taille) {
+            ids.add((long) iterateur.next());
+        }
+        return ids;
+    }
+    
+    public static class Resultat {
+        private final List<Long> ids;
+        private final int total;
+        private final Map<Long, Integer> categories;
+        private final Map<Long, String> nomsCategories;
+        private final int[] tranchesPrix;
+        private final int enStock;
+        private final int rupture;
+        
+        public Resultat(List<Long> ids, int total, Map<Long, Integer> categories, Map<Long, String> nomsCategories,
+                        int[] tranchesPrix, int enStock, int rupture) {
+            this.ids = ids;
+            this.total = total;
+            this.categories = categories;
+            this.nomsCategories = nomsCategories;
+            this.tranchesPrix = tranchesPrix;
+            this.enStock = enStock;
+            this.rupture = rupture;
+        }
+        
+        // Getters
+        public List<Long> getIds() { return ids; }
+        public int getTotal() { return total; }
+        public Map<Long, Integer> getCategories() { return categories; }
+        public Map<Long, String> getNomsCategories() { return nomsCategories; }
+        public int[] getTranchesPrix() { return tranchesPrix; }
+        public int getEnStock() { return enStock; }
+        public int getRupture() { return rupture; }
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.projet.search;
+
+import com.example.projet.event.ProduitChangeEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index des prix en tableaux primitifs triés par (prix, id). Une plage de prix se résout par deux
+ * recherches dichotomiques et se lit comme une tranche contiguë des tableaux, déjà dans l'ordre
+ * (prix, id) attendu par l'API. Les lecteurs travaillent sur un instantané immuable. Les écritures ne
+ * copient pas les tableaux : elles notent l'id modifié, et la lecture suivante fusionne en un seul
+ * passage linéaire toutes les modifications accumulées (une rafale de k écritures coûte une copie,
+ * pas k). Le chargement initial est accumulé puis trié une seule fois.
+ */
+@Component
+public class ProduitPrixIndex {
+    
+    private final Map<Long, Double> prixParId = new HashMap<>();
+    private volatile Instantane instantane = new Instantane(new double[0], new long[0]);
+    private volatile boolean aReconstruire;
+    // id modifié depuis l'instantané -> son prix dans l'instantané (null s'il n'y figure pas) ; sous verrou
+    private final Map<Long, Double> modifies = new HashMap<>();
+    private volatile boolean aFusionner;
+    
+    // ============ MISE À JOUR ============
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProduitChange(ProduitChangeEvent event) {
+        Long id = event.getProduitId();
+        Double ancien = prixParId.remove(id);
+        Double nouveau = event.isSuppression() ? null : event.getPrix();
+        if (nouveau != null) {
+            prixParId.put(id, nouveau);
+        }
+        
+        if (event.isChargementInitial() || aReconstruire) {
+            aReconstruire = true;
+        } else if (ancien == null || !ancien.equals(nouveau)) {
+            // Le premier prix noté est celui de l'instantané : c'est lui qu'il faudra retirer à la fusion
+            if (!modifies.containsKey(id)) {
+                modifies.put(id, ancien);
+            }
+            aFusionner = true;
+        }
+    }
+    
+    private Instantane courant() {
+        Instantane courant = instantane;
+        if (!aReconstruire && !aFusionner) {
+            return courant;
+        }
+        synchronized (this) {
+            if (aReconstruire) {
+                instantane = reconstruire();
+                aReconstruire = false;
+            } else if (aFusionner) {
+                instantane = instantane.fusionner(modifies, prixParId);
+            }
+            modifies.clear();
+            aFusionner = false;
+            return instantane;
+        }
+    }
+    
+    // Appelé sous verrou
+    private Instantane reconstruire() {
+        long[][] paires = new long[prixParId.size()][];
+        int i = 0;
+        for (Map.Entry<Long, Double> entry : prixParId.entrySet()) {
+            paires[i++] = new long[] { Double.doubleToLongBits(entry.getValue()), entry.getKey() };
+        }
+        Arrays.sort(paires, (a, b) -> {
+            int parPrix = Double.compare(Double.longBitsToDouble(a[0]), Double.longBitsToDouble(b[0]));
+            return parPrix != 0 ? parPrix : Long.compare(a[1], b[1]);
+        });
+        double[] prix = new double[paires.length];
+        long[] ids = new long[paires.length];
+        for (i = 0; i < paires.length; i++) {
+            prix[i] = Double.longBitsToDouble(paires[i][0]);
+            ids[i] = paires[i][1];
+        }
+        return new Instantane(prix, ids);
+    }
+    
+    // ============ LECTURE ============
+    
+    // Ids de la plage [min, max] dans l'ordre (prix, id), à partir du rang "debut"
+    public Plage plage(double min, double max, int debut, int taille) {
+        Instantane courant = courant();
+        int bas = courant.premierRang(min, false);
+        int haut = courant.premierRang(max, true);
+        int total = Math.max(0, haut - bas);
+        
+        List<Long> ids = new ArrayList<>(Math.max(0, Math.min(taille, total)));
+        // En long : un rang de départ proche de Integer.MAX_VALUE ne doit pas repasser en négatif
+        int depart = (int) Math.min((long) bas + Math.max(debut, 0), haut);
+        for (int rang = depart; rang < haut && ids.size() < taille; rang++) {
+            ids.add(courant.ids[rang]);
+        }
+        return new Plage(ids, total);
+    }
+    
+    /**
+     * Histogramme des prix pour le curseur de plage : "tranches" intervalles de même largeur entre
+     * min et max (bornes du catalogue si absentes). Chaque compteur est une différence de rangs.
+     */
+    public Map<String, Object> histogramme(Double min, Double max, int tranches) {
+        Instantane courant = courant();
+        Map<String, Object> resultat = new HashMap<>();
+        int n = courant.prix.length;
+        double bas = min != null ? min : n > 0 ? courant.prix[0] : 0;
+        double haut = max != null ? max : n > 0 ? courant.prix[n - 1] : 0;
+        double largeur = haut > bas ? (haut - bas) / tranches : 0;
+        
+        int[] compteurs = new int[tranches];
+        int rangPrecedent = courant.premierRang(bas, false);
+        for (int i = 0; i < tranches; i++) {
+            // La dernière tranche inclut sa borne haute
+            int rang = i == tranches - 1
+                    ? courant.premierRang(haut, true)
+                    : courant.premierRang(bas + largeur * (i + 1), false);
+            compteurs[i] = Math.max(0, rang - rangPrecedent);
+            rangPrecedent = Math.max(rang, rangPrecedent);
+        }
+        
+        resultat.put("min", bas);
+        resultat.put("max", haut);
+        resultat.put("largeur", largeur);
+        resultat.put("compteurs", compteurs);
+        resultat.put("total", Math.max(0, courant.premierRang(haut, true) - courant.premierRang(bas, false)));
+        return resultat;
+    }
+    
+    public int getNombreProduits() {
+        return courant().prix.length;
+    }
+    
+    // ============ STRUCTURES ============
+    
+    private static final class Instantane {
+        private final double[] prix;
+        private final long[] ids;
+        
+        private Instantane(double[] prix, long[] ids) {
+            this.prix = prix;
+            this.ids = ids;
+        }
+        
+        // Premier rang dont le prix est >= valeur (ou > valeur si strict)
+        private int premierRang(double valeur, boolean strict) {
+            int bas = 0;
+            int haut = prix.length;
+            while (bas < haut) {
+                int milieu = (bas + haut) >>> 1;
+                if (strict ? prix[milieu] <= valeur : prix[milieu] < valeur) {
+                    bas = milieu + 1;
+                } else {
+                    haut = milieu;
+                }
+            }
+            return bas;
+        }
+        
+        // Rang de (prix, id) s'il est présent, sinon -(point d'insertion) - 1
+        private static int rang(double[] prix, long[] ids, double valeur, long id) {
+            int bas = 0;
+            int haut = prix.length - 1;
+            while (bas <= haut) {
+                int milieu = (bas + haut) >>> 1;
+                int comparaison = Double.compare(prix[milieu], valeur);
+                if (comparaison == 0) {
+                    comparaison = Long.compare(ids[milieu], id);
+                }
+                if (comparaison < 0) {
+                    bas = milieu + 1;
+                } else if (comparaison > 0) {
+                    haut = milieu - 1;
+                } else {
+                    return milieu;
+                }
+            }
+            return -bas - 1;
+        }
+        
+        // Nouvel instantané : entrées des ids modifiés retirées, prix actuels insérés, en un passage de fusion
+        private Instantane fusionner(Map<Long, Double> modifies, Map<Long, Double> prixActuels) {
+            boolean[] retires = new boolean[prix.length];
+            int nombreRetires = 0;
+            List<long[]> ajouts = new ArrayList<>(modifies.size());
+            for (Map.Entry<Long, Double> entry : modifies.entrySet()) {
+                long id = entry.getKey();
+                if (entry.getValue() != null) {
+                    int rang = rang(prix, ids, entry.getValue(), id);
+                    if (rang >= 0 && !retires[rang]) {
+                        retires[rang] = true;
+                        nombreRetires++;
+                    }
+                }
+                Double actuel = prixActuels.get(id);
+                if (actuel != null) {
+                    ajouts.add(new long[] { Double.doubleToLongBits(actuel), id });
+                }
+            }
+            ajouts.sort((a, b) -> comparer(Double.longBitsToDouble(a[0]), a[1], Double.longBitsToDouble(b[0]), b[1]));
+            
+            int taille = prix.length - nombreRetires + ajouts.size();
+            double[] p = new double[taille];
+            long[] i = new long[taille];
+            int ancien = 0;
+            int ajout = 0;
+            for (int rang = 0; rang < taille; rang++) {
+                while (ancien < prix.length && retires[ancien]) {
+                    ancien++;
+                }
+                boolean prendreAjout = ajout < ajouts.size() && (ancien >= prix.length
+                        || comparer(Double.longBitsToDouble(ajouts.get(ajout)[0]), ajouts.get(ajout)[1],
+                                prix[ancien], ids[ancien]) < 0);
+                if (prendreAjout) {
+                    p[rang] = Double.longBitsToDouble(ajouts.get(ajout)[0]);
+                    i[rang] = ajouts.get(ajout)[1];
+                    ajout++;
+                } else {
+                    p[rang] = prix[ancien];
+                    i[rang] = ids[ancien];
+                    ancien++;
+                }
+            }
+            return new Instantane(p, i);
+        }
+        
+        private static int comparer(double prixA, long idA, double prixB, long idB) {
+            int parPrix = Double.compare(prixA, prixB);
+            return parPrix != 0 ? parPrix : Long.compare(idA, idB);
+        }
+    }
+    
+    public static class Plage {
+        private final List<Long> ids;
+        private final int total;
+        
+        public Plage(List<Long> ids, int total) {
+            this.ids = ids;
+            this.total = total;
+        }
+        
+        // Getters
+        public List<Long> getIds() { return ids; }
+        public int getTotal() { return total; }
+    }
+}
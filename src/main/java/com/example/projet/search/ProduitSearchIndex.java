@@ -0,0 +1,255 @@
+package com.example.projet.search;
+
+import com.example.projet.entity.Produit;
+import com.example.projet.event.CategorieChangeEvent;
+import com.example.projet.event.ProduitChangeEvent;
+import com.example.projet.repository.ProduitRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index inversé en mémoire sur le nom, la description et la catégorie des produits.
+ * Les documents sont identifiés par un ordinal croissant : une mise à jour marque l'ancien
+ * ordinal comme supprimé et en alloue un nouveau, ce qui garde les postings en ajout seul.
+ * Le classement suit BM25 ; le nom et la catégorie pèsent plus lourd que la description.
+ */
+@Component
+public class ProduitSearchIndex {
+    
+    private static final int POIDS_NOM = 3;
+    private static final int POIDS_CATEGORIE = 2;
+    private static final int POIDS_DESCRIPTION = 1;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int SEUIL_COMPACTAGE = 1000;
+    
+    @Autowired
+    private ProduitRepository produitRepository;
+    
+    private final ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<Long, Integer> ordinalParId = new HashMap<>();
+    private final Map<Long, String> nomsCategories = new HashMap<>();
+    private long[] idParOrdinal = new long[1024];
+    private int[] longueurParOrdinal = new int[1024];
+    private BitSet supprimes = new BitSet();
+    private int prochainOrdinal;
+    private int documentsSupprimes;
+    private long longueurTotale;
+    
+    // ============ MISE À JOUR ============
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProduitChange(ProduitChangeEvent event) {
+        if (event.isSuppression()) {
+            supprimer(event.getProduitId());
+        } else {
+            indexer(event.getProduitId(), event.getNom(), event.getDescription(),
+                    event.getCategorieId(), event.getCategorieNom());
+        }
+    }
+    
+    // Un renommage de catégorie réindexe les produits qu'elle contient
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategorieChange(CategorieChangeEvent event) {
+        String ancienNom;
+        verrou.writeLock().lock();
+        try {
+            ancienNom = event.isSuppression()
+                    ? nomsCategories.remove(event.getCategorieId())
+                    : nomsCategories.put(event.getCategorieId(), event.getNom());
+        } finally {
+            verrou.writeLock().unlock();
+        }
+        if (!event.isSuppression() && ancienNom != null && !ancienNom.equals(event.getNom())) {
+            for (Produit produit : produitRepository.findByCategorieId(event.getCategorieId())) {
+                indexer(produit.getId(), produit.getNom(), produit.getDescription(),
+                        event.getCategorieId(), event.getNom());
+            }
+        }
+    }
+    
+    public void indexer(Long produitId, String nom, String description, Long categorieId, String categorieNom) {
+        Map<String, Integer> frequences = new HashMap<>();
+        int longueur = compter(frequences, nom, POIDS_NOM)
+                + compter(frequences, categorieNom, POIDS_CATEGORIE)
+                + compter(frequences, description, POIDS_DESCRIPTION);
+        
+        verrou.writeLock().lock();
+        try {
+            retirer(produitId);
+            if (categorieId != null && categorieNom != null) {
+                nomsCategories.put(categorieId, categorieNom);
+            }
+            
+            int ordinal = prochainOrdinal++;
+            if (ordinal == idParOrdinal.length) {
+                idParOrdinal = Arrays.copyOf(idParOrdinal, ordinal * 2);
+                longueurParOrdinal = Arrays.copyOf(longueurParOrdinal, ordinal * 2);
+            }
+            idParOrdinal[ordinal] = produitId;
+            longueurParOrdinal[ordinal] = longueur;
+            ordinalParId.put(produitId, ordinal);
+            longueurTotale += longueur;
+            
+            for (Map.Entry<String, Integer> entry : frequences.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), t -> new PostingList())
+                        .ajouter(ordinal, entry.getValue());
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+    
+    public void supprimer(Long produitId) {
+        verrou.writeLock().lock();
+        try {
+            retirer(produitId);
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+    
+    private int compter(Map<String, Integer> frequences, String texte, int poids) {
+        List<String> termes = AnalyseurTexte.termes(texte);
+        for (String terme : termes) {
+            frequences.merge(terme, poids, Integer::sum);
+        }
+        return termes.size() * poids;
+    }
+    
+    // Appelé sous verrou d'écriture
+    private void retirer(Long produitId) {
+        Integer ancien = ordinalParId.remove(produitId);
+        if (ancien == null) {
+            return;
+        }
+        supprimes.set(ancien);
+        longueurTotale -= longueurParOrdinal[ancien];
+        documentsSupprimes++;
+        if (documentsSupprimes > SEUIL_COMPACTAGE && documentsSupprimes > ordinalParId.size() / 4) {
+            compacter();
+        }
+    }
+    
+    // Purge les ordinaux supprimés et renumérote les documents vivants en conservant leur ordre
+    private void compacter() {
+        int[] nouvelOrdinal = new int[prochainOrdinal];
+        int vivants = 0;
+        for (int ordinal = 0; ordinal < prochainOrdinal; ordinal++) {
+            if (!supprimes.get(ordinal)) {
+                nouvelOrdinal[ordinal] = vivants++;
+            }
+        }
+        
+        long[] ids = new long[Math.max(1024, vivants * 2)];
+        int[] longueurs = new int[ids.length];
+        for (int ordinal = 0; ordinal < prochainOrdinal; ordinal++) {
+            if (!supprimes.get(ordinal)) {
+                ids[nouvelOrdinal[ordinal]] = idParOrdinal[ordinal];
+                longueurs[nouvelOrdinal[ordinal]] = longueurParOrdinal[ordinal];
+            }
+        }
+        
+        postings.replaceAll((terme, liste) -> liste.compacter(supprimes, nouvelOrdinal));
+        postings.values().removeIf(liste -> liste.getNombre() == 0);
+        ordinalParId.replaceAll((id, ordinal) -> nouvelOrdinal[ordinal]);
+        
+        idParOrdinal = ids;
+        longueurParOrdinal = longueurs;
+        supprimes = new BitSet();
+        prochainOrdinal = vivants;
+        documentsSupprimes = 0;
+    }
+    
+    // ============ RECHERCHE ============
+    
+    // Renvoie les ids des produits les plus pertinents, du meilleur au moins bon
+    public List<Long> rechercher(String requete, int limite) {
+        Set<String> termes = new LinkedHashSet<>(AnalyseurTexte.termes(requete));
+        if (termes.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+        
+        verrou.readLock().lock();
+        try {
+            int documents = ordinalParId.size();
+            if (documents == 0) {
+                return List.of();
+            }
+            double longueurMoyenne = Math.max(1.0, (double) longueurTotale / documents);
+            
+            List<PostingList> listes = new ArrayList<>();
+            int capacite = 0;
+            for (String terme : termes) {
+                PostingList liste = postings.get(terme);
+                if (liste != null) {
+                    listes.add(liste);
+                    capacite += liste.getNombre();
+                }
+            }
+            if (listes.isEmpty()) {
+                return List.of();
+            }
+            
+            ScoreAccumulateur scores = new ScoreAccumulateur(capacite);
+            for (PostingList liste : listes) {
+                int df = Math.min(liste.getNombre(), documents);
+                double idf = Math.log(1 + (documents - df + 0.5) / (df + 0.5));
+                PostingList.Lecteur lecteur = liste.lecteur();
+                while (lecteur.suivant()) {
+                    int ordinal = lecteur.ordinal();
+                    if (supprimes.get(ordinal)) {
+                        continue;
+                    }
+                    double tf = lecteur.frequence();
+                    double normalisation = K1 * (1 - B + B * longueurParOrdinal[ordinal] / longueurMoyenne);
+                    scores.ajouter(ordinal, (float) (idf * tf * (K1 + 1) / (tf + normalisation)));
+                }
+            }
+            
+            int[] meilleurs = scores.meilleurs(limite);
+            List<Long> ids = new ArrayList<>(meilleurs.length);
+            for (int ordinal : meilleurs) {
+                ids.add(idParOrdinal[ordinal]);
+            }
+            return ids;
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+    
+    public int getNombreDocuments() {
+        verrou.readLock().lock();
+        try {
+            return ordinalParId.size();
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+    
+    public Map<String, Object> getStatistiques() {
+        verrou.readLock().lock();
+        try {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("documents", ordinalParId.size());
+            stats.put("termes", postings.size());
+            stats.put("documentsSupprimes", documentsSupprimes);
+            stats.put("categories", nomsCategories.size());
+            return stats;
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.projet.search;
+
+import com.example.projet.event.CategorieChangeEvent;
+import com.example.projet.event.ProduitChangeEvent;
+import com.example.projet.repository.OrderItemRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Autocomplétion sur les noms de produits et de catégories, servie entièrement depuis la mémoire.
+ * Chaque nom est indexé à partir de chacun de ses mots ("randonnee" trouve "Chaussures de randonnée").
+ * Les écritures marquent l'index comme périmé ; il est reconstruit en tâche de fond puis publié
+ * d'un bloc. La popularité (quantités vendues) est relue périodiquement depuis les commandes.
+ */
+@Component
+public class ProduitSuggestions {
+    
+    public static final String TYPE_PRODUIT = "produit";
+    public static final String TYPE_CATEGORIE = "categorie";
+    
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+    
+    private final Map<Long, String> nomsProduits = new ConcurrentHashMap<>();
+    private final Map<Long, Long> categorieParProduit = new ConcurrentHashMap<>();
+    private final Map<Long, String> nomsCategories = new ConcurrentHashMap<>();
+    private volatile Map<Long, Integer> ventesParProduit = Map.of();
+    private volatile boolean perime = true;
+    private volatile Instantane instantane = new Instantane(IndexPrefixes.VIDE, List.of());
+    
+    // ============ MISE À JOUR ============
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProduitChange(ProduitChangeEvent event) {
+        if (event.isSuppression()) {
+            nomsProduits.remove(event.getProduitId());
+            categorieParProduit.remove(event.getProduitId());
+        } else {
+            nomsProduits.put(event.getProduitId(), event.getNom());
+            if (event.getCategorieId() != null) {
+                categorieParProduit.put(event.getProduitId(), event.getCategorieId());
+                if (event.getCategorieNom() != null) {
+                    nomsCategories.put(event.getCategorieId(), event.getCategorieNom());
+                }
+            } else {
+                categorieParProduit.remove(event.getProduitId());
+            }
+        }
+        perime = true;
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategorieChange(CategorieChangeEvent event) {
+        if (event.isSuppression()) {
+            nomsCategories.remove(event.getCategorieId());
+        } else if (event.getNom() != null) {
+            nomsCategories.put(event.getCategorieId(), event.getNom());
+        }
+        perime = true;
+    }
+    
+    @Scheduled(fixedDelayString = "${app.suggest.rebuild-delay-ms:2000}")
+    public void reconstruireSiPerime() {
+        if (perime) {
+            perime = false;
+            reconstruire();
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${app.suggest.popularity-refresh-ms:600000}", initialDelay = 0)
+    public void rafraichirPopularite() {
+        Map<Long, Integer> ventes = new HashMap<>();
+        for (Object[] ligne : orderItemRepository.sumQuantiteParProduit()) {
+            if (ligne[0] != null && ligne[1] != null) {
+                ventes.put((Long) ligne[0], ((Number) ligne[1]).intValue());
+            }
+        }
+        ventesParProduit = ventes;
+        perime = true;
+    }
+    
+    private void reconstruire() {
+        Map<Long, Integer> ventes = ventesParProduit;
+        Map<Long, Integer> popularitesCategories = new HashMap<>();
+        List<Suggestion> suggestions = new ArrayList<>();
+        IndexPrefixes.Constructeur constructeur = new IndexPrefixes.Constructeur();
+        
+        for (Map.Entry<Long, String> entry : nomsProduits.entrySet()) {
+            int popularite = ventes.getOrDefault(entry.getKey(), 0);
+            Long categorieId = categorieParProduit.get(entry.getKey());
+            if (categorieId != null) {
+                popularitesCategories.merge(categorieId, popularite + 1, Integer::sum);
+            }
+            ajouter(constructeur, suggestions, new Suggestion(entry.getValue(), TYPE_PRODUIT, entry.getKey(), popularite));
+        }
+        for (Map.Entry<Long, String> entry : nomsCategories.entrySet()) {
+            int popularite = popularitesCategories.getOrDefault(entry.getKey(), 0);
+            ajouter(constructeur, suggestions, new Suggestion(entry.getValue(), TYPE_CATEGORIE, entry.getKey(), popularite));
+        }
+        
+        instantane = new Instantane(constructeur.construire(), suggestions);
+    }
+    
+    private void ajouter(IndexPrefixes.Constructeur constructeur, List<Suggestion> suggestions, Suggestion suggestion) {
+        if (suggestion.getTexte() == null) {
+            return;
+        }
+        int numero = suggestions.size();
+        suggestions.add(suggestion);
+        String normalise = AnalyseurTexte.normaliser(suggestion.getTexte()).trim();
+        for (int i = 0; i < normalise.length(); i++) {
+            boolean debutMot = Character.isLetterOrDigit(normalise.charAt(i))
+                    && (i == 0 || !Character.isLetterOrDigit(normalise.charAt(i - 1)));
+            if (debutMot) {
+                constructeur.ajouter(normalise.substring(i), numero, suggestion.getPopularite());
+            }
+        }
+    }
+    
+    // ============ LECTURE ============
+    
+    // Les k suggestions les plus populaires pour le préfixe, sans doublon
+    public List<Suggestion> suggerer(String prefixe, int k) {
+        String normalise = AnalyseurTexte.normaliser(prefixe).trim();
+        if (normalise.isEmpty() || k <= 0) {
+            return List.of();
+        }
+        Instantane courant = instantane;
+        // Un même nom peut correspondre par plusieurs mots : l'index renvoie des entrées déjà distinctes
+        List<Suggestion> suggestions = new ArrayList<>(k);
+        for (Integer numero : courant.index.meilleurs(normalise, k)) {
+            suggestions.add(courant.suggestions.get(numero));
+        }
+        return suggestions;
+    }
+    
+    public int getNombreCles() {
+        return instantane.index.getTaille();
+    }
+    
+    private static final class Instantane {
+        private final IndexPrefixes index;
+        private final List<Suggestion> suggestions;
+        
+        private Instantane(IndexPrefixes index, List<Suggestion> suggestions) {
+            this.index = index;
+            this.suggestions = suggestions;
+        }
+    }
+    
+    public static class Suggestion {
+        private final String texte;
+        private final String type;
+        private final Long id;
+        private final int popularite;
+        
+        public Suggestion(String texte, String type, Long id, int popularite) {
+            this.texte = texte;
+            this.type = type;
+            this.id = id;
+            this.popularite = popularite;
+        }
+        
+        // Getters
+        public String getTexte() { return texte; }
+        public String getType() { return type; }
+        public Long getId() { return id; }
+        public int getPopularite() { return popularite; }
+    }
+}
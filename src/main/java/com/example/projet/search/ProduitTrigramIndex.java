@@ -0,0 +1,239 @@
+package com.example.projet.search;
+
+import com.example.projet.event.ProduitChangeEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index de trigrammes sur le nom des produits pour la recherche tolérante aux fautes de frappe.
+ * La similarité est celle de pg_trgm : trigrammes communs / trigrammes distincts des deux noms.
+ * Seuls les MAX_CANDIDATS documents partageant le plus de trigrammes sont évalués.
+ */
+@Component
+public class ProduitTrigramIndex {
+    
+    public static final double SEUIL_SIMILARITE = 0.3;
+    private static final int MAX_CANDIDATS = 200;
+    private static final int SEUIL_COMPACTAGE = 1000;
+    
+    private final ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+    private final Map<String, int[]> postings = new HashMap<>();
+    private final Map<String, Integer> taillesPostings = new HashMap<>();
+    private final Map<Long, Integer> ordinalParId = new HashMap<>();
+    private long[] idParOrdinal = new long[1024];
+    private int[] trigrammesParOrdinal = new int[1024];
+    private BitSet supprimes = new BitSet();
+    private int prochainOrdinal;
+    private int documentsSupprimes;
+    
+    // ============ MISE À JOUR ============
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProduitChange(ProduitChangeEvent event) {
+        if (event.isSuppression()) {
+            supprimer(event.getProduitId());
+        } else {
+            indexer(event.getProduitId(), event.getNom());
+        }
+    }
+    
+    public void indexer(Long produitId, String nom) {
+        Set<String> trigrammes = trigrammes(nom);
+        
+        verrou.writeLock().lock();
+        try {
+            retirer(produitId);
+            
+            int ordinal = prochainOrdinal++;
+            if (ordinal == idParOrdinal.length) {
+                idParOrdinal = Arrays.copyOf(idParOrdinal, ordinal * 2);
+                trigrammesParOrdinal = Arrays.copyOf(trigrammesParOrdinal, ordinal * 2);
+            }
+            idParOrdinal[ordinal] = produitId;
+            trigrammesParOrdinal[ordinal] = trigrammes.size();
+            ordinalParId.put(produitId, ordinal);
+            
+            for (String trigramme : trigrammes) {
+                ajouterPosting(trigramme, ordinal);
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+    
+    public void supprimer(Long produitId) {
+        verrou.writeLock().lock();
+        try {
+            retirer(produitId);
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+    
+    private void ajouterPosting(String trigramme, int ordinal) {
+        int taille = taillesPostings.getOrDefault(trigramme, 0);
+        int[] liste = postings.get(trigramme);
+        if (liste == null) {
+            liste = new int[4];
+        } else if (taille == liste.length) {
+            liste = Arrays.copyOf(liste, taille * 2);
+        }
+        liste[taille] = ordinal;
+        postings.put(trigramme, liste);
+        taillesPostings.put(trigramme, taille + 1);
+    }
+    
+    // Appelé sous verrou d'écriture
+    private void retirer(Long produitId) {
+        Integer ancien = ordinalParId.remove(produitId);
+        if (ancien == null) {
+            return;
+        }
+        supprimes.set(ancien);
+        documentsSupprimes++;
+        if (documentsSupprimes > SEUIL_COMPACTAGE && documentsSupprimes > ordinalParId.size() / 4) {
+            compacter();
+        }
+    }
+    
+    private void compacter() {
+        int[] nouvelOrdinal = new int[prochainOrdinal];
+        int vivants = 0;
+        for (int ordinal = 0; ordinal < prochainOrdinal; ordinal++) {
+            if (!supprimes.get(ordinal)) {
+                nouvelOrdinal[ordinal] = vivants++;
+            }
+        }
+        
+        long[] ids = new long[Math.max(1024, vivants * 2)];
+        int[] comptes = new int[ids.length];
+        for (int ordinal = 0; ordinal < prochainOrdinal; ordinal++) {
+            if (!supprimes.get(ordinal)) {
+                ids[nouvelOrdinal[ordinal]] = idParOrdinal[ordinal];
+                comptes[nouvelOrdinal[ordinal]] = trigrammesParOrdinal[ordinal];
+            }
+        }
+        
+        Map<String, int[]> compactes = new HashMap<>();
+        Map<String, Integer> tailles = new HashMap<>();
+        for (Map.Entry<String, int[]> entry : postings.entrySet()) {
+            int[] liste = entry.getValue();
+            int taille = taillesPostings.get(entry.getKey());
+            int[] filtree = new int[taille];
+            int n = 0;
+            for (int i = 0; i < taille; i++) {
+                if (!supprimes.get(liste[i])) {
+                    filtree[n++] = nouvelOrdinal[liste[i]];
+                }
+            }
+            if (n > 0) {
+                compactes.put(entry.getKey(), Arrays.copyOf(filtree, n));
+                tailles.put(entry.getKey(), n);
+            }
+        }
+        postings.clear();
+        postings.putAll(compactes);
+        taillesPostings.clear();
+        taillesPostings.putAll(tailles);
+        ordinalParId.replaceAll((id, ordinal) -> nouvelOrdinal[ordinal]);
+        
+        idParOrdinal = ids;
+        trigrammesParOrdinal = comptes;
+        supprimes = new BitSet();
+        prochainOrdinal = vivants;
+        documentsSupprimes = 0;
+    }
+    
+    // ============ RECHERCHE ============
+    
+    // Renvoie les ids des noms les plus proches (similarité >= SEUIL_SIMILARITE), du plus proche au moins proche
+    public List<Long> rechercher(String requete, int limite) {
+        Set<String> trigrammesRequete = trigrammes(requete);
+        if (trigrammesRequete.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+        
+        verrou.readLock().lock();
+        try {
+            int capacite = 0;
+            List<String> presents = new ArrayList<>();
+            for (String trigramme : trigrammesRequete) {
+                Integer taille = taillesPostings.get(trigramme);
+                if (taille != null) {
+                    presents.add(trigramme);
+                    capacite += taille;
+                }
+            }
+            if (presents.isEmpty()) {
+                return List.of();
+            }
+            
+            // Comptage des trigrammes partagés par document
+            ScoreAccumulateur communs = new ScoreAccumulateur(capacite);
+            for (String trigramme : presents) {
+                int[] liste = postings.get(trigramme);
+                int taille = taillesPostings.get(trigramme);
+                for (int i = 0; i < taille; i++) {
+                    if (!supprimes.get(liste[i])) {
+                        communs.ajouter(liste[i], 1f);
+                    }
+                }
+            }
+            
+            // Similarité exacte sur les candidats partageant le plus de trigrammes
+            List<double[]> resultats = new ArrayList<>();
+            for (int ordinal : communs.meilleurs(MAX_CANDIDATS)) {
+                double partages = communs.valeur(ordinal);
+                double similarite = partages / (trigrammesRequete.size() + trigrammesParOrdinal[ordinal] - partages);
+                if (similarite >= SEUIL_SIMILARITE) {
+                    resultats.add(new double[] { similarite, ordinal });
+                }
+            }
+            resultats.sort(Comparator.comparingDouble((double[] r) -> -r[0]).thenComparingDouble(r -> r[1]));
+            
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < resultats.size() && i < limite; i++) {
+                ids.add(idParOrdinal[(int) resultats.get(i)[1]]);
+            }
+            return ids;
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+    
+    // Trigrammes à la pg_trgm : chaque mot est encadré de deux espaces devant et d'un derrière
+    static Set<String> trigrammes(String texte) {
+        Set<String> trigrammes = new LinkedHashSet<>();
+        String normalise = AnalyseurTexte.normaliser(texte);
+        for (String mot : normalise.split("[^\\p{L}\\p{Nd}]+")) {
+            if (mot.isEmpty()) {
+                continue;
+            }
+            String encadre = "  " + mot + " ";
+            for (int i = 0; i + 3 <= encadre.length(); i++) {
+                trigrammes.add(encadre.substring(i, i + 3));
+            }
+        }
+        return trigrammes;
+    }
+    
+    public int getNombreDocuments() {
+        verrou.readLock().lock();
+        try {
+            return ordinalParId.size();
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+}
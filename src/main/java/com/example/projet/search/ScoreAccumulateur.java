@@ -0,0 +1,119 @@
+package com.example.projet.search;
+
+import java.util.Arrays;
+
+// Table de hachage ordinal -> score à adressage ouvert, sans boxing
+final class ScoreAccumulateur {
+    private final int[] cles;
+    private final float[] valeurs;
+    private final int masque;
+    private int taille;
+    
+    ScoreAccumulateur(int capacite) {
+        int puissance = Integer.highestOneBit(Math.max(16, capacite * 2 - 1)) << 1;
+        cles = new int[puissance];
+        valeurs = new float[puissance];
+        masque = puissance - 1;
+        Arrays.fill(cles, -1);
+    }
+    
+    void ajouter(int ordinal, float score) {
+        int i = (ordinal * 0x9E3779B9) & masque;
+        while (cles[i] != -1 && cles[i] != ordinal) {
+            i = (i + 1) & masque;
+        }
+        if (cles[i] == -1) {
+            cles[i] = ordinal;
+            taille++;
+        }
+        valeurs[i] += score;
+    }
+    
+    float valeur(int ordinal) {
+        int i = (ordinal * 0x9E3779B9) & masque;
+        while (cles[i] != -1) {
+            if (cles[i] == ordinal) {
+                return valeurs[i];
+            }
+            i = (i + 1) & masque;
+        }
+        return 0f;
+    }
+    
+    // Top-k par tas binaire minimal (égalités départagées par ordinal le plus ancien)
+    int[] meilleurs(int k) {
+        int n = Math.min(k, taille);
+        int[] tas = new int[n];
+        float[] tasScores = new float[n];
+        int rempli = 0;
+        for (int i = 0; i < cles.length; i++) {
+            if (cles[i] == -1) {
+                continue;
+            }
+            if (rempli < n) {
+                tas[rempli] = cles[i];
+                tasScores[rempli] = valeurs[i];
+                monter(tas, tasScores, rempli++);
+            } else if (meilleur(valeurs[i], cles[i], tasScores[0], tas[0])) {
+                tas[0] = cles[i];
+                tasScores[0] = valeurs[i];
+                descendre(tas, tasScores, n);
+            }
+        }
+        Integer[] ordre = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            ordre[i] = i;
+        }
+        Arrays.sort(ordre, (a, b) -> meilleur(tasScores[a], tas[a], tasScores[b], tas[b]) ? -1
+                : meilleur(tasScores[b], tas[b], tasScores[a], tas[a]) ? 1 : 0);
+        int[] resultat = new int[n];
+        for (int i = 0; i < n; i++) {
+            resultat[i] = tas[ordre[i]];
+        }
+        return resultat;
+    }
+    
+    private static boolean meilleur(float scoreA, int ordinalA, float scoreB, int ordinalB) {
+        return scoreA > scoreB || (scoreA == scoreB && ordinalA < ordinalB);
+    }
+    
+    private static void monter(int[] tas, float[] scores, int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!meilleur(scores[parent], tas[parent], scores[i], tas[i])) {
+                break;
+            }
+            echanger(tas, scores, i, parent);
+            i = parent;
+        }
+    }
+    
+    private static void descendre(int[] tas, float[] scores, int n) {
+        int i = 0;
+        while (true) {
+            int gauche = 2 * i + 1;
+            int droite = gauche + 1;
+            int pire = i;
+            if (gauche < n && meilleur(scores[pire], tas[pire], scores[gauche], tas[gauche])) {
+                pire = gauche;
+            }
+            if (droite < n && meilleur(scores[pire], tas[pire], scores[droite], tas[droite])) {
+                pire = droite;
+            }
+            if (pire == i) {
+                return;
+            }
+            echanger(tas, scores, i, pire);
+            i = pire;
+        }
+    }
+    
+    private static void echanger(int[] tas, float[] scores, int a, int b) {
+        int ordinal = tas[a];
+        tas[a] = tas[b];
+        tas[b] = ordinal;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
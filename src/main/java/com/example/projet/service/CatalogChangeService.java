@@ -0,0 +1,165 @@
+package com.example.projet.service;
+
+import com.example.projet.dto.ChangementsCatalogue;
+import com.example.projet.entity.CatalogTombstone;
+import com.example.projet.entity.Categorie;
+import com.example.projet.entity.Produit;
+import com.example.projet.repository.CatalogTombstoneRepository;
+import com.example.projet.repository.CategorieRepository;
+import com.example.projet.repository.ProduitRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Séquence de modification du catalogue (séquence PostgreSQL catalog_change_seq) partagée par
+ * les produits, les catégories et les suppressions (tombstones).
+ * Les numéros sont attribués avant le commit, donc pas forcément dans l'ordre des commits :
+ * les lectures s'arrêtent juste avant le plus petit numéro encore en vol, sinon un client
+ * pourrait avancer son "since" au-delà d'une ligne qu'il n'a pas encore pu voir.
+ */
+@Service
+public class CatalogChangeService {
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ProduitRepository produitRepository;
+    
+    @Autowired
+    private CategorieRepository categorieRepository;
+    
+    @Autowired
+    private CatalogTombstoneRepository tombstoneRepository;
+    
+    private final ConcurrentSkipListSet<Long> enVol = new ConcurrentSkipListSet<>();
+    
+    // Création de la séquence et numérotation des lignes antérieures à la synchronisation
+    @PostConstruct
+    public void initialiser() {
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS catalog_change_seq");
+        int categories = jdbcTemplate.update(
+                "UPDATE categories SET change_seq = nextval('catalog_change_seq') WHERE change_seq IS NULL");
+        int produits = jdbcTemplate.update(
+                "UPDATE produits SET change_seq = nextval('catalog_change_seq') WHERE change_seq IS NULL");
+        if (categories + produits > 0) {
+            System.out.println("✅ Séquence de modification attribuée à " + categories + " catégories et "
+                    + produits + " produits");
+        }
+    }
+    
+    // Numéro suivant, libéré de la liste "en vol" à la fin de la transaction courante
+    public synchronized long suivant() {
+        long numero = tombstoneRepository.nextChangeSeq();
+        retenirJusquALaFin(List.of(numero));
+        return numero;
+    }
+    
+    // Bloc de numéros en un seul aller-retour (mises à jour en masse)
+    public synchronized List<Long> suivants(int nombre) {
+        if (nombre <= 0) {
+            return List.of();
+        }
+        List<Long> numeros = jdbcTemplate.queryForList(
+                "SELECT nextval('catalog_change_seq') FROM generate_series(1, ?)", Long.class, nombre);
+        retenirJusquALaFin(numeros);
+        return numeros;
+    }
+    
+    private void retenirJusquALaFin(List<Long> numeros) {
+        enVol.addAll(numeros);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                // Après les écouteurs de la transaction : le flux SSE doit avoir reçu l'événement
+                @Override
+                public int getOrder() {
+                    return Ordered.LOWEST_PRECEDENCE;
+                }
+                
+                @Override
+                public void afterCompletion(int status) {
+                    enVol.removeAll(numeros);
+                }
+            });
+        } else {
+            enVol.removeAll(numeros);
+        }
+    }
+    
+    /**
+     * Plus grand numéro que les lectures peuvent couvrir. Lu sous le même verrou que suivant() :
+     * tout numéro inférieur ou égal au dernier tiré est soit encore en vol, soit déjà validé ou annulé.
+     * Jamais illimité, sinon un numéro tiré après ce calcul puis validé avant la requête (alors qu'un
+     * numéro plus petit est encore en vol) ferait avancer le "next" du client au-delà de ce dernier.
+     */
+    synchronized long filigrane() {
+        long dernier = jdbcTemplate.queryForObject(
+                "SELECT CASE WHEN is_called THEN last_value ELSE last_value - 1 END FROM catalog_change_seq", Long.class);
+        return enVol.isEmpty() ? dernier : Math.min(enVol.first() - 1, dernier);
+    }
+    
+    // Renvoie le numéro du tombstone
+    public long enregistrerSuppression(String type, Long entiteId) {
+        long numero = suivant();
+        tombstoneRepository.save(new CatalogTombstone(type, entiteId, numero));
+        return numero;
+    }
+    
+    // Renvoie les numéros des tombstones, dans l'ordre des ids
+    public List<Long> enregistrerSuppressions(String type, List<Long> entiteIds) {
+        List<Long> numeros = suivants(entiteIds.size());
+        List<CatalogTombstone> tombstones = new ArrayList<>(entiteIds.size());
+        for (int i = 0; i < entiteIds.size(); i++) {
+            tombstones.add(new CatalogTombstone(type, entiteIds.get(i), numeros.get(i)));
+        }
+        tombstoneRepository.saveAll(tombstones);
+        return numeros;
+    }
+    
+    // ============ LECTURE ============
+    
+    @Transactional(readOnly = true)
+    public ChangementsCatalogue changementsDepuis(long depuis, int limite) {
+        long jusqua = filigrane();
+        List<Produit> produits = produitRepository.findChangements(depuis, jusqua, Limit.of(limite + 1));
+        List<Categorie> categories = categorieRepository.findChangements(depuis, jusqua, Limit.of(limite + 1));
+        List<CatalogTombstone> suppressions = tombstoneRepository.findChangements(depuis, jusqua, Limit.of(limite + 1));
+        
+        // Fusion des trois flux triés : on garde les "limite" plus petits numéros
+        List<Produit> produitsLot = new ArrayList<>();
+        List<Categorie> categoriesLot = new ArrayList<>();
+        List<CatalogTombstone> suppressionsLot = new ArrayList<>();
+        int p = 0, c = 0, s = 0;
+        long next = depuis;
+        while (produitsLot.size() + categoriesLot.size() + suppressionsLot.size() < limite) {
+            long seqProduit = p < produits.size() ? produits.get(p).getChangeSeq() : Long.MAX_VALUE;
+            long seqCategorie = c < categories.size() ? categories.get(c).getChangeSeq() : Long.MAX_VALUE;
+            long seqSuppression = s < suppressions.size() ? suppressions.get(s).getChangeSeq() : Long.MAX_VALUE;
+            long min = Math.min(seqProduit, Math.min(seqCategorie, seqSuppression));
+            if (min == Long.MAX_VALUE) {
+                break;
+            }
+            if (min == seqProduit) {
+                produitsLot.add(produits.get(p++));
+            } else if (min == seqCategorie) {
+                categoriesLot.add(categories.get(c++));
+            } else {
+                suppressionsLot.add(suppressions.get(s++));
+            }
+            next = min;
+        }
+        boolean hasMore = p < produits.size() || c < categories.size() || s < suppressions.size();
+        return new ChangementsCatalogue(depuis, next, hasMore, produitsLot, categoriesLot, suppressionsLot);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.projet.service;
+
+import com.example.projet.event.CategorieChangeEvent;
+import com.example.projet.event.ProduitChangeEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version du catalogue (produits + catégories), incrémentée après le commit de chaque écriture.
+ * Elle part de l'horloge au démarrage pour ne jamais repasser par une valeur déjà servie
+ * avant un redémarrage. Les réponses GET en dérivent un ETag fort : un client à jour reçoit
+ * un 304 sans qu'aucune requête ne parte vers la base.
+ */
+@Service
+public class CatalogVersionService {
+    
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+    
+    public long getVersion() {
+        return version.get();
+    }
+    
+    // À lire AVANT de charger les données : au pire le client garde une version plus récente que son ETag
+    public String etagCatalogue() {
+        return "\"catalogue-" + version.get() + "\"";
+    }
+    
+    public String etagProduit(Long id) {
+        return "\"produit-" + id + "-" + version.get() + "\"";
+    }
+    
+    public String etagCategories() {
+        return "\"categories-" + version.get() + "\"";
+    }
+    
+    public void incrementer() {
+        version.incrementAndGet();
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProduitChange(ProduitChangeEvent event) {
+        if (!event.isChargementInitial()) {
+            incrementer();
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategorieChange(CategorieChangeEvent event) {
+        incrementer();
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.projet.service;
+
+import com.example.projet.event.ProduitChangeEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Diffusion en SSE des modifications de produits, après commit.
+ * Les modifications sont regroupées par produit (la dernière l'emporte) puis publiées par lot toutes
+ * les app.stream.coalesce-ms : une écriture en masse ne coûte qu'une entrée dans la file de chaque
+ * abonné. Chaque abonné a sa propre file bornée, vidée par un petit pool d'envoi (un seul envoi en
+ * cours par abonné) : un client lent ne bloque ni les écritures ni les autres clients. Si sa file
+ * déborde, il est déconnecté ; il se resynchronise alors via /api/produits/changes?since= à partir
+ * de l'id du dernier événement reçu. Cet id est le filigrane du catalogue au moment du lot, et non le
+ * numéro de l'événement : les numéros sont attribués avant le commit et les événements arrivent dans
+ * l'ordre des commits, seul le filigrane garantit qu'aucune modification antérieure n'a été sautée.
+ * Pour cela l'événement doit être en attente avant que son numéro ne quitte la liste "en vol" de
+ * CatalogChangeService : onProduitChange passe avant toute autre synchronisation de fin de transaction.
+ */
+@Service
+public class CatalogueStreamService {
+    
+    private static final Object BATTEMENT = new Object();
+    
+    @Autowired
+    private CatalogChangeService catalogChangeService;
+    
+    // produitId -> dernière modification non encore publiée ; sous verrou
+    private final Map<Long, Map<String, Object>> enAttente = new LinkedHashMap<>();
+    private long dernierFiligrane;
+    
+    private final Set<Abonne> abonnes = ConcurrentHashMap.newKeySet();
+    private final ExecutorService envois;
+    private final int tailleFile;
+    private final int maxAbonnes;
+    private final long timeoutMs;
+    
+    public CatalogueStreamService(@Value("${app.stream.buffer-size:256}") int tailleFile,
+                                  @Value("${app.stream.max-subscribers:500}") int maxAbonnes,
+                                  @Value("${app.stream.timeout-ms:1800000}") long timeoutMs,
+                                  @Value("${app.stream.sender-threads:4}") int threads) {
+        this.tailleFile = tailleFile;
+        this.maxAbonnes = maxAbonnes;
+        this.timeoutMs = timeoutMs;
+        this.envois = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "catalogue-sse");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    // Renvoie null si le nombre maximal d'abonnés est atteint
+    public SseEmitter abonner() {
+        if (abonnes.size() >= maxAbonnes) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Abonne abonne = new Abonne(emitter, tailleFile);
+        emitter.onCompletion(() -> abonnes.remove(abonne));
+        emitter.onTimeout(() -> abonnes.remove(abonne));
+        emitter.onError(e -> abonnes.remove(abonne));
+        abonnes.add(abonne);
+        return emitter;
+    }
+    
+    public int getNombreAbonnes() {
+        return abonnes.size();
+    }
+    
+    // ============ DIFFUSION ============
+    
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProduitChange(ProduitChangeEvent event) {
+        if (event.isChargementInitial() || abonnes.isEmpty()) {
+            return;
+        }
+        Map<String, Object> donnees = new HashMap<>();
+        donnees.put("type", event.isSuppression() ? "delete" : "upsert");
+        donnees.put("id", event.getProduitId());
+        if (!event.isSuppression()) {
+            donnees.put("nom", event.getNom());
+            donnees.put("prix", event.getPrix());
+            donnees.put("quantite", event.getQuantite());
+            donnees.put("imageUrl", event.getImageUrl());
+            donnees.put("categorieId", event.getCategorieId());
+            donnees.put("categorieNom", event.getCategorieNom());
+        }
+        // Upsert : numéro du produit ; suppression : numéro du tombstone
+        donnees.put("changeSeq", event.getChangeSeq());
+        
+        synchronized (enAttente) {
+            enAttente.put(event.getProduitId(), donnees);
+        }
+    }
+    
+    // Un lot par intervalle, quel que soit le nombre de modifications regroupées
+    @Scheduled(fixedDelayString = "${app.stream.coalesce-ms:200}")
+    public void publierLot() {
+        Lot lot = prendreLot();
+        if (lot == null || abonnes.isEmpty()) {
+            return;
+        }
+        diffuser(lot);
+    }
+    
+    // Modifications en attente et filigrane du lot ; null s'il n'y a rien à publier
+    Lot prendreLot() {
+        synchronized (enAttente) {
+            if (enAttente.isEmpty()) {
+                return null;
+            }
+        }
+        // Lu avant de vider la file : un numéro <= filigrane n'est plus en vol, donc son événement est
+        // déjà en attente et part dans ce lot (un client qui reprend ici peut revoir, jamais manquer)
+        long filigrane = Math.max(dernierFiligrane, catalogChangeService.filigrane());
+        dernierFiligrane = filigrane;
+        List<Map<String, Object>> produits;
+        synchronized (enAttente) {
+            produits = new ArrayList<>(enAttente.values());
+            enAttente.clear();
+        }
+        // Dans l'ordre des numéros de séquence, pas dans celui des commits
+        produits.sort(Comparator.comparing(donnees -> (Long) donnees.get("changeSeq"),
+                Comparator.nullsLast(Comparator.naturalOrder())));
+        return new Lot(produits, filigrane);
+    }
+    
+    // Garde les connexions ouvertes à travers les proxys et détecte les clients partis
+    @Scheduled(fixedDelayString = "${app.stream.heartbeat-ms:20000}")
+    public void battement() {
+        diffuser(BATTEMENT);
+    }
+    
+    private void diffuser(Object message) {
+        for (Abonne abonne : abonnes) {
+            if (!abonne.file.offer(message)) {
+                // Consommateur trop lent : on le déconnecte plutôt que de bufferiser sans limite
+                abonnes.remove(abonne);
+                abonne.emitter.complete();
+                continue;
+            }
+            planifier(abonne);
+        }
+    }
+    
+    private void planifier(Abonne abonne) {
+        if (abonne.envoiEnCours.compareAndSet(false, true)) {
+            envois.execute(() -> vider(abonne));
+        }
+    }
+    
+    private void vider(Abonne abonne) {
+        try {
+            Object message;
+            while ((message = abonne.file.poll()) != null) {
+                if (message == BATTEMENT) {
+                    abonne.emitter.send(SseEmitter.event().comment("ping"));
+                    continue;
+                }
+                Lot lot = (Lot) message;
+                for (int i = 0; i < lot.produits.size(); i++) {
+                    abonne.emitter.send(construire(lot, i));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            abonnes.remove(abonne);
+            abonne.emitter.completeWithError(e);
+            return;
+        } finally {
+            abonne.envoiEnCours.set(false);
+        }
+        // Un message arrivé entre le dernier poll et la libération doit repartir
+        if (!abonne.file.isEmpty()) {
+            planifier(abonne);
+        }
+    }
+    
+    // Un SseEventBuilder ne se réutilise pas : on le reconstruit pour chaque abonné.
+    // Seul le dernier événement du lot porte l'id : reprendre avant la fin du lot le rejoue en entier.
+    private static SseEmitter.SseEventBuilder construire(Lot lot, int rang) {
+        SseEmitter.SseEventBuilder evenement = SseEmitter.event().name("produit").data(lot.produits.get(rang));
+        if (rang == lot.produits.size() - 1) {
+            evenement.id(String.valueOf(lot.filigrane));
+        }
+        return evenement;
+    }
+    
+    @PreDestroy
+    public void arreter() {
+        envois.shutdownNow();
+        for (Abonne abonne : abonnes) {
+            abonne.emitter.complete();
+        }
+        abonnes.clear();
+    }
+    
+    static final class Lot {
+        final List<Map<String, Object>> produits;
+        final long filigrane;
+        
+        private Lot(List<Map<String, Object>> produits, long filigrane) {
+            this.produits = produits;
+            this.filigrane = filigrane;
+        }
+    }
+    
+    private static final class Abonne {
+        private final SseEmitter emitter;
+        private final Queue<Object> file;
+        private final AtomicBoolean envoiEnCours = new AtomicBoolean();
+        
+        private Abonne(SseEmitter emitter, int tailleFile) {
+            this.emitter = emitter;
+            this.file = new ArrayBlockingQueue<>(tailleFile);
+        }
+    }
+}
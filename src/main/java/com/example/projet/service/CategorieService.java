@@ -1,36 +1,84 @@
 package com.example.projet.service;
 
+import com.example.projet.cache.CategorieCache;
+import com.example.projet.entity.CatalogTombstone;
 import com.example.projet.entity.Categorie;
+import com.example.projet.event.CategorieChangeEvent;
+import com.example.projet.repository.CategorieCompteurRepository;
 import com.example.projet.repository.CategorieRepository;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
+@Transactional
 public class CategorieService {
     
     @Autowired
     private CategorieRepository categorieRepository;
     
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private CatalogChangeService catalogChangeService;
+    
+    @Autowired
+    private CategorieCompteurRepository categorieCompteurRepository;
+    
+    @Autowired
+    private CategorieCache categorieCache;
+    
+    // Remet les compteurs d'accord avec la table produits (données antérieures, écritures hors application)
+    @PostConstruct
+    public void recalculerCompteurs() {
+        int categories = categorieCompteurRepository.recalculer();
+        System.out.println("✅ Compteurs de produits recalculés pour " + categories + " catégories");
+    }
+    
     public Categorie saveCategorie(Categorie categorie) {
-        return categorieRepository.save(categorie);
+        categorie.setChangeSeq(catalogChangeService.suivant());
+        Categorie saved = categorieRepository.save(categorie);
+        eventPublisher.publishEvent(new CategorieChangeEvent(saved.getId(), saved.getNom(), false));
+        return saved;
     }
     
+    // Instantané immuable partagé : ne pas modifier la liste ni ses éléments
     public List<Categorie> getAllCategories() {
-        return categorieRepository.findAll();
+        return categorieCache.getToutes();
+    }
+    
+    // Appelé dans la transaction de l'écriture produit : deltas categorieId -> { produits, en stock }
+    public void ajusterCompteurs(Map<Long, int[]> deltas) {
+        categorieCompteurRepository.ajuster(deltas);
     }
     
+    // Une catégorie en cours de suppression n'est plus visible
     public Optional<Categorie> getCategorieById(Long id) {
-        return categorieRepository.findById(id);
+        return categorieRepository.findById(id).filter(categorie -> !categorie.isSupprimee());
     }
     
-    public void deleteCategorie(Long id) {
-        categorieRepository.deleteById(id);
+    /**
+     * Marque la catégorie supprimée et rend la main aussitôt : elle disparaît des listes et du flux de
+     * changements, et SuppressionCategorieWorker purge ensuite ses produits par lots. Renvoie false si
+     * la catégorie n'existe pas ou est déjà en cours de suppression.
+     */
+    public boolean deleteCategorie(Long id) {
+        if (categorieRepository.marquerSupprimee(id) == 0) {
+            return false;
+        }
+        catalogChangeService.enregistrerSuppression(CatalogTombstone.TYPE_CATEGORIE, id);
+        eventPublisher.publishEvent(new CategorieChangeEvent(id, null, true));
+        return true;
     }
     
     public List<Categorie> searchCategories(String keyword) {
-        return categorieRepository.findByNomContaining(keyword);
+        return categorieRepository.findByNomContainingAndSupprimeeFalse(keyword);
     }
     
-}
\ No newline at end of file
+}
@@ -0,0 +1,90 @@
+package com.example.projet.service;
+
+import com.example.projet.cache.TableInventaire;
+import com.example.projet.entity.Produit;
+import com.example.projet.event.ProduitChangeEvent;
+import com.example.projet.repository.ProduitRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Optional;
+
+/**
+ * Stock disponible par produit, tenu en mémoire dans une TableInventaire. La table est remplie par
+ * le chargement initial du catalogue puis suit chaque écriture après commit ; la base reste la
+ * référence et les quantités y sont toujours écrites par ProduitService. Les réservations ne vivent
+ * qu'en mémoire, le temps de passer une commande.
+ */
+@Component
+public class InventaireStock {
+    
+    @Autowired
+    private ProduitRepository produitRepository;
+    
+    private final TableInventaire table = new TableInventaire();
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProduitChange(ProduitChangeEvent event) {
+        if (event.isSuppression()) {
+            table.supprimer(event.getProduitId());
+        } else {
+            table.definirStock(event.getProduitId(), event.getQuantite() != null ? event.getQuantite() : 0);
+        }
+    }
+    
+    // Quantité disponible (stock moins réservations), 0 pour un produit inexistant
+    public int disponible(Long produitId) {
+        if (produitId == null || produitId <= 0) {
+            return 0;
+        }
+        int disponible = table.disponible(produitId);
+        if (disponible != TableInventaire.INCONNU) {
+            return disponible;
+        }
+        // Produit pas encore chargé : relu une fois en base
+        Integer quantite = produitRepository.findById(produitId).map(p -> p.getQuantite() != null ? p.getQuantite() : 0).orElse(null);
+        if (quantite == null) {
+            return 0;
+        }
+        table.chargerSiAbsent(produitId, quantite);
+        disponible = table.disponible(produitId);
+        return disponible != TableInventaire.INCONNU ? disponible : quantite;
+    }
+    
+    // Produit connu de la table ou présent en base (chargé au passage)
+    public boolean existe(Long produitId) {
+        if (produitId == null || produitId <= 0) {
+            return false;
+        }
+        if (table.stock(produitId) != TableInventaire.INCONNU) {
+            return true;
+        }
+        Optional<Produit> produit = produitRepository.findById(produitId);
+        produit.ifPresent(p -> table.chargerSiAbsent(produitId, p.getQuantite() != null ? p.getQuantite() : 0));
+        return produit.isPresent();
+    }
+    
+    public boolean estDisponible(Long produitId, int quantite) {
+        return disponible(produitId) >= quantite;
+    }
+    
+    public boolean reserver(Long produitId, int quantite) {
+        if (produitId == null || produitId <= 0) {
+            return false;
+        }
+        if (table.reserver(produitId, quantite)) {
+            return true;
+        }
+        // Id inconnu : chargement depuis la base puis nouvel essai
+        return table.stock(produitId) == TableInventaire.INCONNU
+                && disponible(produitId) >= quantite
+                && table.reserver(produitId, quantite);
+    }
+    
+    public void liberer(Long produitId, int quantite) {
+        if (produitId != null && produitId > 0) {
+            table.liberer(produitId, quantite);
+        }
+    }
+}
@@ -46,7 +46,8 @@ public class OrderItemService {
         // Vérifier si le produit est déjà dans la commande
         List<OrderItem> existingItems = orderItemRepository.findByOrder(order);
         for (OrderItem item : existingItems) {
-            if (item.getProduit().getId().equals(produitId)) {
+            // Ligne d'un produit purgé avec sa catégorie : produit_id remis à NULL
+            if (item.getProduit() != null && item.getProduit().getId().equals(produitId)) {
                 // Mettre à jour la quantité
                 item.setQuantite(item.getQuantite() + quantite);
                 orderItemRepository.save(item);
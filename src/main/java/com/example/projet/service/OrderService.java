@@ -5,6 +5,9 @@ import com.example.projet.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
@@ -20,6 +23,12 @@ public class OrderService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private ProduitService produitService;
+    
+    @Autowired
+    private InventaireStock inventaireStock;
+    
 
     
     // Créer une commande à partir du panier
@@ -34,6 +43,25 @@ public class OrderService {
             throw new RuntimeException("Le panier est vide");
         }
         
+        // Réserver le stock de chaque ligne : deux commandes simultanées ne peuvent pas vendre la même unité.
+        // Les réservations sont rendues en fin de transaction, après la mise à jour du stock en mémoire par le commit.
+        Map<Long, Integer> reservations = new LinkedHashMap<>();
+        libererEnFinDeTransaction(reservations);
+        StringBuilder stockErrors = new StringBuilder();
+        for (PanierItem item : panier.getItems()) {
+            Produit produit = item.getProduit();
+            if (inventaireStock.reserver(produit.getId(), item.getQuantite())) {
+                reservations.merge(produit.getId(), item.getQuantite(), Integer::sum);
+            } else {
+                stockErrors.append("Stock insuffisant pour: ").append(produit.getNom())
+                          .append(" (demandé: ").append(item.getQuantite())
+                          .append(", disponible: ").append(inventaireStock.disponible(produit.getId())).append(")\n");
+            }
+        }
+        if (stockErrors.length() > 0) {
+            throw new RuntimeException(stockErrors.toString());
+        }
+        
         // Créer la commande
         Order order = new Order(user);
         order.setShippingAddress(shippingAddress);
@@ -56,12 +84,30 @@ public class OrderService {
         // Sauvegarder la commande
         Order savedOrder = orderRepository.save(order);
         
+        // Sortir les quantités commandées du stock (les index et le suivi du stock faible suivent après commit) ;
+        // un décrément refusé annule toute la commande, quel que soit le point d'entrée (web ou REST)
+        for (OrderItem item : savedOrder.getItems()) {
+            Produit produit = produitService.diminuerQuantite(item.getProduit().getId(), item.getQuantite());
+            if (produit == null) {
+                throw new RuntimeException("Produit non trouvé: " + item.getProduit().getId());
+            }
+        }
+        
         // Vider le panier
         panierService.clearPanier(userId);
         
         return savedOrder;
     }
     
+    private void libererEnFinDeTransaction(Map<Long, Integer> reservations) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                reservations.forEach(inventaireStock::liberer);
+            }
+        });
+    }
+    
     // Récupérer les commandes d'un utilisateur
     public List<Order> getUserOrders(Long userId) {
         return orderRepository.findByUserId(userId);
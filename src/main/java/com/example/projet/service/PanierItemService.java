@@ -1,7 +1,10 @@
 package com.example.projet.service;
 
 import com.example.projet.entity.*;
+import com.example.projet.panier.MoteurPanier;
+import com.example.projet.panier.ReglesPanier;
 import com.example.projet.repository.*;
+import com.example.projet.repository.PanierItemUpsertRepository.ResultatAjout;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,7 +24,13 @@ public class PanierItemService {
     @Autowired
     private ProduitRepository produitRepository;
     
-
+    @Autowired
+    private PanierItemUpsertRepository panierItemUpsertRepository;
+    
+    // Écritures SQL directes ci-dessous : l'état éventuellement gardé en mémoire est d'abord écrit et oublié
+    @Autowired
+    private MoteurPanier moteurPanier;
+    
     
     // ============ MÉTHODES DE RÉCUPÉRATION ============
     
@@ -63,62 +72,47 @@ public class PanierItemService {
         return panierItemRepository.existsByPanierAndProduit(panier, produit);
     }
     
-    // Compter le nombre d'items dans un panier
+    // Compter le nombre d'items dans un panier (compteur maintenu sur le panier)
     public Long countPanierItems(Long panierId) {
-        return panierItemRepository.countByPanierId(panierId);
+        return (long) getPanier(panierId).getLineCount();
     }
     
-    // Calculer le total du panier
+    // Calculer le total du panier (sous-total maintenu sur le panier)
     public Double calculatePanierTotal(Long panierId) {
-        Double total = panierItemRepository.calculatePanierTotal(panierId);
-        return total != null ? total : 0.0;
+        return getPanier(panierId).getSubtotal();
+    }
+    
+    private Panier getPanier(Long panierId) {
+        return panierRepository.findById(panierId)
+            .orElseThrow(() -> new RuntimeException("Panier non trouvé"));
     }
     
     // ============ MÉTHODES D'ACTION ============
     
-    // Ajouter un produit au panier
+    // Ajouter un produit au panier : insertion ou incrément atomique en base (contrôle du stock et totaux compris)
     @Transactional
     public PanierItem addToPanier(Long panierId, Long produitId, Integer quantite) {
-        Panier panier = panierRepository.findById(panierId)
-            .orElseThrow(() -> new RuntimeException("Panier non trouvé"));
-        
-        Produit produit = produitRepository.findById(produitId)
-            .orElseThrow(() -> new RuntimeException("Produit non trouvé"));
-        
-        // Vérifier le stock
-        if (produit.getQuantite() < quantite) {
-            throw new RuntimeException("Stock insuffisant. Disponible: " + produit.getQuantite());
-        }
-        
-        // Vérifier si le produit est déjà dans le panier
-        Optional<PanierItem> existingItem = panierItemRepository.findByPanierAndProduit(panier, produit);
-        
-        if (existingItem.isPresent()) {
-            // Mettre à jour la quantité
-            PanierItem item = existingItem.get();
-            int nouvelleQuantite = item.getQuantite() + quantite;
-            
-            if (produit.getQuantite() < nouvelleQuantite) {
-                throw new RuntimeException("Stock insuffisant. Disponible: " + produit.getQuantite());
-            }
-            
-            item.setQuantite(nouvelleQuantite);
-            return panierItemRepository.save(item);
-        } else {
-            // Créer un nouvel item
-            PanierItem newItem = new PanierItem(panier, produit, quantite);
-            return panierItemRepository.save(newItem);
+        ReglesPanier.verifierQuantite(quantite);
+        moteurPanier.liberer(panierId);
+        ResultatAjout resultat = panierItemUpsertRepository.ajouterParPanier(panierId, produitId, quantite);
+        if (!resultat.isPanierTrouve()) {
+            throw new RuntimeException("Panier non trouvé");
         }
+        ReglesPanier.verifierAjout(resultat);
+        return getPanierItemById(resultat.getItemId());
     }
     
     // Mettre à jour la quantité d'un item
     @Transactional
     public PanierItem updatePanierItemQuantite(Long itemId, Integer nouvelleQuantite) {
         PanierItem item = getPanierItemById(itemId);
+        moteurPanier.liberer(item.getPanier().getId());
         
+        Long panierId = item.getPanier().getId();
         if (nouvelleQuantite <= 0) {
             // Supprimer l'item si quantité <= 0
             panierItemRepository.delete(item);
+            panierRepository.recalculerTotaux(List.of(panierId));
             return null;
         }
         
@@ -129,12 +123,15 @@ public class PanierItemService {
         }
         
         item.setQuantite(nouvelleQuantite);
-        return panierItemRepository.save(item);
+        PanierItem saved = panierItemRepository.save(item);
+        panierRepository.recalculerTotaux(List.of(panierId));
+        return saved;
     }
     
     // Supprimer un item du panier
     @Transactional
     public void removeFromPanier(Long panierId, Long produitId) {
+        moteurPanier.liberer(panierId);
         Panier panier = panierRepository.findById(panierId)
             .orElseThrow(() -> new RuntimeException("Panier non trouvé"));
         
@@ -142,19 +139,25 @@ public class PanierItemService {
             .orElseThrow(() -> new RuntimeException("Produit non trouvé"));
         
         panierItemRepository.deleteByPanierAndProduit(panier, produit);
+        panierRepository.recalculerTotaux(List.of(panierId));
     }
     
     // Supprimer un item par ID
     @Transactional
     public void deletePanierItem(Long itemId) {
         PanierItem item = getPanierItemById(itemId);
+        Long panierId = item.getPanier().getId();
+        moteurPanier.liberer(panierId);
         panierItemRepository.delete(item);
+        panierRepository.recalculerTotaux(List.of(panierId));
     }
     
     // Vider le panier
     @Transactional
     public void clearPanier(Long panierId) {
+        moteurPanier.liberer(panierId);
         panierItemRepository.deleteByPanierId(panierId);
+        panierRepository.recalculerTotaux(List.of(panierId));
     }
     
     // Vider le panier d'un utilisateur
@@ -163,7 +166,9 @@ public class PanierItemService {
         Panier panier = panierRepository.findByUserId(userId)
             .orElseThrow(() -> new RuntimeException("Panier non trouvé"));
         
+        moteurPanier.liberer(panier.getId());
         panierItemRepository.deleteByPanier(panier);
+        panierRepository.recalculerTotaux(List.of(panier.getId()));
     }
     
     // ============ MÉTHODES DE STATISTIQUES ============
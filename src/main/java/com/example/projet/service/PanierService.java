@@ -1,10 +1,20 @@
 package com.example.projet.service;
 
+import com.example.projet.cache.ProduitCache;
+import com.example.projet.dto.OperationPanier;
+import com.example.projet.dto.ResultatOperationPanier;
 import com.example.projet.entity.*;
 import com.example.projet.repository.*;
+import com.example.projet.panier.ContenuPanier;
+import com.example.projet.panier.MoteurPanier;
+import com.example.projet.panier.PaniersInvites;
+import com.example.projet.panier.ReglesPanier;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -24,12 +34,44 @@ public class PanierService {
     @Autowired
     private ProduitRepository produitRepository;
     
+    @Autowired
+    private InventaireStock inventaireStock;
+    
     @Autowired
     private UserRepository userRepository;
     
     @Autowired
     private PanierItemService panierItemService;
     
+    @Autowired
+    private PanierItemUpsertRepository panierItemUpsertRepository;
+    
+    @Autowired
+    private MoteurPanier moteurPanier;
+    
+    @Autowired
+    private PaniersInvites paniersInvites;
+    
+    @Autowired
+    private PanierEcritureRepository panierEcritureRepository;
+    
+    @Autowired
+    private ProduitCache produitCache;
+    
+    // Lignes en double d'avant l'index unique (panier_id, produit_id) : fusionnées une fois au démarrage
+    @PostConstruct
+    public void initialiser() {
+        int fusionnees = panierItemUpsertRepository.fusionnerDoublons();
+        if (fusionnees > 0) {
+            System.out.println("✅ " + fusionnees + " lignes de panier en double fusionnées");
+        }
+        // Totaux des paniers (sous-total, lignes, unités) : remplis ou rattrapés depuis les lignes
+        int recalcules = panierRepository.recalculerTousLesTotaux();
+        if (recalcules > 0) {
+            System.out.println("✅ Totaux recalculés pour " + recalcules + " paniers");
+        }
+    }
+    
     // ============ MÉTHODES DE BASE ============
     
     // Récupérer un panier par ID
@@ -38,8 +80,9 @@ public class PanierService {
             .orElseThrow(() -> new RuntimeException("Panier non trouvé"));
     }
     
-    // Récupérer le panier d'un utilisateur
+    // Récupérer le panier d'un utilisateur (modifications en attente du moteur écrites au préalable)
     public Panier getPanierByUserId(Long userId) {
+        moteurPanier.synchroniser(userId);
         return panierRepository.findByUserId(userId)
             .orElseGet(() -> createPanier(userId));
     }
@@ -70,6 +113,7 @@ public class PanierService {
     // Supprimer un panier
     @Transactional
     public void deletePanier(Long panierId) {
+        moteurPanier.liberer(panierId);
         Panier panier = getPanierById(panierId);
         panierItemService.clearPanier(panierId); // Vider d'abord les items
         panierRepository.delete(panier);
@@ -86,112 +130,80 @@ public class PanierService {
     // Ajouter un produit au panier
     @Transactional
     public Panier addToPanier(Long userId, Long produitId, Integer quantite) {
-        Panier panier = getPanierByUserId(userId);
-        Produit produit = produitRepository.findById(produitId)
-            .orElseThrow(() -> new RuntimeException("Produit non trouvé"));
-        
-        // Vérifier la disponibilité du stock
-        if (produit.getQuantite() < quantite) {
-            throw new RuntimeException("Stock insuffisant. Disponible: " + produit.getQuantite());
-        }
-        
-        // Vérifier si le produit est déjà dans le panier
-        Optional<PanierItem> existingItem = panierItemRepository.findByPanierAndProduit(panier, produit);
-        
-        if (existingItem.isPresent()) {
-            // Mettre à jour la quantité
-            PanierItem item = existingItem.get();
-            int nouvelleQuantite = item.getQuantite() + quantite;
-            
-            if (produit.getQuantite() < nouvelleQuantite) {
-                throw new RuntimeException("Stock insuffisant. Disponible: " + produit.getQuantite());
-            }
-            
-            item.setQuantite(nouvelleQuantite);
-            panierItemRepository.save(item);
-        } else {
-            // Ajouter un nouvel item
-            PanierItem newItem = new PanierItem(panier, produit, quantite);
-            panier.addItem(newItem);
-            panierItemRepository.save(newItem);
-        }
-        
-        // Mettre à jour la date de modification
-        panier.setUpdatedAt(LocalDateTime.now());
-        
-        return panierRepository.save(panier);
+        ajouterAuPanier(userId, produitId, quantite);
+        return panierApresModification(userId);
+    }
+    
+    // Ajout via le moteur de panier (app.panier.engine) ; renvoie la quantité de la ligne
+    public int ajouterAuPanier(Long userId, Long produitId, Integer quantite) {
+        ReglesPanier.verifierQuantite(quantite);
+        return moteurPanier.ajouter(userId, produitId, quantite);
     }
     
     // Mettre à jour la quantité d'un produit dans le panier
     @Transactional
     public Panier updatePanierItem(Long userId, Long produitId, Integer quantite) {
-        Panier panier = getPanierByUserId(userId);
-        Produit produit = produitRepository.findById(produitId)
-            .orElseThrow(() -> new RuntimeException("Produit non trouvé"));
-        
-        PanierItem item = panierItemRepository.findByPanierAndProduit(panier, produit)
-            .orElseThrow(() -> new RuntimeException("Produit non trouvé dans le panier"));
-        
-        if (quantite <= 0) {
-            // Supprimer l'item si quantité <= 0
-            panier.removeItem(item);
-            panierItemRepository.delete(item);
-        } else {
-            // Vérifier le stock
-            if (produit.getQuantite() < quantite) {
-                throw new RuntimeException("Stock insuffisant. Disponible: " + produit.getQuantite());
-            }
-            
-            // Mettre à jour la quantité
-            item.setQuantite(quantite);
-            panierItemRepository.save(item);
-        }
-        
-        // Mettre à jour la date de modification
-        panier.setUpdatedAt(LocalDateTime.now());
-        
-        return panierRepository.save(panier);
+        moteurPanier.modifier(userId, produitId, quantite);
+        return panierApresModification(userId);
     }
     
     // Retirer un produit du panier
     @Transactional
     public Panier removeFromPanier(Long userId, Long produitId) {
-        Panier panier = getPanierByUserId(userId);
-        Produit produit = produitRepository.findById(produitId)
-            .orElseThrow(() -> new RuntimeException("Produit non trouvé"));
-        
-        PanierItem item = panierItemRepository.findByPanierAndProduit(panier, produit)
-            .orElseThrow(() -> new RuntimeException("Produit non trouvé dans le panier"));
-        
-        panier.removeItem(item);
-        panierItemRepository.delete(item);
-        
-        // Mettre à jour la date de modification
-        panier.setUpdatedAt(LocalDateTime.now());
-        
-        return panierRepository.save(panier);
+        moteurPanier.retirer(userId, produitId);
+        return panierApresModification(userId);
+    }
+    
+    // Panier renvoyé après une modification : vue en mémoire du moteur write-behind (sans écriture en base
+    // ni relecture), sinon relu en base
+    private Panier panierApresModification(Long userId) {
+        ContenuPanier contenu = moteurPanier.contenu(userId);
+        if (contenu == null) {
+            return getPanierByUserId(userId);
+        }
+        Panier panier = vuePanier(contenu.getLignes());
+        panier.setId(contenu.getPanierId());
+        return panier;
     }
     
     // Vider complètement le panier
     @Transactional
     public void clearPanier(Long userId) {
-        Panier panier = getPanierByUserId(userId);
-        panierItemRepository.deleteByPanier(panier);
-        panier.getItems().clear();
-        
-        // Mettre à jour la date de modification
-        panier.setUpdatedAt(LocalDateTime.now());
+        moteurPanier.vider(userId);
+    }
+    
+    // Lot d'opérations (ajout, modification, retrait) en une transaction ; le panier renvoyé porte les nouveaux totaux
+    @Transactional
+    public Map<String, Object> appliquerOperations(Long userId, List<OperationPanier> operations) {
+        List<ResultatOperationPanier> resultats = moteurPanier.appliquer(userId, operations);
+        long reussies = resultats.stream().filter(ResultatOperationPanier::isOk).count();
         
-        panierRepository.save(panier);
+        Map<String, Object> result = new HashMap<>();
+        result.put("panier", panierApresModification(userId));
+        result.put("resultats", resultats);
+        result.put("total", resultats.size());
+        result.put("reussies", reussies);
+        result.put("echecs", resultats.size() - reussies);
+        return result;
     }
     
     // ============ CALCULS ET STATISTIQUES ============
     
+    // Totaux maintenus du panier, lus en une ligne : [subtotal, lineCount, unitCount].
+    // Moteur write-behind : calculés sur le panier en mémoire, sans l'écrire en base
+    private Object[] getTotaux(Long userId) {
+        ContenuPanier contenu = moteurPanier.contenu(userId);
+        if (contenu != null) {
+            Panier vue = vuePanier(contenu.getLignes());
+            return new Object[] { vue.getSubtotal(), vue.getLineCount(), vue.getUnitCount() };
+        }
+        List<Object[]> totaux = panierRepository.findTotauxByUserId(userId);
+        return totaux.isEmpty() ? new Object[] { 0.0, 0, 0 } : totaux.get(0);
+    }
+    
     // Calculer le total du panier
     public Double calculatePanierTotal(Long userId) {
-        Panier panier = getPanierByUserId(userId);
-        Double total = panierItemRepository.calculatePanierTotal(panier.getId());
-        return total != null ? total : 0.0;
+        return ((Number) getTotaux(userId)[0]).doubleValue();
     }
     
     // Calculer le total du panier avec TVA
@@ -211,17 +223,12 @@ public class PanierService {
     
     // Compter le nombre d'articles dans le panier
     public Integer countPanierItems(Long userId) {
-        Panier panier = getPanierByUserId(userId);
-        Long count = panierItemRepository.countByPanierId(panier.getId());
-        return count != null ? count.intValue() : 0;
+        return ((Number) getTotaux(userId)[1]).intValue();
     }
     
     // Compter le nombre total de produits (quantité totale)
     public Integer countTotalProducts(Long userId) {
-        Panier panier = getPanierByUserId(userId);
-        return panier.getItems().stream()
-            .mapToInt(PanierItem::getQuantite)
-            .sum();
+        return ((Number) getTotaux(userId)[2]).intValue();
     }
     
     // Vérifier si le panier est vide
@@ -267,18 +274,19 @@ public class PanierService {
         // Vérifier le stock pour chaque produit
         for (PanierItem item : panier.getItems()) {
             Produit produit = item.getProduit();
-            if (produit.getQuantite() < item.getQuantite()) {
+            int disponible = inventaireStock.disponible(produit.getId());
+            if (disponible < item.getQuantite()) {
                 Map<String, Object> error = new HashMap<>();
                 error.put("produitId", produit.getId());
                 error.put("produitNom", produit.getNom());
                 error.put("demande", item.getQuantite());
-                error.put("disponible", produit.getQuantite());
+                error.put("disponible", disponible);
                 error.put("message", "Stock insuffisant pour " + produit.getNom());
                 errors.add(error);
             }
             
             // Vérifier si le produit a du stock (au moins 1)
-            if (produit.getQuantite() <= 0) {
+            if (disponible <= 0) {
                 Map<String, Object> error = new HashMap<>();
                 error.put("produitId", produit.getId());
                 error.put("produitNom", produit.getNom());
@@ -307,6 +315,8 @@ public class PanierService {
     public Panier transferPanier(Long fromUserId, Long toUserId) {
         Panier fromPanier = getPanierByUserId(fromUserId);
         Panier toPanier = getPanierByUserId(toUserId);
+        moteurPanier.liberer(fromPanier.getId());
+        moteurPanier.liberer(toPanier.getId());
         
         // Si le panier de destination est vide, simplement l'assigner
         if (toPanier.getItems().isEmpty()) {
@@ -347,12 +357,16 @@ public class PanierService {
         // Mettre à jour la date de modification
         toPanier.setUpdatedAt(LocalDateTime.now());
         
-        return panierRepository.save(toPanier);
+        panierRepository.save(toPanier);
+        panierRepository.recalculerTotaux(List.of(toPanier.getId()));
+        return getPanierById(toPanier.getId());
     }
     
     // Fusionner deux paniers
     @Transactional
     public Panier mergePaniers(Long panierId1, Long panierId2) {
+        moteurPanier.liberer(panierId1);
+        moteurPanier.liberer(panierId2);
         Panier panier1 = getPanierById(panierId1);
         Panier panier2 = getPanierById(panierId2);
         
@@ -385,7 +399,9 @@ public class PanierService {
         // Mettre à jour la date de modification
         panier1.setUpdatedAt(LocalDateTime.now());
         
-        return panierRepository.save(panier1);
+        panierRepository.save(panier1);
+        panierRepository.recalculerTotaux(List.of(panierId1));
+        return getPanierById(panierId1);
     }
     
     // ============ STATISTIQUES ET RAPPORTS ============
@@ -398,9 +414,9 @@ public class PanierService {
         Map<String, Object> stats = new HashMap<>();
         stats.put("panierId", panier.getId());
         stats.put("userId", userId);
-        stats.put("itemCount", items.size());
-        stats.put("totalQuantity", countTotalProducts(userId));
-        stats.put("totalAmount", calculatePanierTotal(userId));
+        stats.put("itemCount", panier.getLineCount());
+        stats.put("totalQuantity", panier.getUnitCount());
+        stats.put("totalAmount", panier.getSubtotal());
         stats.put("createdAt", panier.getCreatedAt());
         stats.put("updatedAt", panier.getUpdatedAt());
         stats.put("isEmpty", items.isEmpty());
@@ -434,9 +450,9 @@ public class PanierService {
     // Générer un récapitulatif du panier pour affichage
     public Map<String, Object> getPanierSummary(Long userId) {
         Panier panier = getPanierByUserId(userId);
-        Double total = calculatePanierTotal(userId);
-        Integer itemCount = countPanierItems(userId);
-        Integer totalQuantity = countTotalProducts(userId);
+        Double total = panier.getSubtotal();
+        Integer itemCount = panier.getLineCount();
+        Integer totalQuantity = panier.getUnitCount();
         
         Map<String, Object> summary = new HashMap<>();
         summary.put("panierId", panier.getId());
@@ -483,55 +499,73 @@ public class PanierService {
         panierRepository.save(panier);
     }
     
-    // Récupérer ou créer un panier pour un utilisateur non connecté (guest)
+    // Panier d'un visiteur non connecté (guest) : vue non persistée du panier en mémoire de sa session
     public Panier getOrCreateGuestPanier(String sessionId) {
-        // Rechercher un panier existant pour cette session
-        // (Implémentation simplifiée - vous pourriez stocker cela différemment)
-        try {
-            return panierRepository.findByUserId(-1L) // ID spécial pour les guests
-                .orElseGet(() -> {
-                    // Créer un utilisateur temporaire pour le guest
-                    User guestUser = new User();
-                    guestUser.setUsername("guest_" + sessionId);
-                    guestUser.setEmail("guest@example.com");
-                    guestUser.setPassword("guest");
-                    guestUser.setRole("GUEST");
-                    guestUser.setActive(true);
-                    User savedUser = userRepository.save(guestUser);
-                    
-                    return createPanier(savedUser.getId());
-                });
-        } catch (Exception e) {
-            // En cas d'erreur, créer un panier avec un utilisateur par défaut
-            User guestUser = new User();
-            guestUser.setUsername("guest_" + sessionId);
-            guestUser.setEmail("guest@example.com");
-            guestUser.setPassword("guest");
-            guestUser.setRole("GUEST");
-            guestUser.setActive(true);
-            User savedUser = userRepository.save(guestUser);
-            
-            return createPanier(savedUser.getId());
+        return vuePanier(paniersInvites.lignes(sessionId));
+    }
+    
+    // Panier non persisté construit sur des lignes en mémoire et les produits du cache ; totaux calculés ici
+    private Panier vuePanier(Map<Long, Integer> lignes) {
+        Panier panier = new Panier();
+        Map<Long, Produit> produits = produitCache.findAllById(lignes.keySet());
+        double sousTotal = 0;
+        int unites = 0;
+        for (Map.Entry<Long, Integer> ligne : lignes.entrySet()) {
+            Produit produit = produits.get(ligne.getKey());
+            if (produit != null) {
+                panier.getItems().add(new PanierItem(panier, produit, ligne.getValue()));
+                sousTotal += (produit.getPrix() != null ? produit.getPrix() : 0) * ligne.getValue();
+                unites += ligne.getValue();
+            }
         }
+        panier.setTotaux(sousTotal, panier.getItems().size(), unites);
+        return panier;
     }
     
-    // Synchroniser le panier guest avec un utilisateur connecté
+    public int ajouterAuPanierInvite(String sessionId, Long produitId, Integer quantite) {
+        return paniersInvites.ajouter(sessionId, produitId, quantite);
+    }
+    
+    public void updatePanierInvite(String sessionId, Long produitId, Integer quantite) {
+        paniersInvites.modifier(sessionId, produitId, quantite);
+    }
+    
+    public void removeFromPanierInvite(String sessionId, Long produitId) {
+        paniersInvites.retirer(sessionId, produitId);
+    }
+    
+    public void clearPanierInvite(String sessionId) {
+        paniersInvites.vider(sessionId);
+    }
+    
+    // Synchroniser le panier guest avec un utilisateur connecté : une seule requête de fusion, puis les totaux.
+    // Le panier invité n'est vidé qu'après commit : une fusion annulée le laisse intact.
     @Transactional
     public Panier synchronizeGuestPanier(String guestSessionId, Long userId) {
-        Panier guestPanier = getOrCreateGuestPanier(guestSessionId);
-        return transferPanier(guestPanier.getUser().getId(), userId);
+        Map<Long, Integer> lignes = paniersInvites.lignes(guestSessionId);
+        if (!lignes.isEmpty()) {
+            Long panierId = panierEcritureRepository.panierIdPourUtilisateur(userId);
+            moteurPanier.liberer(panierId);
+            int fusionnees = panierItemUpsertRepository.fusionnerLignes(panierId, lignes);
+            panierRepository.recalculerTotaux(List.of(panierId));
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    paniersInvites.retirerFusionnees(guestSessionId, lignes);
+                }
+            });
+            System.out.println("🛒 Panier invité fusionné (" + fusionnees + " lignes) pour l'utilisateur " + userId);
+        }
+        return getPanierByUserId(userId);
     }
     
     // Méthode pour vérifier la disponibilité d'un produit avant de l'ajouter au panier
     public boolean isProductAvailable(Long produitId, Integer quantiteDemandee) {
-        try {
-            Produit produit = produitRepository.findById(produitId)
-                .orElseThrow(() -> new RuntimeException("Produit non trouvé"));
-            
-            return produit.getQuantite() >= quantiteDemandee;
-        } catch (Exception e) {
+        if (quantiteDemandee == null) {
             return false;
         }
+        // Lecture en mémoire (InventaireStock), sans charger le produit
+        return inventaireStock.estDisponible(produitId, quantiteDemandee);
     }
     
     // Méthode pour réserver temporairement le stock (à utiliser avant validation de commande)
@@ -542,13 +576,14 @@ public class PanierService {
         
         for (PanierItem item : panier.getItems()) {
             Produit produit = item.getProduit();
-            if (produit.getQuantite() >= item.getQuantite()) {
+            int disponible = inventaireStock.disponible(produit.getId());
+            if (disponible >= item.getQuantite()) {
                 // Ici, vous pourriez implémenter une logique de réservation temporaire
                 Map<String, Object> reservation = new HashMap<>();
                 reservation.put("produitId", produit.getId());
                 reservation.put("produitNom", produit.getNom());
                 reservation.put("quantiteReservee", item.getQuantite());
-                reservation.put("stockRestant", produit.getQuantite() - item.getQuantite());
+                reservation.put("stockRestant", disponible - item.getQuantite());
                 reservations.add(reservation);
             } else {
                 result.put("success", false);
@@ -1,13 +1,43 @@
 package com.example.projet.service;
 
+import com.example.projet.cache.ProduitCache;
+import com.example.projet.dto.ChangementsCatalogue;
+import com.example.projet.dto.PageCurseur;
+import com.example.projet.dto.ProduitMiseAJour;
+import com.example.projet.dto.ProduitResume;
+import com.example.projet.dto.ResultatMiseAJour;
+import com.example.projet.entity.CatalogTombstone;
+import com.example.projet.entity.Categorie;
 import com.example.projet.entity.Produit;
+import com.example.projet.event.ProduitChangeEvent;
+import com.example.projet.repository.CategorieRepository;
+import com.example.projet.repository.PanierRepository;
+import com.example.projet.repository.ProduitBatchRepository;
 import com.example.projet.repository.ProduitRepository;
+import com.example.projet.search.ProduitFacetIndex;
+import com.example.projet.search.ProduitPrixIndex;
+import com.example.projet.search.ProduitSearchIndex;
+import com.example.projet.search.ProduitTrigramIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Transactional
@@ -16,9 +46,48 @@ public class ProduitService {
     @Autowired
     private ProduitRepository produitRepository;
     
+    @Autowired
+    private CategorieRepository categorieRepository;
+    
+    @Autowired
+    private CategorieService categorieService;
+    
+    @Autowired
+    private ProduitBatchRepository produitBatchRepository;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private ProduitSearchIndex produitSearchIndex;
+    
+    @Autowired
+    private ProduitTrigramIndex produitTrigramIndex;
+    
+    @Autowired
+    private ProduitFacetIndex produitFacetIndex;
+    
+    @Autowired
+    private ProduitCache produitCache;
+    
+    @Autowired
+    private ProduitPrixIndex produitPrixIndex;
+    
+    @Autowired
+    private StockFaibleTracker stockFaibleTracker;
+    
+    @Autowired
+    private ValeurStockTracker valeurStockTracker;
+    
+    @Autowired
+    private CatalogChangeService catalogChangeService;
+    
+    @Autowired
+    private PanierRepository panierRepository;
+    
     // Enregistrer un produit
     public Produit save(Produit produit) {
-        return produitRepository.save(produit);
+        return enregistrer(produit);
     }
     
     // Récupérer tous les produits
@@ -26,14 +95,119 @@ public class ProduitService {
         return produitRepository.findAll();
     }
     
-    // Récupérer un produit par ID
+    // ============ PAGINATION KEYSET ============
+    
+    public static final String TRI_ID = "id";
+    public static final String TRI_RECENTS = "recents";
+    public static final String TRI_PRIX = "prix";
+    public static final String TRI_NOM = "nom";
+    
+    // Récupérer la page qui suit le curseur, triée par (id), (id décroissant), (prix, id) ou (nom, id)
+    public PageCurseur<ProduitResume> findPage(String tri, String curseur, int taille) {
+        String triEffectif = tri == null || tri.isEmpty() ? TRI_ID : tri.toLowerCase();
+        String[] position = curseur == null || curseur.isEmpty() ? null : decoderCurseur(curseur, triEffectif);
+        Long dernierId = position == null ? 0L : Long.valueOf(position[1]);
+        Limit limit = Limit.of(taille + 1);
+        
+        List<ProduitResume> produits;
+        switch (triEffectif) {
+            case TRI_ID -> produits = produitRepository.findResumesApresId(dernierId, limit);
+            case TRI_RECENTS -> produits = produitRepository.findResumesAvantId(
+                    position == null ? Long.MAX_VALUE : dernierId, limit);
+            case TRI_NOM -> produits = produitRepository.findResumesApresNom(
+                    position == null ? "" : position[2], dernierId, limit);
+            case TRI_PRIX -> produits = findPageParPrix(position, dernierId, taille);
+            default -> throw new IllegalArgumentException("Tri non supporté: " + tri);
+        }
+        
+        boolean hasNext = produits.size() > taille;
+        List<ProduitResume> contenu = hasNext ? produits.subList(0, taille) : produits;
+        String suivant = hasNext ? encoderCurseur(triEffectif, contenu.get(contenu.size() - 1)) : null;
+        return new PageCurseur<>(contenu, suivant, taille, triEffectif);
+    }
+    
+    // Les produits sans prix sont servis après tous les autres (équivalent NULLS LAST)
+    private List<ProduitResume> findPageParPrix(String[] position, Long dernierId, int taille) {
+        boolean phaseSansPrix = position != null && position[2].isEmpty();
+        if (phaseSansPrix) {
+            return produitRepository.findResumesSansPrixApresId(dernierId, Limit.of(taille + 1));
+        }
+        
+        Double dernierPrix = position == null ? -Double.MAX_VALUE : Double.valueOf(position[2]);
+        List<ProduitResume> produits = new ArrayList<>(
+                produitRepository.findResumesApresPrix(dernierPrix, dernierId, Limit.of(taille + 1)));
+        if (produits.size() <= taille) {
+            produits.addAll(produitRepository.findResumesSansPrixApresId(0L,
+                    Limit.of(taille + 1 - produits.size())));
+        }
+        return produits;
+    }
+    
+    private String encoderCurseur(String tri, ProduitResume dernier) {
+        String valeur = switch (tri) {
+            case TRI_PRIX -> dernier.getPrix() == null ? "" : dernier.getPrix().toString();
+            case TRI_NOM -> dernier.getNom();
+            default -> "";
+        };
+        String brut = tri + "|" + dernier.getId() + "|" + valeur;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(brut.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private String[] decoderCurseur(String curseur, String tri) {
+        try {
+            String brut = new String(Base64.getUrlDecoder().decode(curseur), StandardCharsets.UTF_8);
+            String[] position = brut.split("\\|", 3);
+            if (position.length != 3 || !position[0].equals(tri)) {
+                throw new IllegalArgumentException("Curseur invalide pour le tri " + tri);
+            }
+            Long.parseLong(position[1]);
+            if (TRI_PRIX.equals(tri) && !position[2].isEmpty()) {
+                Double.parseDouble(position[2]);
+            }
+            return position;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Curseur invalide", e);
+        }
+    }
+    
+    // Récupérer un produit par ID (copie servie par le cache, chargée depuis la base au besoin)
     public Optional<Produit> findById(Long id) {
-        return produitRepository.findById(id);
+        return produitCache.findById(id);
     }
     
-    // Supprimer un produit par ID
+    // Produits demandés dans l'ordre de la requête, null pour un id introuvable
+    public List<Produit> findAllByIdDansLOrdre(List<Long> ids) {
+        Set<Long> distincts = new HashSet<>();
+        for (Long id : ids) {
+            if (id != null) {
+                distincts.add(id);
+            }
+        }
+        Map<Long, Produit> parId = distincts.isEmpty() ? Map.of() : produitCache.findAllById(distincts);
+        List<Produit> produits = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            produits.add(id != null ? parId.get(id) : null);
+        }
+        return produits;
+    }
+    
+    public Map<String, Object> getStatistiquesCache() {
+        return produitCache.getStatistiques();
+    }
+    
+    // Supprimer un produit par ID ; ligne relue verrouillée (FOR UPDATE) : une écriture concurrente
+    // du même produit ne peut pas ajuster les compteurs de catégorie à partir d'un état périmé
     public void deleteById(Long id) {
-        produitRepository.deleteById(id);
+        ProduitBatchRepository.EtatStock avant = produitBatchRepository.lireEtatsPourMiseAJour(List.of(id)).get(id);
+        if (avant != null) {
+            Map<Long, int[]> deltas = new HashMap<>();
+            cumuler(deltas, avant, null);
+            produitRepository.deleteById(id);
+            categorieService.ajusterCompteurs(deltas);
+        }
+        long changeSeq = catalogChangeService.enregistrerSuppression(CatalogTombstone.TYPE_PRODUIT, id);
+        produitCache.invalider(id);
+        eventPublisher.publishEvent(ProduitChangeEvent.suppression(id, changeSeq));
     }
     
     // Rechercher des produits par nom
@@ -41,45 +215,105 @@ public class ProduitService {
         return produitRepository.findByNomContaining(nom);
     }
     
+    // Recherche plein texte (nom, description, catégorie) classée par pertinence
+    public List<ProduitResume> rechercher(String keyword, int limit) {
+        List<Long> ids = produitSearchIndex.rechercher(keyword, limit);
+        return chargerDansLOrdre(ids);
+    }
+    
+    // Recherche tolérante aux fautes de frappe sur le nom (similarité de trigrammes)
+    public List<ProduitResume> rechercherApproximatif(String keyword, int limit) {
+        List<Long> ids = produitTrigramIndex.rechercher(keyword, limit);
+        return chargerDansLOrdre(ids);
+    }
+    
+    // Synchronisation incrémentale : upserts et suppressions après la séquence "since"
+    @Transactional(readOnly = true)
+    public ChangementsCatalogue changementsDepuis(long since, int limit) {
+        return catalogChangeService.changementsDepuis(since, limit);
+    }
+    
+    // Navigation à facettes : filtres et compteurs calculés sur les bitmaps en mémoire, sans connexion à la base
+    public ProduitFacetIndex.Resultat parcourir(List<Long> categorieIds, List<Integer> tranchesPrix,
+                                                Boolean enStock, int page, int taille) {
+        return produitFacetIndex.parcourir(categorieIds, tranchesPrix, enStock, page, taille);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<ProduitResume> findResumesDansLOrdre(List<Long> ids) {
+        return chargerDansLOrdre(ids);
+    }
+    
+    // Charger des produits en une requête IN (...) en conservant l'ordre des ids
+    private List<ProduitResume> chargerDansLOrdre(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, ProduitResume> parId = new HashMap<>();
+        for (ProduitResume produit : produitRepository.findResumesByIdIn(ids)) {
+            parId.put(produit.getId(), produit);
+        }
+        List<ProduitResume> produits = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ProduitResume produit = parId.get(id);
+            if (produit != null) {
+                produits.add(produit);
+            }
+        }
+        return produits;
+    }
+    
     // Rechercher des produits par catégorie
     public List<Produit> findByCategorieId(Long categorieId) {
-        return produitRepository.findAll()
-                .stream()
-                .filter(p -> p.getCategorie() != null && 
-                           p.getCategorie().getId() != null && 
-                           p.getCategorie().getId().equals(categorieId))
-                .toList();
+        return produitRepository.findByCategorieId(categorieId);
+    }
+    
+    // Rechercher des produits par catégorie (paginé)
+    public Page<ProduitResume> findByCategorieId(Long categorieId, Pageable pageable) {
+        return produitRepository.findResumesByCategorieId(categorieId, pageable);
     }
     
-    // Rechercher des produits par plage de prix
+    // Rechercher des produits par plage de prix (bornes optionnelles)
     public List<Produit> findByPrixBetween(Double min, Double max) {
-        return produitRepository.findAll()
-                .stream()
-                .filter(p -> {
-                    if (p.getPrix() == null) return false;
-                    boolean matchesMin = min == null || p.getPrix() >= min;
-                    boolean matchesMax = max == null || p.getPrix() <= max;
-                    return matchesMin && matchesMax;
-                })
-                .toList();
+        return produitRepository.findByPrixBetween(borneMin(min), borneMax(max));
+    }
+    
+    // Rechercher des produits par plage de prix (paginé, bornes optionnelles), triés par (prix, id)
+    // La plage est résolue sur l'index des prix, seule la page demandée est lue en base
+    @Transactional(readOnly = true)
+    public Page<ProduitResume> findByPrixBetween(Double min, Double max, Pageable pageable) {
+        ProduitPrixIndex.Plage plage = produitPrixIndex.plage(borneMin(min), borneMax(max),
+                (int) pageable.getOffset(), pageable.getPageSize());
+        return new PageImpl<>(chargerDansLOrdre(plage.getIds()), pageable, plage.getTotal());
+    }
+    
+    // Histogramme des prix (curseur de plage)
+    public Map<String, Object> histogrammePrix(Double min, Double max, int tranches) {
+        return produitPrixIndex.histogramme(min, max, tranches);
+    }
+    
+    // Borne absente = intervalle ouvert ; BETWEEN exclut de toute façon les prix NULL
+    private static double borneMin(Double min) {
+        return min != null ? min : -Double.MAX_VALUE;
+    }
+    
+    private static double borneMax(Double max) {
+        return max != null ? max : Double.MAX_VALUE;
     }
     
     // Récupérer les produits en stock
     public List<Produit> findProduitsEnStock() {
-        return produitRepository.findAll()
-                .stream()
-                .filter(p -> p.getQuantite() != null && p.getQuantite() > 0)
-                .toList();
+        return produitRepository.findByQuantiteGreaterThan(0);
+    }
+    
+    // Récupérer les produits en stock (paginé, sans COUNT)
+    public Slice<ProduitResume> findProduitsEnStock(Pageable pageable) {
+        return produitRepository.findResumesEnStock(pageable);
     }
     
     // Récupérer les produits avec faible stock
     public List<Produit> findProduitsFaibleStock(Integer seuil) {
-        return produitRepository.findAll()
-                .stream()
-                .filter(p -> p.getQuantite() != null && 
-                           p.getQuantite() > 0 && 
-                           p.getQuantite() <= seuil)
-                .toList();
+        return produitRepository.findByQuantiteBetween(1, seuil);
     }
     
     // Mettre à jour la quantité d'un produit
@@ -88,7 +322,7 @@ public class ProduitService {
         if (produitOptional.isPresent()) {
             Produit produit = produitOptional.get();
             produit.setQuantite(nouvelleQuantite);
-            return produitRepository.save(produit);
+            return enregistrer(produit);
         }
         return null;
     }
@@ -100,22 +334,41 @@ public class ProduitService {
             Produit produit = produitOptional.get();
             Integer quantiteActuelle = produit.getQuantite() != null ? produit.getQuantite() : 0;
             produit.setQuantite(quantiteActuelle + quantiteAjoutee);
-            return produitRepository.save(produit);
+            return enregistrer(produit);
         }
         return null;
     }
     
-    // Diminuer la quantité d'un produit
+    // Diminuer la quantité d'un produit : décrément conditionnel en base, jamais ramené à 0 en silence.
+    // Stock insuffisant = exception, la transaction appelante (commande comprise) est annulée.
     public Produit diminuerQuantite(Long id, Integer quantiteRetiree) {
-        Optional<Produit> produitOptional = produitRepository.findById(id);
-        if (produitOptional.isPresent()) {
-            Produit produit = produitOptional.get();
-            Integer quantiteActuelle = produit.getQuantite() != null ? produit.getQuantite() : 0;
-            Integer nouvelleQuantite = Math.max(0, quantiteActuelle - quantiteRetiree);
-            produit.setQuantite(nouvelleQuantite);
-            return produitRepository.save(produit);
+        if (quantiteRetiree == null || quantiteRetiree <= 0) {
+            throw new IllegalArgumentException("Quantité à retirer invalide: " + quantiteRetiree);
         }
-        return null;
+        // Modifications en attente du produit écrites avant l'UPDATE direct
+        produitRepository.flush();
+        long changeSeq = catalogChangeService.suivant();
+        ProduitBatchRepository.EtatStock apres = produitBatchRepository.retirerStock(id, quantiteRetiree, changeSeq);
+        if (apres == null) {
+            if (!produitRepository.existsById(id)) {
+                return null;
+            }
+            throw new IllegalStateException("Stock insuffisant pour le produit " + id);
+        }
+        
+        Map<Long, int[]> deltas = new HashMap<>();
+        cumuler(deltas, new ProduitBatchRepository.EtatStock(apres.getCategorieId(),
+                apres.getQuantite() + quantiteRetiree, apres.getPrix()), apres);
+        categorieService.ajusterCompteurs(deltas);
+        
+        // L'entité éventuellement déjà chargée dans la transaction est alignée sur la ligne décrémentée
+        Produit produit = produitRepository.findById(id).orElseThrow();
+        produit.setQuantite(apres.getQuantite());
+        produit.setChangeSeq(changeSeq);
+        
+        produitCache.invalider(id);
+        eventPublisher.publishEvent(ProduitChangeEvent.upsert(produit, nomCategorie(produit)));
+        return produit;
     }
     
     // Compter le nombre de produits
@@ -125,9 +378,213 @@ public class ProduitService {
     
     // Compter les produits en stock
     public long countEnStock() {
-        return produitRepository.findAll()
-                .stream()
-                .filter(p -> p.getQuantite() != null && p.getQuantite() > 0)
-                .count();
+        return produitRepository.countByQuantiteGreaterThan(0);
+    }
+    
+    // Compter les produits avec faible stock
+    public long countFaibleStock(Integer seuil) {
+        return produitRepository.countByQuantiteBetween(1, seuil);
+    }
+    
+    // Compter les produits dont la quantité est inférieure ou égale au seuil (ruptures incluses)
+    public long countQuantiteInferieureOuEgale(Integer seuil) {
+        return produitRepository.countByQuantiteLessThanEqual(seuil);
+    }
+    
+    // Tableaux de bord : lus sur le suivi incrémental, sans requête (seuils de app.stock.seuils)
+    public int compterStockFaible(int seuil) {
+        return stockFaibleTracker.compter(seuil);
+    }
+    
+    public List<ProduitResume> produitsStockFaible(int seuil) {
+        return stockFaibleTracker.produitsHorsRupture(seuil);
+    }
+    
+    // Seuil de la liste de stock faible, pris parmi ceux que le suivi connaît
+    public int getSeuilListeStockFaible() {
+        return stockFaibleTracker.getSeuilHaut();
+    }
+    
+    public double getValeurStock() {
+        return valeurStockTracker.getValeurTotale();
+    }
+    
+    public Map<Long, Double> getValeurStockParCategorie() {
+        return valeurStockTracker.getValeurParCategorie();
+    }
+    
+    // ============ ÉCRITURE ============
+    
+    // Point de passage unique des écritures : sauvegarde puis notification des index (après commit)
+    private Produit enregistrer(Produit produit) {
+        verifierCategorie(produit);
+        ProduitBatchRepository.EtatStock avant = etatAvantEcriture(produit);
+        produit.setChangeSeq(catalogChangeService.suivant());
+        // Écrit tout de suite : l'écriture suivante du même produit dans la transaction relit cet état en base
+        Produit saved = produitRepository.saveAndFlush(produit);
+        
+        // Compteurs de catégorie ajustés dans la même transaction que le produit
+        Map<Long, int[]> deltas = new HashMap<>();
+        cumuler(deltas, avant, etatActuel(saved));
+        categorieService.ajusterCompteurs(deltas);
+        // Totaux des paniers qui contiennent le produit re-valorisés, eux aussi dans la même transaction
+        if (avant != null && !Objects.equals(avant.getPrix(), saved.getPrix())) {
+            panierRepository.recalculerTotauxPourProduits(List.of(saved.getId()));
+        }
+        
+        produitCache.invalider(saved.getId());
+        eventPublisher.publishEvent(ProduitChangeEvent.upsert(saved, nomCategorie(saved)));
+        return saved;
+    }
+    
+    /**
+     * Mise à jour partielle en masse (prix, quantité, catégorie) : les lignes valides partent en
+     * JDBC batch dans la transaction courante, puis les produits modifiés sont relus par lots pour
+     * notifier les index comme une écriture unitaire. Renvoie un résultat par ligne, dans l'ordre.
+     */
+    public List<ResultatMiseAJour> mettreAJourEnMasse(List<ProduitMiseAJour> miseAJours) {
+        Set<Long> categoriesDemandees = new HashSet<>();
+        for (ProduitMiseAJour maj : miseAJours) {
+            if (maj.getCategorieId() != null) {
+                categoriesDemandees.add(maj.getCategorieId());
+            }
+        }
+        Set<Long> categoriesExistantes = new HashSet<>();
+        for (Categorie categorie : categorieRepository.findAllById(categoriesDemandees)) {
+            if (!categorie.isSupprimee()) {
+                categoriesExistantes.add(categorie.getId());
+            }
+        }
+        
+        ResultatMiseAJour[] resultats = new ResultatMiseAJour[miseAJours.size()];
+        List<ProduitMiseAJour> valides = new ArrayList<>();
+        List<Integer> rangs = new ArrayList<>();
+        for (int i = 0; i < miseAJours.size(); i++) {
+            ProduitMiseAJour maj = miseAJours.get(i);
+            String erreur = validerMiseAJour(maj, categoriesExistantes);
+            if (erreur != null) {
+                resultats[i] = new ResultatMiseAJour(maj.getId(), ResultatMiseAJour.INVALIDE, erreur);
+            } else {
+                valides.add(maj);
+                rangs.add(i);
+            }
+        }
+        
+        List<Long> idsValides = new ArrayList<>();
+        for (ProduitMiseAJour maj : valides) {
+            idsValides.add(maj.getId());
+        }
+        Map<Long, ProduitBatchRepository.EtatStock> avant = produitBatchRepository.lireEtatsPourMiseAJour(idsValides);
+        int[] touchees = produitBatchRepository.mettreAJour(valides, catalogChangeService.suivants(valides.size()));
+        Set<Long> modifies = new HashSet<>();
+        for (int j = 0; j < valides.size(); j++) {
+            Long id = valides.get(j).getId();
+            if (touchees[j] == 0) {
+                resultats[rangs.get(j)] = new ResultatMiseAJour(id, ResultatMiseAJour.INTROUVABLE, "Produit non trouvé");
+            } else {
+                resultats[rangs.get(j)] = new ResultatMiseAJour(id, ResultatMiseAJour.OK, null);
+                modifies.add(id);
+            }
+        }
+        
+        Map<Long, int[]> deltas = new HashMap<>();
+        List<Long> prixModifies = new ArrayList<>();
+        List<Long> ids = new ArrayList<>(modifies);
+        for (int debut = 0; debut < ids.size(); debut += TAILLE_LOT_RELECTURE) {
+            List<Long> lot = ids.subList(debut, Math.min(debut + TAILLE_LOT_RELECTURE, ids.size()));
+            for (Produit produit : produitRepository.findAllById(lot)) {
+                ProduitBatchRepository.EtatStock etatAvant = avant.get(produit.getId());
+                if (etatAvant != null && !Objects.equals(etatAvant.getPrix(), produit.getPrix())) {
+                    prixModifies.add(produit.getId());
+                }
+                cumuler(deltas, etatAvant, etatActuel(produit));
+                produitCache.invalider(produit.getId());
+                eventPublisher.publishEvent(ProduitChangeEvent.upsert(produit, nomCategorie(produit)));
+            }
+        }
+        categorieService.ajusterCompteurs(deltas);
+        for (int debut = 0; debut < prixModifies.size(); debut += TAILLE_LOT_RELECTURE) {
+            panierRepository.recalculerTotauxPourProduits(
+                    prixModifies.subList(debut, Math.min(debut + TAILLE_LOT_RELECTURE, prixModifies.size())));
+        }
+        return List.of(resultats);
+    }
+    
+    private static final int TAILLE_LOT_RELECTURE = 1000;
+    
+    // Même règle que la mise à jour en masse : une catégorie en cours de suppression n'accepte plus de produit
+    private void verifierCategorie(Produit produit) {
+        if (produit.getCategorie() == null || produit.getCategorie().getId() == null) {
+            return;
+        }
+        Long categorieId = produit.getCategorie().getId();
+        boolean existe = categorieRepository.findById(categorieId)
+                .map(categorie -> !categorie.isSupprimee())
+                .orElse(false);
+        if (!existe) {
+            throw new IllegalArgumentException("Catégorie non trouvée: " + categorieId);
+        }
+    }
+    
+    private String validerMiseAJour(ProduitMiseAJour maj, Set<Long> categoriesExistantes) {
+        if (maj.getId() == null) {
+            return "Id manquant";
+        }
+        if (maj.getPrix() == null && maj.getQuantite() == null && maj.getCategorieId() == null) {
+            return "Aucun champ à modifier";
+        }
+        if (maj.getPrix() != null && maj.getPrix() < 0) {
+            return "Prix négatif";
+        }
+        if (maj.getQuantite() != null && maj.getQuantite() < 0) {
+            return "Quantité négative";
+        }
+        if (maj.getCategorieId() != null && !categoriesExistantes.contains(maj.getCategorieId())) {
+            return "Catégorie non trouvée";
+        }
+        return null;
+    }
+    
+    // ============ COMPTEURS DE CATÉGORIE ============
+    
+    // État en base avant l'écriture, toujours relu ligne verrouillée (FOR UPDATE) : l'instantané de chargement
+    // d'une entité gérée peut être périmé si une autre transaction a validé entre-temps
+    private ProduitBatchRepository.EtatStock etatAvantEcriture(Produit produit) {
+        if (produit.getId() == null) {
+            return null;
+        }
+        return produitBatchRepository.lireEtatsPourMiseAJour(List.of(produit.getId())).get(produit.getId());
+    }
+    
+    private static ProduitBatchRepository.EtatStock etatActuel(Produit produit) {
+        Long categorieId = produit.getCategorie() != null ? produit.getCategorie().getId() : null;
+        return new ProduitBatchRepository.EtatStock(categorieId, produit.getQuantite(), produit.getPrix());
+    }
+    
+    // null = produit absent (création ou suppression)
+    private static void cumuler(Map<Long, int[]> deltas, ProduitBatchRepository.EtatStock avant,
+                                ProduitBatchRepository.EtatStock apres) {
+        if (avant != null && avant.getCategorieId() != null) {
+            int[] delta = deltas.computeIfAbsent(avant.getCategorieId(), c -> new int[2]);
+            delta[0]--;
+            delta[1] -= avant.isEnStock() ? 1 : 0;
+        }
+        if (apres != null && apres.getCategorieId() != null) {
+            int[] delta = deltas.computeIfAbsent(apres.getCategorieId(), c -> new int[2]);
+            delta[0]++;
+            delta[1] += apres.isEnStock() ? 1 : 0;
+        }
+    }
+    
+    private String nomCategorie(Produit produit) {
+        if (produit.getCategorie() == null) {
+            return null;
+        }
+        if (produit.getCategorie().getNom() != null || produit.getCategorie().getId() == null) {
+            return produit.getCategorie().getNom();
+        }
+        return categorieRepository.findById(produit.getCategorie().getId())
+                .map(Categorie::getNom)
+                .orElse(null);
     }
-}
\ No newline at end of file
+}
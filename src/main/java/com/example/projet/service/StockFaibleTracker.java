@@ -0,0 +1,162 @@
+package com.example.projet.service;
+
+import com.example.projet.dto.ProduitResume;
+import com.example.projet.event.CategorieChangeEvent;
+import com.example.projet.event.ProduitChangeEvent;
+import com.example.projet.event.SeuilStockEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Suivi incrémental des produits en stock faible, alimenté par les événements de modification
+ * (mises à jour de quantité, commandes, chargement initial). Pour chaque seuil configuré on garde
+ * l'ensemble des produits dont la quantité est <= seuil ; les tableaux de bord lisent ces
+ * ensembles sans requête. Un franchissement de seuil publie un SeuilStockEvent.
+ * Une quantité absente compte comme 0.
+ */
+@Component
+public class StockFaibleTracker {
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    private final int[] seuils;
+    private final Map<Integer, Map<Long, ProduitResume>> sousSeuil = new HashMap<>();
+    private final Map<Long, ProduitResume> ruptures = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> quantiteParId = new HashMap<>();
+    
+    public StockFaibleTracker(@Value("${app.stock.seuils:5,10}") int[] seuils) {
+        this.seuils = Arrays.stream(seuils).distinct().sorted().toArray();
+        if (this.seuils.length == 0) {
+            throw new IllegalArgumentException("Aucun seuil de stock configuré (app.stock.seuils)");
+        }
+        for (int seuil : this.seuils) {
+            sousSeuil.put(seuil, new ConcurrentHashMap<>());
+        }
+    }
+    
+    // ============ MISE À JOUR ============
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProduitChange(ProduitChangeEvent event) {
+        List<SeuilStockEvent> franchissements = new ArrayList<>();
+        synchronized (this) {
+            Long id = event.getProduitId();
+            Integer ancienne = event.isSuppression() ? quantiteParId.remove(id) : quantiteParId.put(id, quantite(event));
+            if (event.isSuppression()) {
+                ruptures.remove(id);
+                sousSeuil.values().forEach(produits -> produits.remove(id));
+                return;
+            }
+            
+            int nouvelle = quantite(event);
+            ProduitResume resume = new ProduitResume(id, event.getNom(), event.getPrix(), event.getQuantite(),
+                    event.getImageUrl(), event.getCategorieId(), event.getCategorieNom());
+            placer(ruptures, id, resume, nouvelle <= 0);
+            for (int seuil : seuils) {
+                placer(sousSeuil.get(seuil), id, resume, nouvelle <= seuil);
+                // Le chargement initial ne constitue pas un franchissement
+                if (ancienne != null && !event.isChargementInitial() && (ancienne <= seuil) != (nouvelle <= seuil)) {
+                    franchissements.add(new SeuilStockEvent(id, event.getNom(), seuil, ancienne, nouvelle));
+                }
+            }
+        }
+        for (SeuilStockEvent franchissement : franchissements) {
+            if (franchissement.isSousSeuil()) {
+                System.out.println("⚠️ Stock faible: " + franchissement.getNom() + " (" + franchissement.getNouvelleQuantite()
+                        + " ≤ " + franchissement.getSeuil() + ")");
+            }
+            eventPublisher.publishEvent(franchissement);
+        }
+    }
+    
+    // Les instantanés embarquent le nom de la catégorie
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onCategorieChange(CategorieChangeEvent event) {
+        if (event.isSuppression()) {
+            return;
+        }
+        renommer(ruptures, event);
+        sousSeuil.values().forEach(produits -> renommer(produits, event));
+    }
+    
+    private void renommer(Map<Long, ProduitResume> produits, CategorieChangeEvent event) {
+        produits.replaceAll((id, p) -> p.getCategorie() == null || !p.getCategorie().getId().equals(event.getCategorieId())
+                ? p
+                : new ProduitResume(p.getId(), p.getNom(), p.getPrix(), p.getQuantite(), p.getImageUrl(),
+                        event.getCategorieId(), event.getNom()));
+    }
+    
+    private static void placer(Map<Long, ProduitResume> produits, Long id, ProduitResume resume, boolean present) {
+        if (present) {
+            produits.put(id, resume);
+        } else {
+            produits.remove(id);
+        }
+    }
+    
+    private static int quantite(ProduitChangeEvent event) {
+        return event.getQuantite() != null ? event.getQuantite() : 0;
+    }
+    
+    // ============ LECTURE ============
+    
+    public int[] getSeuils() {
+        return seuils.clone();
+    }
+    
+    // Plus petit seuil suivi : alerte de la page d'accueil
+    public int getSeuilBas() {
+        return seuils[0];
+    }
+    
+    // Plus grand seuil suivi : liste des produits à réapprovisionner (statistiques)
+    public int getSeuilHaut() {
+        return seuils[seuils.length - 1];
+    }
+    
+    // Nombre de produits dont la quantité est <= seuil (ruptures comprises)
+    public int compter(int seuil) {
+        return ensemble(seuil).size();
+    }
+    
+    // Nombre de produits encore en stock mais sous le seuil
+    public int compterHorsRupture(int seuil) {
+        return Math.max(0, ensemble(seuil).size() - ruptures.size());
+    }
+    
+    public int compterRuptures() {
+        return ruptures.size();
+    }
+    
+    // Produits en stock mais sous le seuil, du plus faible stock au plus fort
+    public List<ProduitResume> produitsHorsRupture(int seuil) {
+        List<ProduitResume> produits = new ArrayList<>();
+        for (ProduitResume produit : ensemble(seuil).values()) {
+            if (produit.getQuantite() != null && produit.getQuantite() > 0) {
+                produits.add(produit);
+            }
+        }
+        produits.sort(Comparator.comparing(ProduitResume::getQuantite).thenComparing(ProduitResume::getId));
+        return produits;
+    }
+    
+    private Map<Long, ProduitResume> ensemble(int seuil) {
+        Map<Long, ProduitResume> produits = sousSeuil.get(seuil);
+        if (produits == null) {
+            throw new IllegalArgumentException("Seuil de stock non suivi: " + seuil + " (app.stock.seuils)");
+        }
+        return produits;
+    }
+}
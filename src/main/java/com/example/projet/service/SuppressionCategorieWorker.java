@@ -0,0 +1,161 @@
+package com.example.projet.service;
+
+import com.example.projet.entity.CatalogTombstone;
+import com.example.projet.entity.Categorie;
+import com.example.projet.event.ProduitChangeEvent;
+import com.example.projet.repository.CategorieCompteurRepository;
+import com.example.projet.repository.CategorieRepository;
+import com.example.projet.repository.CategorieSuppressionRepository;
+import com.example.projet.repository.CategorieSuppressionRepository.ProduitASupprimer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Purge en arrière-plan des catégories marquées supprimées : les produits (avec lignes de panier,
+ * favoris et images) partent par lots bornés, chacun dans sa propre transaction, puis la catégorie
+ * elle-même. L'état de reprise est en base (drapeau supprimee + produits restants) : après un arrêt,
+ * le prochain passage repart du lot suivant.
+ */
+@Component
+public class SuppressionCategorieWorker {
+    
+    private static final long DUREE_MAX_PASSAGE_MS = 2000;
+    
+    @Autowired
+    private CategorieRepository categorieRepository;
+    
+    @Autowired
+    private CategorieSuppressionRepository suppressionRepository;
+    
+    @Autowired
+    private CategorieCompteurRepository categorieCompteurRepository;
+    
+    @Autowired
+    private CatalogChangeService catalogChangeService;
+    
+    @Autowired
+    private FileStorageService fileStorageService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    private final TransactionTemplate transactionTemplate;
+    private final int tailleLot;
+    private final Map<Long, Progression> progressions = new ConcurrentHashMap<>();
+    
+    public SuppressionCategorieWorker(PlatformTransactionManager transactionManager,
+                                      @Value("${app.categories.suppression.taille-lot:500}") int tailleLot) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tailleLot = tailleLot;
+    }
+    
+    // Passage borné dans le temps pour ne pas retenir le planificateur partagé (heartbeats, index)
+    @Scheduled(fixedDelayString = "${app.categories.suppression.delay-ms:1000}")
+    public void traiter() {
+        long fin = System.currentTimeMillis() + DUREE_MAX_PASSAGE_MS;
+        for (Long categorieId : categorieRepository.findIdsSupprimees()) {
+            Progression progression = progressions.computeIfAbsent(categorieId, id -> new Progression());
+            try {
+                boolean reste = true;
+                while (reste && System.currentTimeMillis() < fin) {
+                    reste = traiterLot(categorieId, progression);
+                }
+                if (reste) {
+                    return;
+                }
+                progressions.remove(categorieId);
+                System.out.println("🗑️ Catégorie " + categorieId + " supprimée (" + progression.produitsSupprimes + " produits)");
+            } catch (RuntimeException e) {
+                progression.erreur = e.getMessage();
+                System.err.println("❌ Suppression de la catégorie " + categorieId + " interrompue: " + e.getMessage());
+            }
+        }
+    }
+    
+    // Un lot par transaction ; false quand la catégorie est vide et a été supprimée
+    private boolean traiterLot(Long categorieId, Progression progression) {
+        List<ProduitASupprimer> lot = transactionTemplate.execute(status -> {
+            List<ProduitASupprimer> produits = suppressionRepository.verrouillerLot(categorieId, tailleLot);
+            if (produits.isEmpty()) {
+                categorieRepository.deleteById(categorieId);
+                return produits;
+            }
+            
+            List<Long> ids = new ArrayList<>(produits.size());
+            int enStock = 0;
+            for (ProduitASupprimer produit : produits) {
+                ids.add(produit.getId());
+                if (produit.isEnStock()) {
+                    enStock++;
+                }
+            }
+            suppressionRepository.supprimerProduits(ids);
+            Map<Long, int[]> deltas = new HashMap<>();
+            deltas.put(categorieId, new int[] { -ids.size(), -enStock });
+            categorieCompteurRepository.ajuster(deltas);
+            List<Long> numeros = catalogChangeService.enregistrerSuppressions(CatalogTombstone.TYPE_PRODUIT, ids);
+            for (int i = 0; i < ids.size(); i++) {
+                eventPublisher.publishEvent(ProduitChangeEvent.suppression(ids.get(i), numeros.get(i)));
+            }
+            return produits;
+        });
+        if (lot == null || lot.isEmpty()) {
+            return false;
+        }
+        
+        // Fichiers supprimés après le commit : un rollback ne doit pas laisser de produit sans image
+        for (ProduitASupprimer produit : lot) {
+            try {
+                fileStorageService.deleteImage(produit.getImageName());
+            } catch (IOException e) {
+                System.err.println("⚠️ Image non supprimée: " + produit.getImageName());
+            }
+        }
+        progression.produitsSupprimes += lot.size();
+        progression.erreur = null;
+        return true;
+    }
+    
+    // ============ PROGRESSION ============
+    
+    public Map<String, Object> getProgression(Long categorieId) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("categorieId", categorieId);
+        Optional<Categorie> categorie = categorieRepository.findById(categorieId);
+        if (categorie.isEmpty()) {
+            response.put("statut", "TERMINEE");
+            return response;
+        }
+        if (!categorie.get().isSupprimee()) {
+            response.put("statut", "ACTIVE");
+            return response;
+        }
+        Progression progression = progressions.get(categorieId);
+        response.put("statut", "EN_COURS");
+        response.put("produitsRestants", categorie.get().getNombreProduits());
+        response.put("produitsSupprimes", progression != null ? progression.produitsSupprimes : 0);
+        if (progression != null && progression.erreur != null) {
+            response.put("erreur", progression.erreur);
+        }
+        return response;
+    }
+    
+    // Écrite par le seul thread du planificateur, lue par les requêtes de suivi
+    private static final class Progression {
+        private volatile int produitsSupprimes;
+        private volatile String erreur;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.projet.service;
+
+import com.example.projet.dto.TableauDeBord;
+import com.example.projet.event.CategorieChangeEvent;
+import com.example.projet.event.ProduitChangeEvent;
+import com.example.projet.repository.ProduitRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Agrégat de la page d'accueil : compteurs en une seule requête, 5 derniers produits par
+ * ORDER BY id DESC LIMIT 5 (clé primaire) projetés en ProduitResume immuables, catégories et
+ * stock faible lus en mémoire.
+ * Le résultat est gardé quelques secondes et invalidé après chaque écriture du catalogue.
+ */
+@Service
+public class TableauDeBordService {
+    
+    private static final int NOMBRE_DERNIERS = 5;
+    
+    @Autowired
+    private ProduitRepository produitRepository;
+    
+    @Autowired
+    private CategorieService categorieService;
+    
+    @Autowired
+    private StockFaibleTracker stockFaibleTracker;
+    
+    private final long dureeMs;
+    private volatile TableauDeBord courant;
+    private volatile long expireA;
+    private long generation;
+    
+    public TableauDeBordService(@Value("${app.dashboard.cache-ms:5000}") long dureeMs) {
+        this.dureeMs = dureeMs;
+    }
+    
+    public TableauDeBord getTableauDeBord() {
+        TableauDeBord tableau = courant;
+        if (tableau != null && System.currentTimeMillis() < expireA) {
+            return tableau;
+        }
+        long generationLue;
+        synchronized (this) {
+            generationLue = generation;
+        }
+        
+        Object[] compteurs = produitRepository.compterTableauDeBord().get(0);
+        // Seuil d'alerte pris parmi ceux que le suivi connaît (app.stock.seuils)
+        int seuil = stockFaibleTracker.getSeuilBas();
+        tableau = new TableauDeBord(
+                ((Number) compteurs[0]).longValue(),
+                ((Number) compteurs[2]).longValue(),
+                ((Number) compteurs[1]).longValue(),
+                stockFaibleTracker.compter(seuil),
+                seuil,
+                List.copyOf(produitRepository.findDerniersResumes(Limit.of(NOMBRE_DERNIERS))),
+                categorieService.getAllCategories());
+        
+        synchronized (this) {
+            if (generation == generationLue) {
+                courant = tableau;
+                expireA = System.currentTimeMillis() + dureeMs;
+            }
+        }
+        return tableau;
+    }
+    
+    public synchronized void invalider() {
+        generation++;
+        courant = null;
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProduitChange(ProduitChangeEvent event) {
+        if (!event.isChargementInitial()) {
+            invalider();
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategorieChange(CategorieChangeEvent event) {
+        invalider();
+    }
+}
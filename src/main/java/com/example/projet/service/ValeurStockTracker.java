@@ -0,0 +1,145 @@
+package com.example.projet.service;
+
+import com.example.projet.event.ProduitChangeEvent;
+import com.example.projet.repository.ProduitRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Valeur du stock (somme des prix × quantité des produits en stock), globale et par catégorie,
+ * tenue à jour par différence à chaque écriture : l'ancienne contribution du produit est retirée
+ * et la nouvelle ajoutée. Une réconciliation périodique relit le catalogue et recalcule les
+ * totaux pour corriger la dérive (arrondis flottants, événement manqué).
+ */
+@Component
+public class ValeurStockTracker {
+    
+    // Clé des produits sans catégorie dans la ventilation
+    public static final long SANS_CATEGORIE = 0L;
+    
+    @Autowired
+    private ProduitRepository produitRepository;
+    
+    private final Map<Long, Ligne> lignes = new HashMap<>();
+    private final Map<Long, Double> valeurParCategorie = new HashMap<>();
+    private double valeurTotale;
+    
+    // Produits modifiés pendant une réconciliation : leur état vivant prime sur la relecture
+    private Set<Long> modifiesPendantReconciliation;
+    
+    // ============ MISE À JOUR ============
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProduitChange(ProduitChangeEvent event) {
+        Long id = event.getProduitId();
+        if (modifiesPendantReconciliation != null) {
+            modifiesPendantReconciliation.add(id);
+        }
+        Ligne ancienne = lignes.remove(id);
+        if (ancienne != null) {
+            ajouter(ancienne, -1);
+        }
+        if (!event.isSuppression()) {
+            Ligne nouvelle = new Ligne(event.getPrix(), event.getQuantite(), event.getCategorieId());
+            lignes.put(id, nouvelle);
+            ajouter(nouvelle, 1);
+        }
+    }
+    
+    // Appelé sous verrou
+    private void ajouter(Ligne ligne, int signe) {
+        double valeur = ligne.valeur();
+        if (valeur == 0) {
+            return;
+        }
+        valeurTotale += signe * valeur;
+        valeurParCategorie.merge(ligne.categorieId, signe * valeur, Double::sum);
+    }
+    
+    @Scheduled(fixedDelayString = "${app.stock.valorisation.reconciliation-ms:600000}",
+               initialDelayString = "${app.stock.valorisation.reconciliation-ms:600000}")
+    public void reconcilier() {
+        synchronized (this) {
+            modifiesPendantReconciliation = new HashSet<>();
+        }
+        List<Object[]> etats;
+        try {
+            etats = produitRepository.findEtatsValorisation();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                modifiesPendantReconciliation = null;
+            }
+            throw e;
+        }
+        
+        Map<Long, Ligne> relues = new HashMap<>();
+        for (Object[] etat : etats) {
+            relues.put((Long) etat[0], new Ligne((Double) etat[1], (Integer) etat[2], (Long) etat[3]));
+        }
+        
+        double ecart;
+        synchronized (this) {
+            Set<Long> modifies = modifiesPendantReconciliation;
+            modifiesPendantReconciliation = null;
+            lignes.keySet().removeIf(id -> !relues.containsKey(id) && !modifies.contains(id));
+            for (Map.Entry<Long, Ligne> entry : relues.entrySet()) {
+                if (!modifies.contains(entry.getKey())) {
+                    lignes.put(entry.getKey(), entry.getValue());
+                }
+            }
+            
+            double ancienneValeur = valeurTotale;
+            valeurTotale = 0;
+            valeurParCategorie.clear();
+            for (Ligne ligne : lignes.values()) {
+                ajouter(ligne, 1);
+            }
+            ecart = valeurTotale - ancienneValeur;
+        }
+        if (Math.abs(ecart) >= 0.01) {
+            System.out.println("🔄 Valeur du stock réconciliée (écart: " + String.format("%.2f", ecart) + " €)");
+        }
+    }
+    
+    // ============ LECTURE ============
+    
+    public synchronized double getValeurTotale() {
+        return valeurTotale;
+    }
+    
+    // Valeur par id de catégorie (SANS_CATEGORIE pour les produits non classés), catégories vides exclues
+    public synchronized Map<Long, Double> getValeurParCategorie() {
+        Map<Long, Double> valeurs = new HashMap<>();
+        valeurParCategorie.forEach((categorieId, valeur) -> {
+            if (Math.abs(valeur) >= 0.005) {
+                valeurs.put(categorieId, valeur);
+            }
+        });
+        return valeurs;
+    }
+    
+    private static final class Ligne {
+        private final double prix;
+        private final int quantite;
+        private final long categorieId;
+        
+        private Ligne(Double prix, Integer quantite, Long categorieId) {
+            this.prix = prix != null ? prix : 0;
+            this.quantite = quantite != null ? quantite : 0;
+            this.categorieId = categorieId != null ? categorieId : SANS_CATEGORIE;
+        }
+        
+        // Seuls les produits en stock sont valorisés
+        private double valeur() {
+            return quantite > 0 ? prix * quantite : 0;
+        }
+    }
+}
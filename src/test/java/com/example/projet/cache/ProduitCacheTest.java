@@ -0,0 +1,41 @@
+package com.example.projet.cache;
+
+import com.example.projet.entity.Categorie;
+import com.example.projet.entity.Produit;
+import com.example.projet.repository.ProduitRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProduitCacheTest {
+    
+    // Un appelant qui modifie sa copie, catégorie comprise, ne touche pas l'entrée partagée
+    @Test
+    void copieProfondeProduitEtCategorie() {
+        ProduitRepository produitRepository = mock(ProduitRepository.class);
+        Produit produit = new Produit("Café", null, 4.0, 10, new Categorie(3L, "Boissons", null));
+        produit.setId(1L);
+        when(produitRepository.findById(1L)).thenReturn(Optional.of(produit));
+        ProduitCache cache = new ProduitCache(100);
+        ReflectionTestUtils.setField(cache, "produitRepository", produitRepository);
+        
+        Produit premiere = cache.findById(1L).orElseThrow();
+        premiere.setNom("Modifié");
+        premiere.getCategorie().setNom("Modifiée");
+        Produit seconde = cache.findById(1L).orElseThrow();
+        
+        assertEquals("Café", seconde.getNom());
+        assertEquals("Boissons", seconde.getCategorie().getNom());
+        assertEquals(3L, seconde.getCategorie().getId());
+        assertNotSame(premiere.getCategorie(), seconde.getCategorie());
+        verify(produitRepository, times(1)).findById(1L);
+    }
+}
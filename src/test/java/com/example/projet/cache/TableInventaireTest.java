@@ -0,0 +1,179 @@
+package com.example.projet.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TableInventaireTest {
+    
+    @Test
+    void reservationsConcurrentesNeDepassentPasLeStock() throws Exception {
+        TableInventaire table = new TableInventaire();
+        table.definirStock(7, 1000);
+        AtomicInteger reussies = new AtomicInteger();
+        
+        executerEnParallele(16, () -> {
+            while (table.reserver(7, 1)) {
+                reussies.incrementAndGet();
+            }
+        });
+        
+        assertEquals(1000, reussies.get());
+        assertEquals(0, table.disponible(7));
+        assertEquals(1000, table.stock(7));
+    }
+    
+    @Test
+    void reserverEtLibererEnParallelePreserventLeStock() throws Exception {
+        TableInventaire table = new TableInventaire();
+        table.definirStock(3, 50);
+        
+        executerEnParallele(8, () -> {
+            for (int i = 0; i < 20_000; i++) {
+                if (table.reserver(3, 2)) {
+                    table.liberer(3, 2);
+                }
+            }
+        });
+        
+        assertEquals(50, table.disponible(3));
+    }
+    
+    @Test
+    void agrandissementPendantLecturesEtReservations() throws Exception {
+        TableInventaire table = new TableInventaire();
+        for (long id = 1; id <= 100; id++) {
+            table.definirStock(id, 10);
+        }
+        AtomicBoolean insertionTerminee = new AtomicBoolean();
+        AtomicInteger incoherences = new AtomicInteger();
+        
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            List<Future<?>> taches = new ArrayList<>();
+            taches.add(executor.submit(() -> {
+                for (long id = 1_000; id < 60_000; id++) {
+                    table.definirStock(id, (int) (id % 1000));
+                }
+                insertionTerminee.set(true);
+            }));
+            for (int t = 0; t < 4; t++) {
+                taches.add(executor.submit(() -> {
+                    while (!insertionTerminee.get()) {
+                        for (long id = 1; id <= 100; id++) {
+                            if (table.stock(id) != 10) {
+                                incoherences.incrementAndGet();
+                            }
+                            if (table.reserver(id, 1)) {
+                                table.liberer(id, 1);
+                            } else {
+                                incoherences.incrementAndGet();
+                            }
+                        }
+                    }
+                }));
+            }
+            for (Future<?> tache : taches) {
+                tache.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        assertEquals(0, incoherences.get());
+        for (long id = 1; id <= 100; id++) {
+            assertEquals(10, table.disponible(id));
+        }
+        for (long id = 1_000; id < 60_000; id++) {
+            assertEquals((int) (id % 1000), table.stock(id));
+        }
+    }
+    
+    @Test
+    void produitSupprimePuisReinsere() {
+        TableInventaire table = new TableInventaire();
+        table.definirStock(5, 10);
+        assertTrue(table.reserver(5, 3));
+        
+        table.supprimer(5);
+        assertEquals(TableInventaire.INCONNU, table.disponible(5));
+        assertEquals(TableInventaire.INCONNU, table.stock(5));
+        assertFalse(table.reserver(5, 1));
+        
+        // Réinsertion : les réservations de l'ancien produit ne sont pas reprises
+        table.chargerSiAbsent(5, 7);
+        assertEquals(7, table.disponible(5));
+        // Une valeur vivante n'est pas écrasée par un chargement tardif
+        table.chargerSiAbsent(5, 99);
+        assertEquals(7, table.stock(5));
+    }
+    
+    @Test
+    void definirStockConserveLesReservations() {
+        TableInventaire table = new TableInventaire();
+        table.definirStock(9, 10);
+        assertTrue(table.reserver(9, 4));
+        table.definirStock(9, 6);
+        assertEquals(6, table.stock(9));
+        assertEquals(2, table.disponible(9));
+        
+        table.liberer(9, 10);
+        assertEquals(6, table.disponible(9));
+    }
+    
+    @Test
+    void valeursExtremesDuPaquet() {
+        TableInventaire table = new TableInventaire();
+        table.definirStock(1, Integer.MAX_VALUE);
+        assertTrue(table.reserver(1, Integer.MAX_VALUE));
+        assertEquals(Integer.MAX_VALUE, table.stock(1));
+        assertEquals(0, table.disponible(1));
+        
+        table.definirStock(2, -5);
+        assertEquals(-5, table.stock(2));
+        assertEquals(-5, table.disponible(2));
+        assertFalse(table.reserver(2, 1));
+        
+        table.definirStock(3, 0);
+        assertEquals(0, table.stock(3));
+        assertTrue(table.reserver(3, 0));
+        
+        assertEquals(TableInventaire.INCONNU, table.stock(4));
+        assertThrows(IllegalArgumentException.class, () -> table.definirStock(4, Integer.MIN_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> table.definirStock(0, 1));
+    }
+    
+    private static void executerEnParallele(int threads, Runnable tache) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch depart = new CountDownLatch(1);
+        try {
+            List<Future<?>> resultats = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                resultats.add(executor.submit(() -> {
+                    depart.await();
+                    tache.run();
+                    return null;
+                }));
+            }
+            depart.countDown();
+            for (Future<?> resultat : resultats) {
+                resultat.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.projet.event;
+
+import com.example.projet.entity.Produit;
+import com.example.projet.repository.ProduitRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChargementCatalogueTest {
+    
+    private final List<ProduitChangeEvent> publies = new ArrayList<>();
+    private ProduitRepository produitRepository;
+    private ChargementCatalogue chargement;
+    
+    @BeforeEach
+    void preparer() {
+        produitRepository = mock(ProduitRepository.class);
+        ApplicationEventPublisher publisher = event -> publies.add((ProduitChangeEvent) event);
+        chargement = new ChargementCatalogue();
+        ReflectionTestUtils.setField(chargement, "produitRepository", produitRepository);
+        ReflectionTestUtils.setField(chargement, "eventPublisher", publisher);
+    }
+    
+    private static Produit produit(long id, long changeSeq) {
+        Produit produit = new Produit("P" + id, null, 10.0, 3, null);
+        produit.setId(id);
+        produit.setChangeSeq(changeSeq);
+        return produit;
+    }
+    
+    // Écritures validées entre le début du chargement et la lecture de la page
+    @Test
+    void evenementRejoueNonPlusRecentQueLeDirectEstEcarte() {
+        when(produitRepository.findPageApresId(anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+            chargement.onProduitChange(ProduitChangeEvent.upsert(produit(1, 9), null));
+            chargement.onProduitChange(ProduitChangeEvent.suppression(2L, 8L));
+            chargement.onProduitChange(ProduitChangeEvent.upsert(produit(3, 4), null));
+            return List.of(produit(1, 5), produit(2, 6), produit(3, 7), produit(4, 2));
+        });
+        
+        chargement.chargerCatalogue();
+        
+        assertEquals(List.of(3L, 4L), publies.stream().map(ProduitChangeEvent::getProduitId).toList());
+    }
+    
+    // Après le chargement, les événements en direct ne sont plus retenus
+    @Test
+    void evenementsEnDirectOubliesApresLeChargement() {
+        when(produitRepository.findPageApresId(anyLong(), any(Limit.class))).thenReturn(List.of());
+        chargement.chargerCatalogue();
+        chargement.onProduitChange(ProduitChangeEvent.upsert(produit(1, 9), null));
+        
+        when(produitRepository.findPageApresId(anyLong(), any(Limit.class))).thenReturn(List.of(produit(1, 5)));
+        chargement.chargerCatalogue();
+        
+        assertEquals(1, publies.size());
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.projet.panier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalPanierTest {
+    
+    @TempDir
+    Path repertoire;
+    
+    @Test
+    void rejeuApresRedemarrageDansLOrdreDEcriture() throws IOException {
+        try (JournalPanier journal = new JournalPanier(repertoire, true)) {
+            journal.attendre(journal.ajouter(JournalPanier.ligne(1, 10, 2)));
+            journal.attendre(journal.ajouter(JournalPanier.vidage(1)
+                    + JournalPanier.ligne(1, 11, 3)
+                    + JournalPanier.oubli(2)));
+        }
+        
+        List<String> lus = new ArrayList<>();
+        try (JournalPanier journal = new JournalPanier(repertoire, true)) {
+            assertEquals(4, journal.rejouer(lecteur(lus)));
+        }
+        assertEquals(List.of("L 1 10 2", "V 1", "L 1 11 3", "O 2"), lus);
+    }
+    
+    @Test
+    void enregistrementTronqueOuCorrompuIgnore() throws IOException {
+        Files.writeString(repertoire.resolve("panier-1.wal"),
+                "L 1 10 2 ;\nL 1 x 4 ;\nV ;\nL 1 11 5 ;\nL 1 12", StandardCharsets.UTF_8);
+        
+        List<String> lus = new ArrayList<>();
+        try (JournalPanier journal = new JournalPanier(repertoire, true)) {
+            assertEquals(2, journal.getSegment());
+            assertEquals(2, journal.rejouer(lecteur(lus)));
+        }
+        assertEquals(List.of("L 1 10 2", "L 1 11 5"), lus);
+    }
+    
+    @Test
+    void rotationEcritLeTamponDansLeSegmentFerme() throws IOException {
+        List<String> lus = new ArrayList<>();
+        try (JournalPanier journal = new JournalPanier(repertoire, true)) {
+            journal.ajouter(JournalPanier.ligne(1, 10, 1));
+            long ferme = journal.rotation();
+            assertEquals(1, ferme);
+            assertEquals(2, journal.getSegment());
+            assertTrue(Files.readString(repertoire.resolve("panier-1.wal")).contains("L 1 10 1 ;"));
+            
+            journal.attendre(journal.ajouter(JournalPanier.ligne(1, 20, 2)));
+            journal.supprimerJusqua(ferme);
+            assertFalse(Files.exists(repertoire.resolve("panier-1.wal")));
+        }
+        try (JournalPanier journal = new JournalPanier(repertoire, true)) {
+            journal.rejouer(lecteur(lus));
+        }
+        assertEquals(List.of("L 1 20 2"), lus);
+    }
+    
+    @Test
+    void ecrituresConcurrentesToutesDurables() throws Exception {
+        int taches = 8;
+        int parTache = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(taches);
+        try (JournalPanier journal = new JournalPanier(repertoire, true)) {
+            List<Future<?>> resultats = new ArrayList<>();
+            for (int t = 0; t < taches; t++) {
+                long userId = t;
+                resultats.add(executor.submit(() -> {
+                    for (int i = 1; i <= parTache; i++) {
+                        journal.attendre(journal.ajouter(JournalPanier.ligne(userId, 1, i)));
+                    }
+                }));
+            }
+            for (Future<?> resultat : resultats) {
+                resultat.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        List<String> lus = new ArrayList<>();
+        try (JournalPanier journal = new JournalPanier(repertoire, true)) {
+            assertEquals(taches * parTache, journal.rejouer(lecteur(lus)));
+        }
+        // Par utilisateur, les quantités arrivent dans l'ordre d'ajout
+        for (int t = 0; t < taches; t++) {
+            String prefixe = "L " + t + " 1 ";
+            List<String> lignes = lus.stream().filter(l -> l.startsWith(prefixe)).toList();
+            for (int i = 0; i < parTache; i++) {
+                assertEquals(prefixe + (i + 1), lignes.get(i));
+            }
+        }
+    }
+    
+    @Test
+    void segmentCourantVideSupprimeALaFermeture() throws IOException {
+        try (JournalPanier journal = new JournalPanier(repertoire, true)) {
+            assertTrue(Files.exists(repertoire.resolve("panier-1.wal")));
+        }
+        assertFalse(JournalPanier.contientDesEnregistrements(repertoire));
+        
+        try (JournalPanier journal = new JournalPanier(repertoire, false)) {
+            journal.ajouter(JournalPanier.ligne(3, 30, 1));
+        }
+        assertTrue(JournalPanier.contientDesEnregistrements(repertoire));
+    }
+    
+    private static JournalPanier.Lecteur lecteur(List<String> lus) {
+        return new JournalPanier.Lecteur() {
+            @Override
+            public void appliquer(long userId, Long produitId, int quantite) {
+                lus.add(produitId == null ? "V " + userId : "L " + userId + " " + produitId + " " + quantite);
+            }
+            
+            @Override
+            public void oublier(long userId) {
+                lus.add("O " + userId);
+            }
+        };
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.projet.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Requêtes natives du panier contre un vrai PostgreSQL (embarqué, schéma généré par Hibernate) :
+ * ajout en une requête (PanierItemUpsertRepository) et recalcul des totaux verrouillé
+ * (PanierRepository.recalculerTotaux). Chaque test valide ses propres transactions.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(PanierItemUpsertRepository.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PanierSqlPostgresTest {
+    
+    private static EmbeddedPostgres postgres;
+    
+    @DynamicPropertySource
+    static void baseDeDonnees(DynamicPropertyRegistry registry) throws IOException {
+        postgres = EmbeddedPostgres.start();
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create");
+        registry.add("spring.jpa.show-sql", () -> "false");
+    }
+    
+    @AfterAll
+    static void arreter() throws IOException {
+        postgres.close();
+    }
+    
+    @Autowired
+    private PanierItemUpsertRepository upsertRepository;
+    
+    @Autowired
+    private PanierRepository panierRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private TransactionTemplate transaction;
+    private Long userId;
+    private Long panierId;
+    private Long cafe;
+    private Long the;
+    
+    @BeforeEach
+    void preparer() {
+        transaction = new TransactionTemplate(transactionManager);
+        jdbcTemplate.execute("TRUNCATE panier_items, paniers, produits, users RESTART IDENTITY CASCADE");
+        userId = jdbcTemplate.queryForObject("INSERT INTO users (username, password, role, active) " +
+                "VALUES ('client', 'x', 'USER', true) RETURNING id", Long.class);
+        panierId = jdbcTemplate.queryForObject("INSERT INTO paniers (user_id) VALUES (?) RETURNING id", Long.class, userId);
+        cafe = produit("Café", 2.5, 10);
+        the = produit("Thé", 4.0, 4);
+    }
+    
+    private Long produit(String nom, double prix, int stock) {
+        return jdbcTemplate.queryForObject("INSERT INTO produits (nom, prix, quantite) VALUES (?, ?, ?) RETURNING id",
+                Long.class, nom, prix, stock);
+    }
+    
+    // [subtotal, line_count, unit_count] tels que stockés sur le panier
+    private List<Object> totaux() {
+        Map<String, Object> ligne = jdbcTemplate.queryForMap(
+                "SELECT subtotal, line_count, unit_count FROM paniers WHERE id = ?", panierId);
+        return List.of(ligne.get("subtotal"), ligne.get("line_count"), ligne.get("unit_count"));
+    }
+    
+    // Mêmes totaux recalculés depuis les lignes
+    private List<Object> totauxDesLignes() {
+        Map<String, Object> ligne = jdbcTemplate.queryForMap(
+                "SELECT COALESCE(SUM(pi.quantite * pr.prix), 0) AS subtotal, COUNT(pi.id)::int AS line_count, " +
+                "COALESCE(SUM(pi.quantite), 0)::int AS unit_count " +
+                "FROM panier_items pi JOIN produits pr ON pr.id = pi.produit_id WHERE pi.panier_id = ?", panierId);
+        return List.of(ligne.get("subtotal"), ligne.get("line_count"), ligne.get("unit_count"));
+    }
+    
+    private int recalculer() {
+        return transaction.execute(statut -> panierRepository.recalculerTotaux(List.of(panierId)));
+    }
+    
+    @Test
+    void ajoutInsereIncrementeEtTientLesTotauxAJour() {
+        PanierItemUpsertRepository.ResultatAjout premier = upsertRepository.ajouterParUtilisateur(userId, cafe, 2);
+        PanierItemUpsertRepository.ResultatAjout second = upsertRepository.ajouterParUtilisateur(userId, cafe, 3);
+        upsertRepository.ajouterParPanier(panierId, the, 1);
+        
+        assertTrue(premier.isAjoute());
+        assertEquals(2, premier.getQuantite());
+        assertEquals(premier.getItemId(), second.getItemId());
+        assertEquals(5, second.getQuantite());
+        assertEquals(List.of(16.5, 2, 6), totaux());
+        assertEquals(totauxDesLignes(), totaux());
+        // Totaux incrémentés identiques au recalcul : aucun panier réécrit
+        assertEquals(0, recalculer());
+    }
+    
+    @Test
+    void ajoutAuDelaDuStockRefuseSansToucherLesTotaux() {
+        upsertRepository.ajouterParPanier(panierId, the, 3);
+        
+        PanierItemUpsertRepository.ResultatAjout refuse = upsertRepository.ajouterParPanier(panierId, the, 2);
+        PanierItemUpsertRepository.ResultatAjout horsStock = upsertRepository.ajouterParPanier(panierId, cafe, 11);
+        
+        assertFalse(refuse.isAjoute());
+        assertTrue(refuse.isProduitTrouve());
+        assertEquals(4, refuse.getStock());
+        assertFalse(horsStock.isAjoute());
+        assertEquals(List.of(12.0, 1, 3), totaux());
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT quantite FROM panier_items WHERE panier_id = ?", Integer.class, panierId));
+        
+        assertFalse(upsertRepository.ajouterParPanier(panierId + 1, cafe, 1).isPanierTrouve());
+        assertFalse(upsertRepository.ajouterParPanier(panierId, cafe + 100, 1).isProduitTrouve());
+    }
+    
+    @Test
+    void recalculApresChangementDePrix() {
+        upsertRepository.ajouterParPanier(panierId, cafe, 2);
+        jdbcTemplate.update("UPDATE produits SET prix = 3.0 WHERE id = ?", cafe);
+        
+        assertEquals(1, recalculer());
+        assertEquals(List.of(6.0, 1, 2), totaux());
+        assertEquals(0, recalculer());
+    }
+    
+    // Ajouts concurrents sur le même panier et le même produit : ni ligne en double, ni incrément perdu
+    @Test
+    void ajoutsConcurrentsGardentDesTotauxExacts() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch depart = new CountDownLatch(1);
+            List<Future<?>> ajouts = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                Long produitId = i % 2 == 0 ? cafe : the;
+                ajouts.add(executor.submit(() -> {
+                    depart.await();
+                    return upsertRepository.ajouterParUtilisateur(userId, produitId, 1);
+                }));
+            }
+            depart.countDown();
+            for (Future<?> ajout : ajouts) {
+                ajout.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        // Café : 10 en stock, 20 demandés ; Thé : 4 en stock, 20 demandés
+        assertEquals(List.of(41.0, 2, 14), totaux());
+        assertEquals(totauxDesLignes(), totaux());
+        assertEquals(0, recalculer());
+    }
+    
+    // Le recalcul attend le verrou du panier tenu par un ajout non validé, puis compte sa ligne
+    @Test
+    void recalculAttendLAjoutEnCoursEtLeCompte() throws Exception {
+        upsertRepository.ajouterParPanier(panierId, cafe, 1);
+        // Totaux désynchronisés : le recalcul doit réécrire le panier
+        jdbcTemplate.update("UPDATE paniers SET subtotal = 0, line_count = 0, unit_count = 0 WHERE id = ?", panierId);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch ajoute = new CountDownLatch(1);
+            CountDownLatch valider = new CountDownLatch(1);
+            Future<?> ajout = executor.submit(() -> transaction.executeWithoutResult(statut -> {
+                upsertRepository.ajouterParPanier(panierId, the, 2);
+                ajoute.countDown();
+                try {
+                    valider.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+            assertTrue(ajoute.await(30, TimeUnit.SECONDS));
+            
+            Future<Integer> recalcul = executor.submit(this::recalculer);
+            Thread.sleep(500);
+            assertFalse(recalcul.isDone(), "le recalcul doit attendre le verrou du panier");
+            
+            valider.countDown();
+            ajout.get(30, TimeUnit.SECONDS);
+            assertEquals(1, recalcul.get(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        assertEquals(List.of(10.5, 2, 3), totaux());
+        assertEquals(totauxDesLignes(), totaux());
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.projet.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IndexPrefixesTest {
+    
+    @Test
+    void indexVide() {
+        assertEquals(0, IndexPrefixes.VIDE.getTaille());
+        assertEquals(List.of(), IndexPrefixes.VIDE.meilleurs("a", 5));
+    }
+    
+    @Test
+    void plusPopulairesDAbordPuisOrdreDesCles() {
+        IndexPrefixes index = new IndexPrefixes.Constructeur()
+                .ajouter("chaise", 0, 5)
+                .ajouter("chapeau", 1, 9)
+                .ajouter("chat", 2, 5)
+                .ajouter("cheval", 3, 100)
+                .ajouter("ch", 4, 1)
+                .construire();
+        
+        assertEquals(List.of(1, 0, 2), index.meilleurs("cha", 10));
+        assertEquals(List.of(3, 1), index.meilleurs("ch", 2));
+        assertEquals(List.of(3, 1, 0, 2, 4), index.meilleurs("c", 10));
+    }
+    
+    @Test
+    void bornesDeLIntervalle() {
+        IndexPrefixes index = new IndexPrefixes.Constructeur()
+                .ajouter("ab", 0, 1)
+                .ajouter("abc", 1, 1)
+                .ajouter("abd", 2, 1)
+                .ajouter("b", 3, 1)
+                .construire();
+        
+        assertEquals(List.of(0, 1, 2), index.meilleurs("ab", 10));
+        assertEquals(List.of(1), index.meilleurs("abc", 10));
+        assertEquals(List.of(), index.meilleurs("abcd", 10));
+        assertEquals(List.of(), index.meilleurs("aa", 10));
+        assertEquals(List.of(), index.meilleurs("z", 10));
+        assertEquals(List.of(3), index.meilleurs("b", 10));
+        assertEquals(List.of(), index.meilleurs("ab", 0));
+    }
+    
+    @Test
+    void clesVidesIgnorees() {
+        IndexPrefixes index = new IndexPrefixes.Constructeur()
+                .ajouter("", 0, 50)
+                .ajouter("a", 1, 1)
+                .construire();
+        assertEquals(1, index.getTaille());
+        assertEquals(List.of(1), index.meilleurs("a", 10));
+    }
+    
+    @Test
+    void entreesDistinctesMemeAvecBeaucoupDeClesParEntree() {
+        // L'entrée 0, très populaire, a de nombreuses clés ("bottes de randonnee", "randonnee", ...)
+        IndexPrefixes.Constructeur constructeur = new IndexPrefixes.Constructeur();
+        for (int i = 0; i < 20; i++) {
+            constructeur.ajouter("rando" + (char) ('a' + i), 0, 1000);
+        }
+        constructeur.ajouter("randonneur", 1, 10);
+        constructeur.ajouter("randonnee", 2, 5);
+        constructeur.ajouter("rando", 3, 1);
+        IndexPrefixes index = constructeur.construire();
+        
+        assertEquals(List.of(0, 1, 2), index.meilleurs("rando", 3));
+        assertEquals(List.of(0, 1, 2, 3), index.meilleurs("rando", 10));
+    }
+    
+    @Test
+    void conformeAUnParcoursExhaustif() {
+        Random aleatoire = new Random(42);
+        IndexPrefixes.Constructeur constructeur = new IndexPrefixes.Constructeur();
+        List<String> cles = new ArrayList<>();
+        List<int[]> valeurs = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String cle = motAleatoire(aleatoire);
+            int entree = aleatoire.nextInt(500);
+            int popularite = aleatoire.nextInt(50);
+            constructeur.ajouter(cle, entree, popularite);
+            cles.add(cle);
+            valeurs.add(new int[] { entree, popularite });
+        }
+        IndexPrefixes index = constructeur.construire();
+        
+        for (int essai = 0; essai < 300; essai++) {
+            String prefixe = motAleatoire(aleatoire).substring(0, 1 + aleatoire.nextInt(2));
+            int k = 1 + aleatoire.nextInt(15);
+            
+            // Clés du préfixe triées par popularité décroissante puis par ordre des clés
+            List<Integer> positions = new ArrayList<>();
+            for (int i = 0; i < cles.size(); i++) {
+                if (cles.get(i).startsWith(prefixe)) {
+                    positions.add(i);
+                }
+            }
+            positions.sort(Comparator.comparingInt((Integer i) -> -valeurs.get(i)[1]).thenComparing(cles::get));
+            Set<Integer> attendu = new LinkedHashSet<>();
+            for (int i : positions) {
+                if (attendu.size() == k) {
+                    break;
+                }
+                attendu.add(valeurs.get(i)[0]);
+            }
+            
+            assertEquals(new ArrayList<>(attendu), index.meilleurs(prefixe, k), "préfixe " + prefixe + ", k " + k);
+        }
+    }
+    
+    private static String motAleatoire(Random aleatoire) {
+        StringBuilder mot = new StringBuilder();
+        int longueur = 3 + aleatoire.nextInt(5);
+        for (int i = 0; i < longueur; i++) {
+            mot.append((char) ('a' + aleatoire.nextInt(4)));
+        }
+        return mot.toString();
+    }
+}
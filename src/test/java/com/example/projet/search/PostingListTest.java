@@ -0,0 +1,122 @@
+package com.example.projet.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PostingListTest {
+    
+    @Test
+    void allerRetourDesVarints() {
+        int[][] entrees = {
+            { 0, 1 }, { 1, 127 }, { 128, 128 }, { 16_383, 16_384 }, { 2_000_000, 300 }, { Integer.MAX_VALUE, Integer.MAX_VALUE }
+        };
+        PostingList liste = new PostingList();
+        for (int[] entree : entrees) {
+            liste.ajouter(entree[0], entree[1]);
+        }
+        
+        List<String> attendu = new ArrayList<>();
+        for (int[] entree : entrees) {
+            attendu.add(entree[0] + ":" + entree[1]);
+        }
+        assertEquals(entrees.length, liste.getNombre());
+        assertEquals(attendu, lire(liste));
+    }
+    
+    @Test
+    void listeVide() {
+        PostingList liste = new PostingList();
+        assertEquals(0, liste.getNombre());
+        assertFalse(liste.lecteur().suivant());
+    }
+    
+    @Test
+    void ordinalNonCroissantRefuse() {
+        PostingList liste = new PostingList();
+        liste.ajouter(5, 1);
+        assertThrows(IllegalArgumentException.class, () -> liste.ajouter(5, 2));
+        assertThrows(IllegalArgumentException.class, () -> liste.ajouter(3, 1));
+        liste.ajouter(6, 1);
+        assertEquals(2, liste.getNombre());
+    }
+    
+    @Test
+    void lecteursIndependants() {
+        PostingList liste = new PostingList();
+        liste.ajouter(2, 4);
+        liste.ajouter(9, 1);
+        PostingList.Lecteur premier = liste.lecteur();
+        premier.suivant();
+        premier.suivant();
+        
+        PostingList.Lecteur second = liste.lecteur();
+        second.suivant();
+        assertEquals(9, premier.ordinal());
+        assertEquals(2, second.ordinal());
+        assertEquals(4, second.frequence());
+    }
+    
+    @Test
+    void compactageRetireLesSupprimesEtRenumerote() {
+        PostingList liste = new PostingList();
+        for (int ordinal = 0; ordinal < 1000; ordinal += 3) {
+            liste.ajouter(ordinal, ordinal % 7 + 1);
+        }
+        BitSet supprimes = new BitSet();
+        int[] nouvelOrdinal = new int[1000];
+        int vivants = 0;
+        for (int ordinal = 0; ordinal < 1000; ordinal++) {
+            if (ordinal % 2 == 0) {
+                supprimes.set(ordinal);
+            } else {
+                nouvelOrdinal[ordinal] = vivants++;
+            }
+        }
+        
+        PostingList compacte = liste.compacter(supprimes, nouvelOrdinal);
+        
+        List<String> attendu = new ArrayList<>();
+        for (int ordinal = 0; ordinal < 1000; ordinal += 3) {
+            if (ordinal % 2 != 0) {
+                attendu.add(nouvelOrdinal[ordinal] + ":" + (ordinal % 7 + 1));
+            }
+        }
+        assertEquals(attendu.size(), compacte.getNombre());
+        assertEquals(attendu, lire(compacte));
+        // L'original est intact
+        assertEquals(334, liste.getNombre());
+        
+        // Une liste compactée accepte de nouveaux ajouts après son dernier ordinal
+        compacte.ajouter(vivants, 2);
+        assertEquals(attendu.size() + 1, lire(compacte).size());
+    }
+    
+    @Test
+    void compactageDeToutesLesEntrees() {
+        PostingList liste = new PostingList();
+        liste.ajouter(0, 1);
+        liste.ajouter(1, 1);
+        BitSet supprimes = new BitSet();
+        supprimes.set(0, 2);
+        
+        PostingList compacte = liste.compacter(supprimes, new int[2]);
+        assertEquals(0, compacte.getNombre());
+        assertFalse(compacte.lecteur().suivant());
+    }
+    
+    private static List<String> lire(PostingList liste) {
+        List<String> entrees = new ArrayList<>();
+        PostingList.Lecteur lecteur = liste.lecteur();
+        while (lecteur.suivant()) {
+            entrees.add(lecteur.ordinal() + ":" + lecteur.frequence());
+        }
+        return entrees;
+    }
+}
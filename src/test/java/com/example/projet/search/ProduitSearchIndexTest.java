@@ -0,0 +1,109 @@
+package com.example.projet.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProduitSearchIndexTest {
+    
+    private final ProduitSearchIndex index = new ProduitSearchIndex();
+    
+    @Test
+    void nomPlusLourdQueLaDescription() {
+        index.indexer(1L, "Lampe de bureau", "Éclairage chaleureux, idéale près d'un fauteuil", null, null);
+        index.indexer(2L, "Fauteuil club", "Cuir vieilli", null, null);
+        
+        assertEquals(List.of(2L, 1L), index.rechercher("fauteuil", 10));
+    }
+    
+    @Test
+    void categoriePlusLourdeQueLaDescription() {
+        index.indexer(1L, "Modèle A", "Se range avec les chaussures", 10L, "Rangement");
+        index.indexer(2L, "Modèle B", "Cuir", 20L, "Chaussures");
+        
+        assertEquals(List.of(2L, 1L), index.rechercher("chaussure", 10));
+    }
+    
+    @Test
+    void documentCourtDevantDocumentLongAFrequenceEgale() {
+        index.indexer(1L, "Table", "Chêne massif, pieds métal, plateau huilé, livrée montée, garantie cinq ans", null, null);
+        index.indexer(2L, "Table", "Chêne", null, null);
+        
+        assertEquals(List.of(2L, 1L), index.rechercher("table", 10));
+    }
+    
+    @Test
+    void termeRareDevantTermeFrequent() {
+        for (long id = 1; id <= 20; id++) {
+            index.indexer(id, "Chaise " + id, null, null, null);
+        }
+        index.indexer(100L, "Chaise velours", null, null, null);
+        index.indexer(101L, "Tabouret velours", null, null, null);
+        
+        List<Long> resultats = index.rechercher("chaise velours", 3);
+        assertEquals(100L, resultats.get(0));
+        // "velours" (2 documents) l'emporte sur "chaise" (21 documents)
+        assertEquals(101L, resultats.get(1));
+    }
+    
+    @Test
+    void accentsPlurielsEtMotsVidesIgnores() {
+        index.indexer(1L, "Crème brûlée", null, null, null);
+        
+        assertEquals(List.of(1L), index.rechercher("les CREMES brulees", 10));
+        assertEquals(List.of(), index.rechercher("de la", 10));
+    }
+    
+    @Test
+    void miseAJourEtSuppression() {
+        index.indexer(1L, "Vase bleu", null, null, null);
+        index.indexer(1L, "Vase rouge", null, null, null);
+        index.indexer(2L, "Coupe bleu", null, null, null);
+        
+        assertEquals(List.of(2L), index.rechercher("bleu", 10));
+        assertEquals(List.of(1L), index.rechercher("rouge", 10));
+        
+        index.supprimer(2L);
+        assertEquals(List.of(), index.rechercher("bleu", 10));
+        assertEquals(1, index.getNombreDocuments());
+    }
+    
+    @Test
+    void compactageConserveLesResultats() {
+        int produits = 3000;
+        for (long id = 1; id <= produits; id++) {
+            index.indexer(id, "Article ancien " + id, "Référence stock", null, null);
+        }
+        // Plus de 1000 anciens ordinaux et plus d'un quart des documents : au moins un compactage
+        for (long id = 1; id <= 2000; id++) {
+            index.indexer(id, "Article nouveau " + id, "Référence stock", null, null);
+        }
+        for (long id = 2001; id <= 2100; id++) {
+            index.supprimer(id);
+        }
+        
+        int supprimesRestants = (int) index.getStatistiques().get("documentsSupprimes");
+        assertTrue(supprimesRestants < 1000, "compactage attendu, supprimés restants: " + supprimesRestants);
+        assertEquals(produits - 100, index.getNombreDocuments());
+        
+        assertEquals(Set.copyOf(ids(1, 2000)), new HashSet<>(index.rechercher("nouveau", produits)));
+        assertEquals(Set.copyOf(ids(2101, produits)), new HashSet<>(index.rechercher("ancien", produits)));
+        assertEquals(List.of(1500L), index.rechercher("1500", 10));
+        assertEquals(List.of(), index.rechercher("2050", 10));
+        
+        // Les ordinaux renumérotés continuent d'accepter des mises à jour
+        index.indexer(1500L, "Article ancien 1500", null, null, null);
+        assertTrue(index.rechercher("ancien", produits).contains(1500L));
+        assertEquals(1999, index.rechercher("nouveau", produits).size());
+    }
+    
+    private static List<Long> ids(long premier, long dernier) {
+        return LongStream.rangeClosed(premier, dernier).boxed().toList();
+    }
+}
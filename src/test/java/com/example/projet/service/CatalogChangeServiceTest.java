@@ -0,0 +1,72 @@
+package com.example.projet.service;
+
+import com.example.projet.repository.CatalogTombstoneRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CatalogChangeServiceTest {
+    
+    private final AtomicLong sequence = new AtomicLong(100);
+    private CatalogChangeService service;
+    
+    @BeforeEach
+    void preparer() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        CatalogTombstoneRepository tombstoneRepository = mock(CatalogTombstoneRepository.class);
+        when(tombstoneRepository.nextChangeSeq()).thenAnswer(invocation -> sequence.incrementAndGet());
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenAnswer(invocation -> sequence.get());
+        
+        service = new CatalogChangeService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "tombstoneRepository", tombstoneRepository);
+    }
+    
+    @AfterEach
+    void nettoyer() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+    
+    @Test
+    void filigraneBorneParLaSequenceQuandRienNEstEnVol() {
+        assertEquals(100, service.filigrane());
+        service.suivant();
+        assertEquals(101, service.filigrane());
+    }
+    
+    // D tire 101 et reste ouverte, E tire 102 et valide : 102 ne doit pas être livré avant 101
+    @Test
+    void validationDansLDesordreNeDepassePasLeNumeroEnVol() {
+        long avantD = service.filigrane();
+        
+        TransactionSynchronizationManager.initSynchronization();
+        long d = service.suivant();
+        List<TransactionSynchronization> transactionD = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        
+        long e = service.suivant();
+        
+        assertEquals(100, avantD);
+        assertEquals(101, d);
+        assertEquals(102, e);
+        assertEquals(100, service.filigrane());
+        
+        transactionD.forEach(synchronisation -> synchronisation.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        assertEquals(102, service.filigrane());
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.projet.service;
+
+import com.example.projet.event.ProduitChangeEvent;
+import com.example.projet.repository.CatalogTombstoneRepository;
+import com.example.projet.repository.CategorieRepository;
+import com.example.projet.repository.ProduitRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.event.TransactionalEventListenerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Un client qui reprend avec since=<id du lot> ne doit manquer aucune modification validée
+class CatalogueStreamServiceTest {
+    
+    private final AtomicLong sequence = new AtomicLong(100);
+    // Exécutée une fois, pendant la lecture du filigrane : un commit concurrent du lot
+    private Runnable pendantLectureFiligrane;
+    private AnnotationConfigApplicationContext contexte;
+    private CatalogueStreamService stream;
+    private CatalogChangeService changes;
+    
+    @BeforeEach
+    void preparer() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        CatalogTombstoneRepository tombstoneRepository = mock(CatalogTombstoneRepository.class);
+        when(tombstoneRepository.nextChangeSeq()).thenAnswer(invocation -> sequence.incrementAndGet());
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenAnswer(invocation -> {
+            Runnable commit = pendantLectureFiligrane;
+            pendantLectureFiligrane = null;
+            if (commit != null) {
+                commit.run();
+            }
+            return sequence.get();
+        });
+        
+        contexte = new AnnotationConfigApplicationContext();
+        contexte.registerBean(TransactionalEventListenerFactory.class);
+        contexte.registerBean(JdbcTemplate.class, () -> jdbcTemplate);
+        contexte.registerBean(CatalogTombstoneRepository.class, () -> tombstoneRepository);
+        contexte.registerBean(ProduitRepository.class, () -> mock(ProduitRepository.class));
+        contexte.registerBean(CategorieRepository.class, () -> mock(CategorieRepository.class));
+        contexte.registerBean(CatalogChangeService.class);
+        contexte.registerBean(CatalogueStreamService.class, () -> new CatalogueStreamService(16, 10, 60_000, 1));
+        contexte.refresh();
+        
+        stream = contexte.getBean(CatalogueStreamService.class);
+        changes = contexte.getBean(CatalogChangeService.class);
+        stream.abonner();
+    }
+    
+    @AfterEach
+    void nettoyer() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        contexte.close();
+    }
+    
+    // Transaction ouverte qui tire un numéro et publie sa suppression ; renvoie ses synchronisations triées
+    private List<TransactionSynchronization> transactionOuverte(long produitId) {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        long numero = changes.suivant();
+        contexte.publishEvent(ProduitChangeEvent.suppression(produitId, numero));
+        List<TransactionSynchronization> synchronisations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        return synchronisations;
+    }
+    
+    private static void valider(List<TransactionSynchronization> synchronisations) {
+        synchronisations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    }
+    
+    private static boolean contient(List<CatalogueStreamService.Lot> lots, long changeSeq) {
+        return lots.stream().flatMap(lot -> lot.produits.stream())
+                .anyMatch(donnees -> Long.valueOf(changeSeq).equals(donnees.get("changeSeq")));
+    }
+    
+    // Chaque lot dont l'id couvre le numéro doit contenir l'événement, ou un lot précédent
+    private static void verifierAucunTrou(List<CatalogueStreamService.Lot> lots, long changeSeq) {
+        for (int i = 0; i < lots.size(); i++) {
+            if (lots.get(i).filigrane >= changeSeq) {
+                assertTrue(contient(lots.subList(0, i + 1), changeSeq),
+                        "lot d'id " + lots.get(i).filigrane + " publié sans la modification " + changeSeq);
+            }
+        }
+    }
+    
+    // Lot publié entre deux synchronisations du commit : l'événement passe avant la libération du numéro
+    @Test
+    void lotEntreDeuxSynchronisationsDuCommitNeSauteRien() {
+        stream.onProduitChange(ProduitChangeEvent.suppression(1L, changes.suivant()));
+        List<TransactionSynchronization> transaction = transactionOuverte(2L);
+        long numero = sequence.get();
+        
+        List<CatalogueStreamService.Lot> lots = new ArrayList<>();
+        for (TransactionSynchronization synchronisation : transaction) {
+            synchronisation.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            CatalogueStreamService.Lot lot = stream.prendreLot();
+            if (lot != null) {
+                lots.add(lot);
+            }
+        }
+        
+        assertTrue(contient(lots, numero));
+        verifierAucunTrou(lots, numero);
+    }
+    
+    // Commit terminé pendant la lecture du filigrane : la file est vidée après, le lot le contient
+    @Test
+    void commitPendantLaLectureDuFiligraneEstDansLeLot() {
+        stream.onProduitChange(ProduitChangeEvent.suppression(1L, changes.suivant()));
+        List<TransactionSynchronization> transaction = transactionOuverte(2L);
+        long numero = sequence.get();
+        
+        AtomicBoolean valide = new AtomicBoolean();
+        pendantLectureFiligrane = () -> {
+            valider(transaction);
+            valide.set(true);
+        };
+        CatalogueStreamService.Lot lot = stream.prendreLot();
+        
+        assertTrue(valide.get());
+        assertNotNull(lot);
+        assertEquals(numero, lot.filigrane);
+        verifierAucunTrou(List.of(lot), numero);
+    }
+}
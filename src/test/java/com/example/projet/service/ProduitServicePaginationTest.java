@@ -0,0 +1,114 @@
+package com.example.projet.service;
+
+import com.example.projet.dto.PageCurseur;
+import com.example.projet.dto.ProduitResume;
+import com.example.projet.repository.ProduitRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Curseurs de la pagination keyset : encodage, relecture et passage aux produits sans prix
+class ProduitServicePaginationTest {
+    
+    private ProduitRepository produitRepository;
+    private ProduitService service;
+    
+    @BeforeEach
+    void preparer() {
+        produitRepository = mock(ProduitRepository.class);
+        service = new ProduitService();
+        ReflectionTestUtils.setField(service, "produitRepository", produitRepository);
+    }
+    
+    private static ProduitResume produit(long id, String nom, Double prix) {
+        return new ProduitResume(id, nom, prix, 1, null, null, null);
+    }
+    
+    @Test
+    void curseurNomRelitLeDernierNomEtId() {
+        when(produitRepository.findResumesApresNom("", 0L, Limit.of(3))).thenReturn(List.of(
+                produit(4, "Café", 2.0), produit(2, "Thé | vert", 3.0), produit(9, "Zeste", 1.0)));
+        
+        PageCurseur<ProduitResume> page = service.findPage("nom", null, 2);
+        
+        assertEquals(2, page.getContent().size());
+        assertTrue(page.isHasNext());
+        // Le séparateur "|" dans le nom ne casse pas le curseur
+        when(produitRepository.findResumesApresNom("Thé | vert", 2L, Limit.of(3))).thenReturn(List.of(produit(9, "Zeste", 1.0)));
+        PageCurseur<ProduitResume> suivante = service.findPage("nom", page.getNextCursor(), 2);
+        
+        assertEquals(List.of(9L), suivante.getContent().stream().map(ProduitResume::getId).toList());
+        assertFalse(suivante.isHasNext());
+        assertNull(suivante.getNextCursor());
+    }
+    
+    @Test
+    void curseurRefuseSurUnAutreTriOuIllisible() {
+        when(produitRepository.findResumesApresId(0L, Limit.of(2))).thenReturn(List.of(produit(1, "A", 1.0), produit(2, "B", 1.0)));
+        String curseurId = service.findPage("id", null, 1).getNextCursor();
+        assertNotNull(curseurId);
+        
+        assertThrows(IllegalArgumentException.class, () -> service.findPage("prix", curseurId, 1));
+        assertThrows(IllegalArgumentException.class, () -> service.findPage("id", "pas-un-curseur!", 1));
+        assertThrows(IllegalArgumentException.class, () -> service.findPage("stock", null, 1));
+    }
+    
+    // Dernière page des prix trop courte : complétée par les produits sans prix, puis curseur de la phase "sans prix"
+    @Test
+    void produitsSansPrixServisApresLesPrix() {
+        when(produitRepository.findResumesApresPrix(-Double.MAX_VALUE, 0L, Limit.of(4)))
+                .thenReturn(List.of(produit(5, "A", 1.5), produit(3, "B", 9.0)));
+        when(produitRepository.findResumesSansPrixApresId(0L, Limit.of(2)))
+                .thenReturn(List.of(produit(7, "C", null), produit(8, "D", null)));
+        
+        PageCurseur<ProduitResume> page = service.findPage("prix", null, 3);
+        
+        assertEquals(List.of(5L, 3L, 7L), page.getContent().stream().map(ProduitResume::getId).toList());
+        assertTrue(page.isHasNext());
+        
+        when(produitRepository.findResumesSansPrixApresId(7L, Limit.of(4))).thenReturn(List.of(produit(8, "D", null)));
+        PageCurseur<ProduitResume> suivante = service.findPage("prix", page.getNextCursor(), 3);
+        
+        assertEquals(List.of(8L), suivante.getContent().stream().map(ProduitResume::getId).toList());
+        assertFalse(suivante.isHasNext());
+    }
+    
+    // Curseur posé sur un prix : la page suivante reprend après (prix, id)
+    @Test
+    void curseurPrixRelitPrixEtId() {
+        when(produitRepository.findResumesApresPrix(-Double.MAX_VALUE, 0L, Limit.of(2)))
+                .thenReturn(List.of(produit(5, "A", 1.5), produit(3, "B", 9.0)));
+        String curseur = service.findPage("prix", null, 1).getNextCursor();
+        
+        when(produitRepository.findResumesApresPrix(1.5, 5L, Limit.of(2))).thenReturn(List.of(produit(3, "B", 9.0)));
+        when(produitRepository.findResumesSansPrixApresId(0L, Limit.of(1))).thenReturn(List.of());
+        PageCurseur<ProduitResume> suivante = service.findPage("prix", curseur, 1);
+        
+        assertEquals(List.of(3L), suivante.getContent().stream().map(ProduitResume::getId).toList());
+        assertFalse(suivante.isHasNext());
+    }
+    
+    @Test
+    void recentsCommenceAuPlusGrandId() {
+        when(produitRepository.findResumesAvantId(Long.MAX_VALUE, Limit.of(2))).thenReturn(List.of(produit(9, "A", 1.0), produit(8, "B", 1.0)));
+        PageCurseur<ProduitResume> page = service.findPage("recents", null, 1);
+        
+        when(produitRepository.findResumesAvantId(9L, Limit.of(2))).thenReturn(List.of(produit(8, "B", 1.0)));
+        PageCurseur<ProduitResume> suivante = service.findPage("recents", page.getNextCursor(), 1);
+        
+        assertEquals(List.of(9L), page.getContent().stream().map(ProduitResume::getId).toList());
+        assertEquals(List.of(8L), suivante.getContent().stream().map(ProduitResume::getId).toList());
+    }
+}